@@ -0,0 +1,193 @@
+//	Copyright 2009 Nicolas Devere
+//
+//	This file is part of FLESH SNATCHER.
+//
+//	FLESH SNATCHER is free software; you can redistribute it and/or modify
+//	it under the terms of the GNU General Public License as published by
+//	the Free Software Foundation; either version 2 of the License, or
+//	(at your option) any later version.
+//
+//	FLESH SNATCHER is distributed in the hope that it will be useful,
+//	but WITHOUT ANY WARRANTY; without even the implied warranty of
+//	MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+//	GNU General Public License for more details.
+//
+//	You should have received a copy of the GNU General Public License
+//	along with FLESH SNATCHER; if not, write to the Free Software
+//	Foundation, Inc., 51 Franklin St, Fifth Floor, Boston, MA  02110-1301  USA
+
+package ai;
+
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.Vector;
+
+import jglcore.JGL_3DVector;
+
+
+/**
+ * Least recently used cache of the paths of a graph, keyed by (start node, end node).<br>
+ * An entry is only used during <code>maxAge</code> frames after its search, so the 
+ * identical queries of the entities of a frame are searched once.
+ * 
+ * @author Nicolas Devere
+ *
+ */
+public final class PathCache {
+	
+	/** Default number of entries */
+	public static int DEFAULT_CAPACITY = 256;
+	
+	/** Default number of frames an entry is valid */
+	public static int DEFAULT_MAX_AGE = 1;
+	
+	
+	private static final class Entry {
+		JGL_3DVector[] path;
+		float length;
+		int frame;
+	}
+	
+	
+	private PathGraph graph;
+	private int capacity;
+	private int maxAge;
+	private LinkedHashMap entries;
+	
+	private long hits;
+	private long misses;
+	private long evictions;
+	
+	
+	/**
+	 * Constructs a cache for the specified graph.
+	 * 
+	 * @param _graph : the graph
+	 * @param _capacity : the max number of entries
+	 * @param _maxAge : the number of frames an entry is valid
+	 */
+	public PathCache(PathGraph _graph, int _capacity, int _maxAge) {
+		graph = _graph;
+		capacity = Math.max(1, _capacity);
+		maxAge = _maxAge;
+		entries = new LinkedHashMap(16, 0.75f, true) {
+			protected boolean removeEldestEntry(Map.Entry eldest) {
+				if (size()>capacity) {
+					evictions++;
+					return true;
+				}
+				return false;
+			}
+		};
+		resetStats();
+	}
+	
+	
+	/**
+	 * Searches the shortest path between two nodes, or reads it from the cache 
+	 * if it has been searched during the last frames.
+	 * 
+	 * @param index1 : the start node index
+	 * @param index2 : the end node index
+	 * @param result : receives the path points
+	 * @param frame : the current frame number
+	 * @return the path length, or infinity if the end node can't be reached
+	 */
+	public float search(int index1, int index2, Vector result, int frame) {
+		
+		Long key = new Long(((long)index1 << 32) | (index2 & 0xffffffffL));
+		Entry entry;
+		
+		synchronized (this) {
+			entry = (Entry)entries.get(key);
+			if (entry!=null && frame - entry.frame < maxAge && frame>=entry.frame) {
+				hits++;
+				result.clear();
+				for (int i=0; i<entry.path.length; i++)
+					result.add(entry.path[i]);
+				return entry.length;
+			}
+			misses++;
+		}
+		
+		entry = new Entry();
+		entry.length = graph.searchPath(index1, index2, result, PathSearch.get());
+		entry.path = new JGL_3DVector[result.size()];
+		result.copyInto(entry.path);
+		entry.frame = frame;
+		
+		synchronized (this) {
+			entries.put(key, entry);
+		}
+		return entry.length;
+	}
+	
+	
+	/**
+	 * Removes all the entries.
+	 */
+	public synchronized void clear() {
+		entries.clear();
+	}
+	
+	
+	/**
+	 * Removes the entries older than the valid age.
+	 * 
+	 * @param frame : the current frame number
+	 */
+	public synchronized void purge(int frame) {
+		Iterator it = entries.values().iterator();
+		while (it.hasNext())
+			if (frame - ((Entry)it.next()).frame >= maxAge)
+				it.remove();
+	}
+	
+	
+	/**
+	 * Resets the hits, misses and evictions counters.
+	 */
+	public synchronized void resetStats() {
+		hits = 0;
+		misses = 0;
+		evictions = 0;
+	}
+	
+	
+	public synchronized int getEntries() {
+		return entries.size();
+	}
+	
+	public synchronized long getHits() {
+		return hits;
+	}
+	
+	public synchronized long getMisses() {
+		return misses;
+	}
+	
+	public synchronized long getEvictions() {
+		return evictions;
+	}
+	
+	
+	/**
+	 * Returns the ratio of the queries read from the cache.
+	 * 
+	 * @return the hit rate, between 0 and 1
+	 */
+	public synchronized float getHitRate() {
+		if (hits + misses == 0)
+			return 0f;
+		return (float)hits / (float)(hits + misses);
+	}
+	
+	
+	public synchronized String toString() {
+		return "PathCache[" + graph.getID() + "] entries=" + entries.size() + "/" + capacity + 
+				" hits=" + hits + " misses=" + misses + " hitRate=" + getHitRate() + 
+				" evictions=" + evictions;
+	}
+	
+}
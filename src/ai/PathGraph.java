@@ -31,17 +31,25 @@ import java.util.Vector;
  */
 public class PathGraph {
 	
+	/** Max size in bytes of a next-hop table, bigger graphs are searched on demand */
+	public static int MAX_NEXT_HOP_BYTES = 2 * 1024 * 1024;
+	
 	private String name;
 	private JGL_3DVector points[];
-	private float weights[][];
 	
-	// Dantzig
-	private Vector a;
-	private float t[];
-	private float temp[];
-	private int before[];
-	private Vector paths[];
-	private Vector optNodes;
+	// Adjacency lists : the links of node i are in [linkStart[i], linkStart[i+1])
+	private int linkStart[];
+	private int linkNodes[];
+	private float linkWeights[];
+	
+	private boolean heuristic;
+	
+	// All-pairs next hops : nextHops[i * n + j] is the node after i on the path to j, or -1
+	private short nextHops[];
+	
+	private PathVisibility visibility;
+	
+	private PathCache cache;
 	
 	
 	
@@ -50,22 +58,69 @@ public class PathGraph {
 		name = id;
 		points = nodes;
 		
-		weights = new float[points.length][points.length];
-		for (int i=0; i<points.length; i++)
-			for (int j=0; j<points.length; j++)
+		int i, j, nb = 0;
+		for (i=0; i<points.length; i++)
+			for (j=0; j<points.length; j++)
 				if (links[i][j])
-					weights[i][j] = (float)Math.sqrt(JGL_Math.vector_squareDistance(points[i], points[j]));
-				else
-					weights[i][j] = Float.POSITIVE_INFINITY;
-		
-		a = new Vector();
-		t = new float[points.length];
-		temp = new float[points.length];
-		before = new int[points.length];
-		paths = new Vector[points.length];
-		for (int i=0; i<points.length; i++)
-			paths[i] = new Vector();
-		optNodes = new Vector();
+					nb++;
+		
+		linkStart = new int[points.length + 1];
+		linkNodes = new int[nb];
+		linkWeights = new float[nb];
+		
+		nb = 0;
+		for (i=0; i<points.length; i++) {
+			linkStart[i] = nb;
+			for (j=0; j<points.length; j++)
+				if (links[i][j]) {
+					linkNodes[nb] = j;
+					linkWeights[nb] = (float)Math.sqrt(JGL_Math.vector_squareDistance(points[i], points[j]));
+					nb++;
+				}
+		}
+		linkStart[points.length] = nb;
+		
+		heuristic = true;
+		visibility = new PathVisibility(points);
+		cache = new PathCache(this, PathCache.DEFAULT_CAPACITY, PathCache.DEFAULT_MAX_AGE);
+	}
+	
+	
+	/**
+	 * Constructs a graph from adjacency lists : links[i] stores the indices 
+	 * of the nodes reachable from the node i.
+	 * 
+	 * @param id : the graph ID
+	 * @param nodes : the points
+	 * @param links : the adjacency lists
+	 */
+	public PathGraph(String id, JGL_3DVector[] nodes, int[][] links) {
+		
+		name = id;
+		points = nodes;
+		
+		int i, j, nb = 0;
+		for (i=0; i<points.length; i++)
+			nb += links[i].length;
+		
+		linkStart = new int[points.length + 1];
+		linkNodes = new int[nb];
+		linkWeights = new float[nb];
+		
+		nb = 0;
+		for (i=0; i<points.length; i++) {
+			linkStart[i] = nb;
+			for (j=0; j<links[i].length; j++) {
+				linkNodes[nb] = links[i][j];
+				linkWeights[nb] = (float)Math.sqrt(JGL_Math.vector_squareDistance(points[i], points[links[i][j]]));
+				nb++;
+			}
+		}
+		linkStart[points.length] = nb;
+		
+		heuristic = true;
+		visibility = new PathVisibility(points);
+		cache = new PathCache(this, PathCache.DEFAULT_CAPACITY, PathCache.DEFAULT_MAX_AGE);
 	}
 	
 	
@@ -75,93 +130,226 @@ public class PathGraph {
 	}
 	
 	
+	/**
+	 * Sets if the searches use the distance to the goal as heuristic (A*), 
+	 * or not (Dijkstra). Both give a shortest path.
+	 * 
+	 * @param arg : if the heuristic is used
+	 */
+	public void setHeuristic(boolean arg) {
+		heuristic = arg;
+	}
+	
 	
+	/**
+	 * Searches the shortest path between two nodes and stores its points in the result, 
+	 * from the start node to the end node.
+	 * 
+	 * @param index1 : the start node index
+	 * @param index2 : the end node index
+	 * @param result : receives the path points
+	 * @return the path length, or infinity if the end node can't be reached
+	 */
 	public float searchPathDantzig(int index1, int index2, Vector result) {
+		return searchPath(index1, index2, result, PathSearch.get());
+	}
+	
+	
+	/**
+	 * Searches the shortest path between two nodes and stores its points in the result, 
+	 * from the start node to the end node.
+	 * 
+	 * @param index1 : the start node index
+	 * @param index2 : the end node index
+	 * @param result : receives the path points
+	 * @param s : the search working arrays
+	 * @return the path length, or infinity if the end node can't be reached
+	 */
+	public float searchPath(int index1, int index2, Vector result, PathSearch s) {
 		
-		int i, j;
-		int iStart, iEnd;
-		optNodes.clear();
-		
-		for (i=0; i<points.length; i++) {
-			t[i] = 0f;
-			paths[i].clear();
+		if (nextHops!=null) {
+			float length = followNextHops(index1, index2, result);
+			if (length>=0f)
+				return length;
 		}
 		
-		a.clear();
-		a.add(points[index1]);
-		paths[index1].add(points[index1]);
+		int i, node, next;
+		float c;
+		JGL_3DVector goal = points[index2];
 		
-		boolean search = true;
+		s.begin(points.length);
+		s.cost[index1] = 0f;
+		s.before[index1] = -1;
+		s.reached[index1] = s.search;
+		s.push(index1, estimate(index1, goal));
 		
-		while (search) {
-			
-			for (i=0; i<points.length; i++) {
-				temp[i] = Float.POSITIVE_INFINITY;
-				before[i] = -1;
-			}
+		while (s.heapSize>0) {
 			
-			float minW = Float.POSITIVE_INFINITY;
+			node = s.pop();
+			if (s.closed[node]==s.search)
+				continue;
+			s.closed[node] = s.search;
+			if (node==index2)
+				break;
 			
-			for (i=0; i<a.size(); i++) {
-				iStart = indexOf(a.get(i));
-				float w = getOptimalNodes(iStart, optNodes);
-				if (w<minW)
-					minW = w;
-				for (j=0; j<optNodes.size(); j++) {
-					iEnd = indexOf(optNodes.get(j));
-					if ((t[iStart] + minW)<temp[iEnd]) {
-						temp[iEnd] = t[iStart] + minW;
-						before[iEnd] = iStart;
-					}
+			for (i=linkStart[node]; i<linkStart[node+1]; i++) {
+				next = linkNodes[i];
+				if (s.closed[next]==s.search)
+					continue;
+				c = s.cost[node] + linkWeights[i];
+				if (s.reached[next]!=s.search || c<s.cost[next]) {
+					s.reached[next] = s.search;
+					s.cost[next] = c;
+					s.before[next] = node;
+					s.push(next, c + estimate(next, goal));
 				}
 			}
-			
-			float minT = Float.POSITIVE_INFINITY;
-			for (i=0; i<points.length; i++)
-				if (temp[i]<minT)
-					minT = temp[i];
-			for (i=0; i<points.length; i++)
-				if (temp[i]==minT) {
-					t[i] = temp[i];
-					a.add(points[i]);
-					paths[i].addAll(paths[before[i]]);
-					paths[i].add(points[i]);
-					if (i==index2)
-						search = false;
-				}
 		}
 		
 		result.clear();
-		result.addAll(paths[index2]);
+		if (s.closed[index2]!=s.search)
+			return Float.POSITIVE_INFINITY;
+		
+		int length = 0;
+		for (node=index2; node!=-1; node=s.before[node])
+			length++;
+		result.setSize(length);
+		for (node=index2; node!=-1; node=s.before[node])
+			result.set(--length, points[node]);
+		
+		return s.cost[index2];
+	}
+	
+	
+	/**
+	 * Computes the all-pairs next-hop table, with one Dijkstra search per node, 
+	 * if its size is under <code>MAX_NEXT_HOP_BYTES</code>. The searches then 
+	 * only follow the table.
+	 * 
+	 * @return if the table has been computed
+	 */
+	public boolean computeNextHops() {
+		
+		int n = points.length;
+		if (n>Short.MAX_VALUE || (long)n * n * 2 > MAX_NEXT_HOP_BYTES) {
+			nextHops = null;
+			return false;
+		}
 		
-		return t[index2];
+		short[] table = new short[n * n];
+		int[] order = new int[n];
+		int[] first = new int[n];
+		PathSearch s = new PathSearch();
+		
+		for (int i=0; i<n; i++) {
+			
+			int nb = searchAll(i, s, order);
+			
+			// The first hop of a node is the first hop of its predecessor
+			for (int j=0; j<n; j++)
+				table[i * n + j] = -1;
+			for (int k=1; k<nb; k++) {
+				int node = order[k];
+				int before = s.before[node];
+				first[node] = (before==i) ? node : first[before];
+				table[i * n + node] = (short)first[node];
+			}
+		}
+		
+		nextHops = table;
+		return true;
 	}
 	
 	
-	private int indexOf(Object arg) {
-		for (int i=0; i<points.length; i++)
-			if (points[i]==arg)
-				return i;
-		return -1;
+	/**
+	 * Returns if the next-hop table is used.
+	 * 
+	 * @return if the next-hop table is used
+	 */
+	public boolean hasNextHops() {
+		return nextHops!=null;
 	}
 	
 	
-	private float getOptimalNodes(int index, Vector result) {
+	/**
+	 * Dijkstra search from a node to all the others. Stores the nodes 
+	 * in closing order, and returns their number.
+	 */
+	private int searchAll(int index1, PathSearch s, int[] order) {
 		
-		result.clear();
+		int i, node, next, nb = 0;
+		float c;
 		
-		float w = Float.POSITIVE_INFINITY;
+		s.begin(points.length);
+		s.cost[index1] = 0f;
+		s.before[index1] = -1;
+		s.reached[index1] = s.search;
+		s.push(index1, 0f);
 		
-		for (int i=0; i<points.length; i++)
-			if (weights[index][i]<w && !a.contains(points[i]))
-				w = weights[index][i];
+		while (s.heapSize>0) {
+			node = s.pop();
+			if (s.closed[node]==s.search)
+				continue;
+			s.closed[node] = s.search;
+			order[nb++] = node;
+			
+			for (i=linkStart[node]; i<linkStart[node+1]; i++) {
+				next = linkNodes[i];
+				if (s.closed[next]==s.search)
+					continue;
+				c = s.cost[node] + linkWeights[i];
+				if (s.reached[next]!=s.search || c<s.cost[next]) {
+					s.reached[next] = s.search;
+					s.cost[next] = c;
+					s.before[next] = node;
+					s.push(next, c);
+				}
+			}
+		}
+		return nb;
+	}
+	
+	
+	/**
+	 * Stores the path given by the next-hop table, and returns its length. 
+	 * Returns -1 if the table doesn't lead to the end node.
+	 */
+	private float followNextHops(int index1, int index2, Vector result) {
 		
-		if (w!=Float.POSITIVE_INFINITY)
-			for (int i=0; i<points.length; i++)
-				if (weights[index][i]==w && !a.contains(points[i]))
-					result.add(points[i]);
+		int n = points.length;
+		int node = index1;
+		int next;
+		float length = 0f;
 		
-		return w;
+		result.clear();
+		result.add(points[index1]);
+		
+		while (node!=index2) {
+			next = nextHops[node * n + index2];
+			if (next<0) {
+				result.clear();
+				return Float.POSITIVE_INFINITY;
+			}
+			if (result.size()>n) {
+				result.clear();
+				return -1f;
+			}
+			for (int i=linkStart[node]; i<linkStart[node+1]; i++)
+				if (linkNodes[i]==next) {
+					length += linkWeights[i];
+					break;
+				}
+			result.add(points[next]);
+			node = next;
+		}
+		return length;
+	}
+	
+	
+	private float estimate(int node, JGL_3DVector goal) {
+		if (!heuristic)
+			return 0f;
+		return (float)Math.sqrt(JGL_Math.vector_squareDistance(points[node], goal));
 	}
 	
 	
@@ -169,4 +357,34 @@ public class PathGraph {
 		return points;
 	}
 	
+	
+	/**
+	 * Returns the visibility lookups of the graph points.
+	 * 
+	 * @return the visibility lookups
+	 */
+	public PathVisibility getVisibility() {
+		return visibility;
+	}
+	
+	
+	/**
+	 * Returns the shared path cache of the graph.
+	 * 
+	 * @return the path cache
+	 */
+	public PathCache getCache() {
+		return cache;
+	}
+	
+	
+	/**
+	 * Sets the shared path cache of the graph.
+	 * 
+	 * @param arg : the path cache
+	 */
+	public void setCache(PathCache arg) {
+		cache = arg;
+	}
+	
 }
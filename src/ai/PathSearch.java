@@ -0,0 +1,168 @@
+//	Copyright 2009 Nicolas Devere
+//
+//	This file is part of FLESH SNATCHER.
+//
+//	FLESH SNATCHER is free software; you can redistribute it and/or modify
+//	it under the terms of the GNU General Public License as published by
+//	the Free Software Foundation; either version 2 of the License, or
+//	(at your option) any later version.
+//
+//	FLESH SNATCHER is distributed in the hope that it will be useful,
+//	but WITHOUT ANY WARRANTY; without even the implied warranty of
+//	MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+//	GNU General Public License for more details.
+//
+//	You should have received a copy of the GNU General Public License
+//	along with FLESH SNATCHER; if not, write to the Free Software
+//	Foundation, Inc., 51 Franklin St, Fifth Floor, Boston, MA  02110-1301  USA
+
+package ai;
+
+
+/**
+ * Stores the working arrays of a path graph search : costs, predecessors
+ * and the binary heap of the open set.<br>
+ * A search object must only be used by one thread at a time. The searches
+ * without search parameter use the current thread's default object.
+ *
+ * @author Nicolas Devere
+ *
+ */
+public final class PathSearch {
+
+
+	private static ThreadLocal s_default = new ThreadLocal() {
+		protected Object initialValue() {
+			return new PathSearch();
+		}
+	};
+
+
+	/** Cost from the start node */
+	float[] cost;
+
+	/** Predecessor node on the best known path */
+	int[] before;
+
+	/** Search number when the node was reached */
+	int[] reached;
+
+	/** Search number when the node was closed */
+	int[] closed;
+
+	/** Current search number */
+	int search;
+
+	// Open set : binary heap of nodes, sorted by estimated total cost
+	int[] heapNodes;
+	float[] heapKeys;
+	int heapSize;
+
+
+	/**
+	 * Constructs a new search object.
+	 */
+	public PathSearch() {
+		cost = new float[0];
+		before = new int[0];
+		reached = new int[0];
+		closed = new int[0];
+		search = 0;
+		heapNodes = new int[16];
+		heapKeys = new float[16];
+		heapSize = 0;
+	}
+
+
+	/**
+	 * Returns the default search object of the current thread.
+	 *
+	 * @return the default search object of the current thread
+	 */
+	public static PathSearch get() {
+		return (PathSearch)s_default.get();
+	}
+
+
+	/**
+	 * Prepares a new search over the specified number of nodes.
+	 *
+	 * @param size : the number of nodes
+	 */
+	void begin(int size) {
+		if (cost.length<size) {
+			cost = new float[size];
+			before = new int[size];
+			reached = new int[size];
+			closed = new int[size];
+			search = 0;
+		}
+		search++;
+		if (search==Integer.MAX_VALUE) {
+			for (int i=0; i<reached.length; i++)
+				reached[i] = closed[i] = 0;
+			search = 1;
+		}
+		heapSize = 0;
+	}
+
+
+	/**
+	 * Adds a node in the open set.
+	 */
+	void push(int node, float key) {
+
+		if (heapSize==heapNodes.length) {
+			int[] n = new int[heapSize * 2];
+			float[] k = new float[heapSize * 2];
+			System.arraycopy(heapNodes, 0, n, 0, heapSize);
+			System.arraycopy(heapKeys, 0, k, 0, heapSize);
+			heapNodes = n;
+			heapKeys = k;
+		}
+
+		int i = heapSize++;
+		while (i>0) {
+			int parent = (i - 1) >> 1;
+			if (heapKeys[parent]<=key)
+				break;
+			heapNodes[i] = heapNodes[parent];
+			heapKeys[i] = heapKeys[parent];
+			i = parent;
+		}
+		heapNodes[i] = node;
+		heapKeys[i] = key;
+	}
+
+
+	/**
+	 * Removes and returns the node of the open set with the smallest key.
+	 */
+	int pop() {
+
+		int result = heapNodes[0];
+		heapSize--;
+		if (heapSize==0)
+			return result;
+
+		int node = heapNodes[heapSize];
+		float key = heapKeys[heapSize];
+		int i = 0;
+		while (true) {
+			int child = (i << 1) + 1;
+			if (child>=heapSize)
+				break;
+			if (child + 1<heapSize && heapKeys[child + 1]<heapKeys[child])
+				child++;
+			if (key<=heapKeys[child])
+				break;
+			heapNodes[i] = heapNodes[child];
+			heapKeys[i] = heapKeys[child];
+			i = child;
+		}
+		heapNodes[i] = node;
+		heapKeys[i] = key;
+		return result;
+	}
+
+}
@@ -0,0 +1,83 @@
+//	Copyright 2009 Nicolas Devere
+//
+//	This file is part of FLESH SNATCHER.
+//
+//	FLESH SNATCHER is free software; you can redistribute it and/or modify
+//	it under the terms of the GNU General Public License as published by
+//	the Free Software Foundation; either version 2 of the License, or
+//	(at your option) any later version.
+//
+//	FLESH SNATCHER is distributed in the hope that it will be useful,
+//	but WITHOUT ANY WARRANTY; without even the implied warranty of
+//	MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+//	GNU General Public License for more details.
+//
+//	You should have received a copy of the GNU General Public License
+//	along with FLESH SNATCHER; if not, write to the Free Software
+//	Foundation, Inc., 51 Franklin St, Fifth Floor, Boston, MA  02110-1301  USA
+
+package ai;
+
+import jglcore.JGL_3DVector;
+import jglcore.JGL_Math;
+import world.Map;
+
+
+/**
+ * Visibility lookups of the points of a path graph.
+ *
+ * @author Nicolas Devere
+ *
+ */
+public final class PathVisibility {
+
+	private JGL_3DVector[] points;
+
+
+	/**
+	 * Constructs the visibility of the specified points, which must not move.
+	 *
+	 * @param _points : the path graph points
+	 */
+	public PathVisibility(JGL_3DVector[] _points) {
+		points = _points;
+	}
+
+
+	/**
+	 * Returns the index of the nearest point seen from the specified position, or -1.
+	 * The points are swept in distance order until a visible one is found,
+	 * so the first visible point costs one sweep. The sweep uses the search 
+	 * object of the current thread, so several threads can look up at the same time.
+	 *
+	 * @param m : the map
+	 * @param pos : the position
+	 * @return the nearest visible point index, or -1
+	 */
+	public int getNearestVisible(Map m, JGL_3DVector pos) {
+
+		int i, best;
+
+		// Distances in the costs, and discarded points closed
+		PathSearch s = PathSearch.get();
+		s.begin(points.length);
+		float[] dist = s.cost;
+		int[] out = s.closed;
+		int search = s.search;
+		for (i=0; i<points.length; i++)
+			dist[i] = JGL_Math.vector_squareDistance(pos, points[i]);
+
+		while (true) {
+			best = -1;
+			for (i=0; i<points.length; i++)
+				if (out[i]!=search && (best==-1 || dist[i]<dist[best]))
+					best = i;
+			if (best==-1)
+				return -1;
+			if (!m.intersect(pos, points[best]))
+				return best;
+			out[best] = search;
+		}
+	}
+
+}
@@ -26,6 +26,7 @@ import jglcore.JGL_3DVector;
 import jglcore.JGL_Math;
 import entity.Entity;
 import entity.Skeleton01;
+import world.EntityList;
 import world.World;
 
 
@@ -178,9 +179,10 @@ public final class SkeletonAI {
 			JGL_Math.vector_add(curCone[i], s.getPosition(), curCone[i]);
 		}
 		
-		for (i=0; i<World.map.characters.size(); i++) {
-			Entity ent = (Entity)World.map.characters.get(i);
-			if (ent!=s && ent.getTeam()!=s.getTeam() && ent.getTeam()>=0) {
+		EntityList characters = World.map.getCharacters();
+		for (i=0; i<characters.size(); i++) {
+			Entity ent = characters.get(i);
+			if (ent!=null && ent!=s && ent.getTeam()!=s.getTeam() && ent.getTeam()>=0) {
 				td = JGL_Math.vector_squareDistance(s.getPosition(), ent.getPosition());
 				if (td<maxDistance2 && td<targetDist2) {
 					if (Util4AI.isInCone(ent.getPosition(), s.getPosition(), curCone)) {
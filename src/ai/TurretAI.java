@@ -18,6 +18,7 @@
 
 package ai;
 
+import world.EntityList;
 import world.World;
 import jglcore.JGL_3DVector;
 import jglcore.JGL_Math;
@@ -162,9 +163,10 @@ public final class TurretAI {
 			JGL_Math.vector_add(curCone[i], t.getFirePosition(), curCone[i]);
 		}
 		
-		for (i=0; i<World.map.characters.size(); i++) {
-			Entity ent = (Entity)World.map.characters.get(i);
-			if (ent!=t && ent.getTeam()!=t.getTeam() && ent.getTeam()>=0) {
+		EntityList characters = World.map.getCharacters();
+		for (i=0; i<characters.size(); i++) {
+			Entity ent = characters.get(i);
+			if (ent!=null && ent!=t && ent.getTeam()!=t.getTeam() && ent.getTeam()>=0) {
 				td = JGL_Math.vector_squareDistance(t.getFirePosition(), ent.getPosition());
 				if (td<targetDist2) {
 					if (Util4AI.isInCone(ent.getPosition(), t.getFirePosition(), curCone)) {
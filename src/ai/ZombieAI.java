@@ -40,4 +40,9 @@ public interface ZombieAI {
 	 */
 	public ZombieAI clone(Zombie01 arg);
 	
+	/**
+	 * Restores the AI in its starting state, for a zombie coming back in the game.
+	 */
+	public void reset();
+	
 }
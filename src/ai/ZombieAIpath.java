@@ -27,6 +27,8 @@ import entity.Entity;
 import entity.Zombie01;
 import phys.Shape_aabb;
 import phys.Trace;
+import phys.TraceContext;
+import world.EntityList;
 import world.World;
 import main.Player;
 
@@ -54,12 +56,6 @@ public class ZombieAIpath implements ZombieAI {
 	// Character avoid parameters
 	private static float avoidSphereDistance2 = 121f;
 	
-	// Path points collision
-	private static Trace impact = new Trace();
-	
-	// Optimization
-	private static JGL_3DVector s_v = new JGL_3DVector();
-	
 	//-------- INSTANCE
 	
 	private int behave;
@@ -80,9 +76,19 @@ public class ZombieAIpath implements ZombieAI {
 	// Character avoid
 	private JGL_3DVector sDir;
 	
+	// Batch line of sight
+	private JGL_3DVector[] targets;
+	private Entity[] teammates;
+	private float[] distances;
+	private boolean[] blocked;
+	
 	// Time variables
 	private float timer;
 	
+	// Path points collision, per instance as the zombies may think at the same time
+	private Trace impact;
+	private JGL_3DVector s_v;
+	
 	
 	
 	public ZombieAIpath(Zombie01 zombie, PathGraph pathgraph) {
@@ -102,6 +108,70 @@ public class ZombieAIpath implements ZombieAI {
 		relativePos = new JGL_3DVector();
 		turnStepH = maxTurnStep;
 		sDir = new JGL_3DVector();
+		
+		targets = new JGL_3DVector[0];
+		teammates = new Entity[0];
+		distances = new float[0];
+		blocked = new boolean[0];
+		
+		impact = new Trace();
+		s_v = new JGL_3DVector();
+	}
+	
+	
+	/**
+	 * Grows the batch line of sight arrays to the specified size.
+	 */
+	private void ensureBatch(int size) {
+		if (targets.length<size) {
+			targets = new JGL_3DVector[size];
+			teammates = new Entity[size];
+			distances = new float[size];
+			blocked = new boolean[size];
+		}
+	}
+	
+	
+	/**
+	 * Returns the nearest visible teammate in the avoid sphere, or null.
+	 */
+	private Entity getNearestTeammate() {
+		
+		Entity charac, characTarget = null;
+		float td;
+		int nb = 0;
+		
+		EntityList characters = World.map.getCharacters();
+		ensureBatch(characters.size());
+		for (int i=0; i<characters.size(); i++) {
+			charac = characters.get(i);
+			if (charac!=null && charac!=z && charac.getTeam()==z.getTeam() && charac.getTeam()>=0) {
+				td = JGL_Math.vector_squareDistance(z.getPosition(), charac.getPosition());
+				if (td<avoidSphereDistance2) {
+					teammates[nb] = charac;
+					targets[nb] = charac.getPosition();
+					distances[nb] = td;
+					nb++;
+				}
+			}
+		}
+		if (nb==0)
+			return null;
+		
+		World.map.intersectMany(z.getPosition(), targets, nb, blocked, TraceContext.get());
+		
+		float characDist2 = Float.POSITIVE_INFINITY;
+		for (int i=0; i<nb; i++)
+			if (!blocked[i] && distances[i]<characDist2) {
+				characTarget = teammates[i];
+				characDist2 = distances[i];
+			}
+		
+		for (int i=0; i<nb; i++) {
+			teammates[i] = null;
+			targets[i] = null;
+		}
+		return characTarget;
 	}
 	
 
@@ -144,25 +214,9 @@ public class ZombieAIpath implements ZombieAI {
 		
 		
 		// Character avoid management
-		boolean avoidCharac = false;
-		Entity charac, characTarget = null;
-		float td;
-		float characDist2 = Float.POSITIVE_INFINITY;
-		for (int i=0; i<World.map.characters.size(); i++) {
-			charac = (Entity)World.map.characters.get(i);
-			if (charac!=z && charac.getTeam()==z.getTeam() && charac.getTeam()>=0) {
-				td = JGL_Math.vector_squareDistance(z.getPosition(), charac.getPosition());
-				if (td<avoidSphereDistance2 && td<characDist2) {
-					if (!World.map.intersect(z.getPosition(), charac.getPosition())) {
-						avoidCharac = true;
-						characTarget = charac;
-						characDist2 = td;
-					}
-				}
-			}
-		}
+		Entity characTarget = getNearestTeammate();
 		z.setSideMove(0);
-		if (avoidCharac) {
+		if (characTarget!=null) {
 			JGL_Math.vector_subtract(characTarget.getPosition(), z.getPosition(), relativePos);
 			JGL_3DVector angles = z.getOrientation();
 			JGL_Math.vector_fastYXrotate(angles.x, angles.y, sDir);
@@ -235,25 +289,9 @@ public class ZombieAIpath implements ZombieAI {
 		z.setForwardMove(1);
 		
 		// Character avoid management
-		boolean avoidCharac = false;
-		Entity charac, characTarget = null;
-		float td;
-		float characDist2 = Float.POSITIVE_INFINITY;
-		for (int i=0; i<World.map.characters.size(); i++) {
-			charac = (Entity)World.map.characters.get(i);
-			if (charac!=z && charac.getTeam()==z.getTeam() && charac.getTeam()>=0) {
-				td = JGL_Math.vector_squareDistance(z.getPosition(), charac.getPosition());
-				if (td<avoidSphereDistance2 && td<characDist2) {
-					if (!World.map.intersect(z.getPosition(), charac.getPosition())) {
-						avoidCharac = true;
-						characTarget = charac;
-						characDist2 = td;
-					}
-				}
-			}
-		}
+		Entity characTarget = getNearestTeammate();
 		z.setSideMove(0);
-		if (avoidCharac) {
+		if (characTarget!=null) {
 			JGL_Math.vector_subtract(characTarget.getPosition(), z.getPosition(), relativePos);
 			JGL_3DVector angles = z.getOrientation();
 			JGL_Math.vector_fastYXrotate(angles.x, angles.y, sDir);
@@ -283,10 +321,16 @@ public class ZombieAIpath implements ZombieAI {
 		if (i2==-1) return false;
 		
 		if (i1!=i2) {
-			graph.searchPathDantzig(i1, i2, path);
+			graph.getCache().search(i1, i2, path, World.map.getFrame());
+			if (path.size()==0)
+				return false;
 			iPoint = 0;
+			ensureBatch(path.size());
 			for (int i=0; i<path.size(); i++)
-				if (!World.map.intersect(z.getPosition(), (JGL_3DVector)path.get(i)))
+				targets[i] = (JGL_3DVector)path.get(i);
+			World.map.intersectMany(z.getPosition(), targets, path.size(), blocked, TraceContext.get());
+			for (int i=0; i<path.size(); i++)
+				if (!blocked[i])
 					iPoint = i;
 			
 			point.setPosition((JGL_3DVector)path.get(iPoint));
@@ -298,21 +342,20 @@ public class ZombieAIpath implements ZombieAI {
 	
 	private int index(JGL_3DVector arg) {
 		
-		int result = -1;
-		float dist = Float.POSITIVE_INFINITY;
-		float dTest;
-		JGL_3DVector points[] = graph.getPoints();
-		
-		for (int i=0; i<points.length; i++) {
-			if (!World.map.intersect(arg, points[i])) {
-				dTest = JGL_Math.vector_squareDistance(arg, points[i]);
-				if (dTest<dist) {
-					dist = dTest;
-					result = i;
-				}
-			}
-		}
-		return result;
+		return graph.getVisibility().getNearestVisible(World.map, arg);
+	}
+	
+	
+	public void reset() {
+		path.clear();
+		iPoint = 0;
+		simpleAI.reset();
+		behave = FOLLOW_PLAYER;
+		pathBehave = SEARCH;
+		hDir.assign(0f, 0f, 0f);
+		relativePos.assign(0f, 0f, 0f);
+		turnStepH = maxTurnStep;
+		sDir.assign(0f, 0f, 0f);
 	}
 	
 	
@@ -21,6 +21,7 @@ package ai;
 import jglcore.JGL_3DVector;
 import jglcore.JGL_Math;
 import jglcore.JGL_Time;
+import world.EntityList;
 import world.World;
 import main.Player;
 import entity.Entity;
@@ -113,9 +114,10 @@ public final class ZombieAIsimple implements ZombieAI {
 		Entity shoot, shootTarget = null;
 		float td, ed;
 		float shootDist2 = Float.MAX_VALUE;
-		for (int i=0; i<World.map.shoots.size(); i++) {
-			shoot = (Shoot)World.map.shoots.get(i);
-			if (shoot!=z && shoot.getTeam()!=z.getTeam() && shoot.getTeam()>=0) {
+		EntityList shoots = World.map.getShoots();
+		for (int i=0; i<shoots.size(); i++) {
+			shoot = shoots.get(i);
+			if (shoot!=null && shoot!=z && shoot.getTeam()!=z.getTeam() && shoot.getTeam()>=0) {
 				td = JGL_Math.vector_squareDistance(z.getPosition(), shoot.getPosition());
 				ed = JGL_Math.vector_squareDistance(z.getPosition(), ((Shoot)shoot).getWeapon().getOwner().getPosition());
 				if (td<avoidSphereDistance2 && td<shootDist2 && ed>avoidShooterDistance2) {
@@ -179,6 +181,17 @@ public final class ZombieAIsimple implements ZombieAI {
 	}
 	
 	
+	public void reset() {
+		hDir.assign(0f, 0f, 0f);
+		relativePos.assign(0f, 0f, 0f);
+		relativePosOld.assign(0f, 0f, 0f);
+		turnStepH = 0f;
+		turnSideH = 0;
+		sDir.assign(0f, 0f, 0f);
+		timer = 1f;
+	}
+	
+	
 	public ZombieAI clone(Zombie01 arg) {
 		return new ZombieAIsimple(arg);
 	}
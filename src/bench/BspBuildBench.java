@@ -0,0 +1,179 @@
+//	Copyright 2009 Nicolas Devere
+//
+//	This file is part of FLESH SNATCHER.
+//
+//	FLESH SNATCHER is free software; you can redistribute it and/or modify
+//	it under the terms of the GNU General Public License as published by
+//	the Free Software Foundation; either version 2 of the License, or
+//	(at your option) any later version.
+//
+//	FLESH SNATCHER is distributed in the hope that it will be useful,
+//	but WITHOUT ANY WARRANTY; without even the implied warranty of
+//	MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+//	GNU General Public License for more details.
+//
+//	You should have received a copy of the GNU General Public License
+//	along with FLESH SNATCHER; if not, write to the Free Software
+//	Foundation, Inc., 51 Franklin St, Fifth Floor, Boston, MA  02110-1301  USA
+
+package bench;
+
+import java.io.BufferedOutputStream;
+import java.io.DataOutputStream;
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.RandomAccessFile;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.util.Random;
+import java.util.Vector;
+
+import input.Reader_Milkshape;
+import jglcore.JGL_3DMesh;
+import jglcore.JGL_3DTriangle;
+import jglcore.JGL_3DVector;
+import jglcore.JGL_Math;
+import phys.Bsp_tree;
+
+
+/**
+ * Load time of the collision BSPs, built on one thread and on the fork/join pool, 
+ * and read from a mapped binary file.<br>
+ * Usage : <code>java bench.BspBuildBench [file.ms3d.txt ...]</code><br>
+ * Without file, synthetic levels made of boxes are built.
+ * 
+ * @author Nicolas Devere
+ *
+ */
+public final class BspBuildBench {
+	
+	
+	/**
+	 * Adds the 2 triangles of a box side to the mesh, facing the outside.
+	 */
+	static void addSide(JGL_3DMesh mesh, JGL_3DVector a, JGL_3DVector b, JGL_3DVector c, JGL_3DVector d, JGL_3DVector center) {
+		
+		JGL_3DVector u = new JGL_3DVector(b.x - a.x, b.y - a.y, b.z - a.z);
+		JGL_3DVector v = new JGL_3DVector(c.x - a.x, c.y - a.y, c.z - a.z);
+		JGL_3DVector n = new JGL_3DVector((u.y * v.z) - (v.y * u.z), (u.z * v.x) - (v.z * u.x), (u.x * v.y) - (v.x * u.y));
+		JGL_3DVector out = new JGL_3DVector(a.x - center.x, a.y - center.y, a.z - center.z);
+		
+		if (JGL_Math.vector_dotProduct(n, out)>0f) {
+			mesh.addFace(new JGL_3DTriangle(a, b, c));
+			mesh.addFace(new JGL_3DTriangle(a, c, d));
+		}
+		else {
+			mesh.addFace(new JGL_3DTriangle(a, c, b));
+			mesh.addFace(new JGL_3DTriangle(a, d, c));
+		}
+	}
+	
+	
+	/**
+	 * Returns a convex box brush.
+	 */
+	static JGL_3DMesh box(float x0, float y0, float z0, float x1, float y1, float z1) {
+		
+		JGL_3DMesh m = new JGL_3DMesh();
+		JGL_3DVector c = new JGL_3DVector((x0 + x1) * 0.5f, (y0 + y1) * 0.5f, (z0 + z1) * 0.5f);
+		JGL_3DVector[] p = new JGL_3DVector[8];
+		for (int i=0; i<8; i++)
+			p[i] = new JGL_3DVector((i & 1)==0 ? x0 : x1, (i & 2)==0 ? y0 : y1, (i & 4)==0 ? z0 : z1);
+		
+		addSide(m, p[0], p[1], p[3], p[2], c);
+		addSide(m, p[4], p[5], p[7], p[6], c);
+		addSide(m, p[0], p[1], p[5], p[4], c);
+		addSide(m, p[2], p[3], p[7], p[6], c);
+		addSide(m, p[0], p[2], p[6], p[4], c);
+		addSide(m, p[1], p[3], p[7], p[5], c);
+		return m;
+	}
+	
+	
+	/**
+	 * Returns the brushes of a level made of rooms : floors, walls and pillars.
+	 */
+	static JGL_3DMesh[] buildLevel(int rooms, Random r) {
+		
+		Vector v = new Vector();
+		int side = (int)Math.ceil(Math.sqrt(rooms));
+		for (int k=0; k<rooms; k++) {
+			float x = (k % side) * 40f;
+			float z = -(k / side) * 40f;
+			v.add(box(x, -2f, z - 40f, x + 40f, 0f, z));
+			v.add(box(x, 0f, z - 1f, x + 16f + r.nextInt(8), 12f, z));
+			v.add(box(x, 0f, z - 40f, x + 1f, 12f, z - 24f + r.nextInt(8)));
+			v.add(box(x + 10f + r.nextInt(20), 0f, z - 20f - r.nextInt(10), x + 14f + r.nextInt(20), 12f, z - 8f));
+		}
+		JGL_3DMesh[] result = new JGL_3DMesh[v.size()];
+		v.toArray(result);
+		return result;
+	}
+	
+	
+	static long build(JGL_3DMesh[] meshes, boolean parallel, int runs) {
+		Bsp_tree.PARALLEL_BUILD = parallel;
+		long best = Long.MAX_VALUE;
+		for (int i=0; i<runs; i++) {
+			long t = System.nanoTime();
+			new Bsp_tree(meshes);
+			best = Math.min(best, System.nanoTime() - t);
+		}
+		return best / 1000000;
+	}
+	
+	
+	/**
+	 * Writes the BSP in a temporary file, and returns the best time in microseconds 
+	 * to map and read it.
+	 */
+	static long read(Bsp_tree bsp, int runs) throws Exception {
+		File f = File.createTempFile("bsp", ".bin");
+		f.deleteOnExit();
+		DataOutputStream out = new DataOutputStream(new BufferedOutputStream(new FileOutputStream(f)));
+		bsp.write(out);
+		out.close();
+		
+		long best = Long.MAX_VALUE;
+		for (int i=0; i<runs; i++) {
+			long t = System.nanoTime();
+			RandomAccessFile raf = new RandomAccessFile(f, "r");
+			ByteBuffer in = raf.getChannel().map(FileChannel.MapMode.READ_ONLY, 0, f.length());
+			raf.close();
+			Bsp_tree.read(in);
+			best = Math.min(best, System.nanoTime() - t);
+		}
+		return best / 1000;
+	}
+	
+	
+	static void run(String name, JGL_3DMesh[] meshes) throws Exception {
+		build(meshes, true, 1);
+		long seq = build(meshes, false, 3);
+		long par = build(meshes, true, 3);
+		long cached = read(new Bsp_tree(meshes), 10);
+		System.out.println(	name + " : " + meshes.length + " brushes, " + 
+							seq + " ms on 1 thread, " + par + " ms on " + 
+							Runtime.getRuntime().availableProcessors() + " cores, " + 
+							cached + " us from the cache");
+	}
+	
+	
+	public static void main(String[] args) throws Exception {
+		
+		if (args.length>0) {
+			for (int i=0; i<args.length; i++) {
+				Vector v = new Reader_Milkshape(args[i]).getData().subMeshes;
+				JGL_3DMesh[] meshes = new JGL_3DMesh[v.size()];
+				v.toArray(meshes);
+				run(args[i], meshes);
+			}
+			return;
+		}
+		
+		int[] rooms = {16, 64, 144};
+		for (int i=0; i<rooms.length; i++)
+			run("Level of " + rooms[i] + " rooms", buildLevel(rooms[i], new Random(3)));
+	}
+	
+}
@@ -0,0 +1,158 @@
+//	Copyright 2009 Nicolas Devere
+//
+//	This file is part of FLESH SNATCHER.
+//
+//	FLESH SNATCHER is free software; you can redistribute it and/or modify
+//	it under the terms of the GNU General Public License as published by
+//	the Free Software Foundation; either version 2 of the License, or
+//	(at your option) any later version.
+//
+//	FLESH SNATCHER is distributed in the hope that it will be useful,
+//	but WITHOUT ANY WARRANTY; without even the implied warranty of
+//	MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+//	GNU General Public License for more details.
+//
+//	You should have received a copy of the GNU General Public License
+//	along with FLESH SNATCHER; if not, write to the Free Software
+//	Foundation, Inc., 51 Franklin St, Fifth Floor, Boston, MA  02110-1301  USA
+
+package bench;
+
+import java.util.Random;
+
+import ai.PathGraph;
+import ai.ZombieAIpath;
+import entity.Blood;
+import entity.Entity;
+import entity.EntityPool;
+import entity.Explosion;
+import entity.Factory;
+import entity.Zombie01;
+import jglcore.JGL_3DVector;
+import jglcore.JGL_Time;
+import phys.Motion_NoCollision;
+import phys.Motion_slide;
+import phys.Mover_none;
+import phys.Shape_aabb;
+import struct.Explode;
+import world.Map;
+
+
+/**
+ * Allocation rate of a long factory wave, with and without the entity pools.<br>
+ * Factories keep producing zombies, and the oldest ones are killed so that 
+ * only a few of them are alive at the same time. The bench prints the clones 
+ * of the prototype, the recycled zombies, and the bytes allocated per frame 
+ * by the update thread.<br>
+ * Usage : <code>java bench.FactoryWaveBench [frames]</code>
+ * 
+ * @author Nicolas Devere
+ *
+ */
+public final class FactoryWaveBench {
+	
+	static final int FACTORIES = 4;
+	static final int WAVE = 1000000;
+	static final long PRODUCTION_SPEED = 100l;
+	static final int MAX_ALIVE = 40;
+	static final int WARMUP_FRAMES = 600;
+	
+	static Zombie01 proto;
+	
+	
+	static Map buildMap(PathGraph graph) {
+		
+		Map map = ZombieBench.buildMap(0, graph);
+		
+		Blood[] bloods = new Blood[3];
+		for (int i=0; i<bloods.length; i++)
+			bloods[i] = new Blood(ZombieBench.node("blood"), 500l);
+		proto = new Zombie01(	"zombie", 1, 0f, 0f, 0f, 0f, 0f, 0f, 100f, 0f, 0.8f, 
+								ZombieBench.node("zombie"), bloods, new ZombieAIpath(null, graph), 
+								new Shape_aabb(new JGL_3DVector(), new JGL_3DVector(-2.5f, -10f, -2.5f), new JGL_3DVector(2.5f, 2f, 2.5f)), 
+								new Mover_none(), new Motion_slide(3f));
+		
+		float far = (ZombieBench.SIDE - 1) * ZombieBench.GAP;
+		for (int i=0; i<FACTORIES; i++) {
+			float x = (i & 1) * far;
+			float z = (i >> 1) * far;
+			Factory f = new Factory("factory" + i, 1, x, 10f, z, 100f, 0f, PRODUCTION_SPEED, WAVE, 
+									ZombieBench.node("factory"), ZombieBench.node("hit"), 
+									new Explosion("exp", new Explode[0], "dum"), 
+									new Explosion("gen", new Explode[0], "dum"), proto, 
+									new Shape_aabb(new JGL_3DVector(), new JGL_3DVector(-0.5f, -0.5f, -0.5f), new JGL_3DVector(0.5f, 0.5f, 0.5f)), 
+									new Mover_none(), new Motion_NoCollision());
+			map.addObject(f);
+		}
+		return map;
+	}
+	
+	
+	/**
+	 * Kills the oldest zombies over the max number alive.
+	 */
+	static void kill(Map map) {
+		int alive = 0;
+		for (int i=map.characters.size()-1; i>=0; i--) {
+			Entity e = (Entity)map.characters.get(i);
+			if (e.isActive() && ++alive>MAX_ALIVE)
+				e.setDying();
+		}
+	}
+	
+	
+	static void frame(Map map) {
+		JGL_Time.beginStep();
+		map.update();
+		JGL_Time.endStep();
+		kill(map);
+	}
+	
+	
+	static void run(String label, PathGraph graph, int frames) {
+		
+		EntityPool.clear();
+		Map map = buildMap(graph);
+		for (int i=0; i<WARMUP_FRAMES; i++)
+			frame(map);
+		
+		EntityPool pool = EntityPool.get(proto);
+		int created = pool.getCreated();
+		int reused = pool.getReused();
+		
+		long bytes = PhysBench.allocatedBytes();
+		long t = System.nanoTime();
+		for (int i=0; i<frames; i++)
+			frame(map);
+		t = System.nanoTime() - t;
+		bytes = PhysBench.allocatedBytes() - bytes;
+		
+		created = pool.getCreated() - created;
+		reused = pool.getReused() - reused;
+		String alloc = "n/a";
+		if (bytes>=0L)
+			alloc = (bytes / frames) + " B/frame, " + ((bytes * 1000L) / Math.max(1L, t)) + " MB/s";
+		
+		System.out.println(	label + " : " + (t / frames / 1000) + " us/frame, " + alloc + ", " + 
+							(created + reused) + " spawns, " + created + " cloned, " + reused + " recycled, " + 
+							map.characters.size() + " characters");
+	}
+	
+	
+	public static void main(String[] args) {
+		
+		int frames = args.length>0 ? Integer.parseInt(args[0]) : 6000;
+		
+		JGL_Time.reset();
+		JGL_Time.setFixedStep(60f, 1);
+		Map.PARALLEL_UPDATE = false;
+		PathGraph graph = PathGraphBench.buildGraph(ZombieBench.SIDE, new Random(5));
+		
+		EntityPool.setSize("zombie", 0);
+		run("clones", graph, frames);
+		
+		EntityPool.setSize("zombie", EntityPool.DEFAULT_SIZE);
+		run("pool " + EntityPool.DEFAULT_SIZE, graph, frames);
+	}
+	
+}
@@ -0,0 +1,151 @@
+//	Copyright 2009 Nicolas Devere
+//
+//	This file is part of FLESH SNATCHER.
+//
+//	FLESH SNATCHER is free software; you can redistribute it and/or modify
+//	it under the terms of the GNU General Public License as published by
+//	the Free Software Foundation; either version 2 of the License, or
+//	(at your option) any later version.
+//
+//	FLESH SNATCHER is distributed in the hope that it will be useful,
+//	but WITHOUT ANY WARRANTY; without even the implied warranty of
+//	MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+//	GNU General Public License for more details.
+//
+//	You should have received a copy of the GNU General Public License
+//	along with FLESH SNATCHER; if not, write to the Free Software
+//	Foundation, Inc., 51 Franklin St, Fifth Floor, Boston, MA  02110-1301  USA
+
+package bench;
+
+import java.util.Random;
+import java.util.Vector;
+
+import jglcore.JGL_3DBsp;
+import jglcore.JGL_3DMesh;
+import jglcore.JGL_3DTriangle;
+import jglcore.JGL_3DVector;
+import phys.Shape_sphere;
+import phys.Trace;
+import world.CollisionHeightMap;
+
+
+/**
+ * Heap usage and sweep speed of the height-map collision data, compared with 
+ * the former layout storing a BSP of 2 triangles per cell.<br>
+ * Usage : <code>java bench.HeightMapBench [side] [sweeps]</code>
+ * 
+ * @author Nicolas Devere
+ *
+ */
+public final class HeightMapBench {
+	
+	
+	static JGL_3DMesh buildMesh(int side, float gap, Random r) {
+		JGL_3DMesh mesh = new JGL_3DMesh();
+		for (int i=0; i<side; i++)
+			for (int j=0; j<side; j++)
+				mesh.getPoints().add(new JGL_3DVector(	i * gap, 
+														(float)(Math.sin(i * 0.05) * 8 + Math.cos(j * 0.07) * 6) + r.nextFloat(), 
+														-j * gap));
+		return mesh;
+	}
+	
+	
+	/**
+	 * Builds the cells BSPs of the former layout.
+	 */
+	static JGL_3DBsp[] buildCells(int side, float gap, float[][] h) {
+		JGL_3DBsp[] cells = new JGL_3DBsp[(side - 1) * (side - 1)];
+		for (int i=0; i<side-1; i++)
+			for (int j=0; j<side-1; j++) {
+				JGL_3DBsp bsp = new JGL_3DBsp();
+				bsp.addFace(new JGL_3DTriangle(	new JGL_3DVector(i*gap, h[i][j+1], -(j+1)*gap), 
+												new JGL_3DVector(i*gap, h[i][j], -j*gap), 
+												new JGL_3DVector((i+1)*gap, h[i+1][j], -j*gap)));
+				bsp.addFace(new JGL_3DTriangle(	new JGL_3DVector((i+1)*gap, h[i+1][j], -j*gap), 
+												new JGL_3DVector((i+1)*gap, h[i+1][j+1], -(j+1)*gap), 
+												new JGL_3DVector(i*gap, h[i][j+1], -(j+1)*gap)));
+				cells[(i * (side - 1)) + j] = bsp;
+			}
+		return cells;
+	}
+	
+	
+	static long usedHeap() {
+		Runtime rt = Runtime.getRuntime();
+		for (int i=0; i<4; i++) {
+			System.gc();
+			try { Thread.sleep(50); } catch (InterruptedException e) {}
+		}
+		return rt.totalMemory() - rt.freeMemory();
+	}
+	
+	
+	public static void main(String[] args) {
+		
+		int side = args.length>0 ? Integer.parseInt(args[0]) : 512;
+		int sweeps = args.length>1 ? Integer.parseInt(args[1]) : 200000;
+		float gap = 2f;
+		
+		JGL_3DMesh mesh = buildMesh(side, gap, new Random(3));
+		float[][] h = new float[side][side];
+		for (int i=0; i<mesh.getPoints().size(); i++) {
+			JGL_3DVector v = (JGL_3DVector)mesh.getPoints().get(i);
+			h[(int)Math.abs(v.x / gap)][(int)Math.abs(v.z / gap)] = v.y;
+		}
+		
+		long before = usedHeap();
+		JGL_3DBsp[] cells = buildCells(side, gap, h);
+		long after = usedHeap();
+		System.out.println("Former layout  " + side + "x" + side + " : " + ((after - before) / 1024) + " KB, " + cells.length + " cell BSPs");
+		cells = null;
+		
+		// The map clears the mesh : its points are kept out of the measure
+		Vector points = new Vector(mesh.getPoints());
+		before = usedHeap();
+		CollisionHeightMap map = new CollisionHeightMap("bench", new JGL_3DVector(), side, side, gap, mesh);
+		after = usedHeap();
+		System.out.println(	"Compact layout " + side + "x" + side + " : " + ((after - before) / 1024) + " KB, " + 
+							(map.getMemoryUsage() / 1024) + " KB of heights and holes");
+		
+		points.clear();
+		map.setInGame(true);
+		Random r = new Random(11);
+		Shape_sphere sphere = new Shape_sphere(new JGL_3DVector(), 1f);
+		Trace trace = new Trace();
+		float size = (side - 1) * gap;
+		int hits = 0;
+		long t = 0;
+		for (int pass=0; pass<2; pass++) {
+			hits = 0;
+			t = System.nanoTime();
+			for (int i=0; i<sweeps; i++) {
+				JGL_3DVector s = new JGL_3DVector(r.nextFloat() * size, 20f, -r.nextFloat() * size);
+				JGL_3DVector e = new JGL_3DVector(s.x + r.nextFloat() * 4f - 2f, -10f, s.z + r.nextFloat() * 4f - 2f);
+				sphere.setPosition(s);
+				trace.reset(sphere, s, e);
+				if (map.collideSimple(trace, true))
+					hits++;
+			}
+			t = System.nanoTime() - t;
+		}
+		System.out.println("Sweeps : " + (t / sweeps) + " ns/sweep, " + hits + "/" + sweeps + " hits");
+		
+		// Long sightlines across the whole terrain
+		int lines = Math.max(1, sweeps / 100);
+		for (int pass=0; pass<2; pass++) {
+			hits = 0;
+			t = System.nanoTime();
+			for (int i=0; i<lines; i++) {
+				JGL_3DVector s = new JGL_3DVector(r.nextFloat() * size * 0.1f, 12f + r.nextFloat() * 8f, -r.nextFloat() * size * 0.1f);
+				JGL_3DVector e = new JGL_3DVector(size - r.nextFloat() * size * 0.1f, 12f + r.nextFloat() * 8f, -size + r.nextFloat() * size * 0.1f);
+				if (map.intersect(s, e))
+					hits++;
+			}
+			t = System.nanoTime() - t;
+		}
+		System.out.println("Sightlines : " + (t / lines) + " ns/line, " + hits + "/" + lines + " blocked");
+	}
+	
+}
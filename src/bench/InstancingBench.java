@@ -0,0 +1,79 @@
+//	Copyright 2009 Nicolas Devere
+//
+//	This file is part of FLESH SNATCHER.
+//
+//	FLESH SNATCHER is free software; you can redistribute it and/or modify
+//	it under the terms of the GNU General Public License as published by
+//	the Free Software Foundation; either version 2 of the License, or
+//	(at your option) any later version.
+//
+//	FLESH SNATCHER is distributed in the hope that it will be useful,
+//	but WITHOUT ANY WARRANTY; without even the implied warranty of
+//	MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+//	GNU General Public License for more details.
+//
+//	You should have received a copy of the GNU General Public License
+//	along with FLESH SNATCHER; if not, write to the Free Software
+//	Foundation, Inc., 51 Franklin St, Fifth Floor, Boston, MA  02110-1301  USA
+
+package bench;
+
+import java.util.StringTokenizer;
+
+import main.Headless;
+import script.Script;
+import world.World;
+
+
+/**
+ * Heap used by a level with its static models copied, then instanced 
+ * with shared geometry. The level is loaded without display, so the 
+ * sizes are the ones of the Java side buffers.<br>
+ * Usage : <code>java bench.InstancingBench level</code><br>
+ * A level with many factories and explosible objects shows the difference.
+ * 
+ * @author Nicolas Devere
+ *
+ */
+public final class InstancingBench {
+	
+	
+	static void free() {
+		if (World.map!=null) {
+			World.map.clear();
+			World.map = null;
+		}
+		Script.execute(new StringTokenizer("freeall"));
+	}
+	
+	
+	static void run(String level, boolean shared) throws Exception {
+		
+		free();
+		Script.SHARED_INSTANCES = shared;
+		Script.resetInstanceStats();
+		long before = HeightMapBench.usedHeap();
+		long t = System.nanoTime();
+		Headless.load(level);
+		t = System.nanoTime() - t;
+		long after = HeightMapBench.usedHeap();
+		
+		System.out.println(	(shared ? "Shared geometry : " : "Copies          : ") + 
+							((after - before) / 1024) + " KB, loaded in " + (t / 1000000) + " ms, " + 
+							World.map.characters.size() + " characters, " + World.map.objects.size() + " objects, " + 
+							Script.getInstanceReport());
+	}
+	
+	
+	public static void main(String[] args) throws Exception {
+		
+		if (args.length<1) {
+			System.out.println("Usage : java bench.InstancingBench level");
+			return;
+		}
+		run(args[0], false);
+		run(args[0], true);
+		free();
+	}
+	
+}
@@ -0,0 +1,128 @@
+//	Copyright 2009 Nicolas Devere
+//
+//	This file is part of FLESH SNATCHER.
+//
+//	FLESH SNATCHER is free software; you can redistribute it and/or modify
+//	it under the terms of the GNU General Public License as published by
+//	the Free Software Foundation; either version 2 of the License, or
+//	(at your option) any later version.
+//
+//	FLESH SNATCHER is distributed in the hope that it will be useful,
+//	but WITHOUT ANY WARRANTY; without even the implied warranty of
+//	MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+//	GNU General Public License for more details.
+//
+//	You should have received a copy of the GNU General Public License
+//	along with FLESH SNATCHER; if not, write to the Free Software
+//	Foundation, Inc., 51 Franklin St, Fifth Floor, Boston, MA  02110-1301  USA
+
+package bench;
+
+import java.util.Random;
+import java.util.Vector;
+
+import ai.PathGraph;
+import ai.PathSearch;
+import jglcore.JGL_3DVector;
+
+
+/**
+ * Benchmark of the path graph searches, on jittered grid graphs 
+ * of about 1000 and 10000 nodes.<br>
+ * Usage : <code>java bench.PathGraphBench [queries]</code>
+ * 
+ * @author Nicolas Devere
+ *
+ */
+public final class PathGraphBench {
+	
+	
+	/**
+	 * Builds a jittered grid graph of side x side nodes, each node being linked 
+	 * to its 8 neighbours, with some links removed.
+	 */
+	static PathGraph buildGraph(int side, Random r) {
+		
+		int n = side * side;
+		JGL_3DVector[] points = new JGL_3DVector[n];
+		for (int x=0; x<side; x++)
+			for (int z=0; z<side; z++)
+				points[x * side + z] = new JGL_3DVector(	x * 10f + r.nextFloat() * 4f, 
+															r.nextFloat() * 2f, 
+															z * 10f + r.nextFloat() * 4f);
+		
+		int[][] links = new int[n][];
+		int[] tmp = new int[8];
+		for (int x=0; x<side; x++)
+			for (int z=0; z<side; z++) {
+				int nb = 0;
+				for (int dx=-1; dx<=1; dx++)
+					for (int dz=-1; dz<=1; dz++) {
+						int nx = x + dx, nz = z + dz;
+						if ((dx!=0 || dz!=0) && nx>=0 && nz>=0 && nx<side && nz<side && r.nextFloat()>0.15f)
+							tmp[nb++] = nx * side + nz;
+					}
+				links[x * side + z] = new int[nb];
+				System.arraycopy(tmp, 0, links[x * side + z], 0, nb);
+			}
+		
+		return new PathGraph("bench" + n, points, links);
+	}
+	
+	
+	static void run(PathGraph graph, int nbNodes, int queries, boolean heuristic) {
+		
+		Random r = new Random(7);
+		Vector path = new Vector();
+		PathSearch s = new PathSearch();
+		graph.setHeuristic(heuristic);
+		
+		// Warm up
+		for (int i=0; i<queries; i++)
+			graph.searchPath(r.nextInt(nbNodes), r.nextInt(nbNodes), path, s);
+		
+		r = new Random(11);
+		int found = 0;
+		long nodes = 0;
+		long t = System.nanoTime();
+		for (int i=0; i<queries; i++) {
+			if (graph.searchPath(r.nextInt(nbNodes), r.nextInt(nbNodes), path, s)!=Float.POSITIVE_INFINITY)
+				found++;
+			nodes += path.size();
+		}
+		t = System.nanoTime() - t;
+		
+		String mode = graph.hasNextHops() ? "Next-hop " : (heuristic ? "A*       " : "Dijkstra ");
+		System.out.println(	mode + nbNodes + " nodes : " + 
+							(t / queries) + " ns/query, " + found + "/" + queries + " found, " + 
+							"mean path " + (nodes / Math.max(1, found)) + " nodes");
+	}
+	
+	
+	public static void main(String[] args) {
+		
+		int queries = args.length>0 ? Integer.parseInt(args[0]) : 2000;
+		Random r = new Random(3);
+		
+		int[] sides = {32, 100};
+		for (int i=0; i<sides.length; i++) {
+			long t = System.nanoTime();
+			PathGraph graph = buildGraph(sides[i], r);
+			t = System.nanoTime() - t;
+			int n = sides[i] * sides[i];
+			System.out.println("Graph " + n + " nodes built in " + (t / 1000000) + " ms");
+			run(graph, n, queries, true);
+			run(graph, n, queries, false);
+			
+			t = System.nanoTime();
+			if (graph.computeNextHops()) {
+				t = System.nanoTime() - t;
+				System.out.println("Next-hop table of " + n + " nodes built in " + (t / 1000000) + " ms");
+				run(graph, n, queries, true);
+			}
+			else
+				System.out.println("Next-hop table of " + n + " nodes over the memory threshold");
+		}
+	}
+	
+}
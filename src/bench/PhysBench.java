@@ -0,0 +1,393 @@
+//	Copyright 2009 Nicolas Devere
+//
+//	This file is part of FLESH SNATCHER.
+//
+//	FLESH SNATCHER is free software; you can redistribute it and/or modify
+//	it under the terms of the GNU General Public License as published by
+//	the Free Software Foundation; either version 2 of the License, or
+//	(at your option) any later version.
+//
+//	FLESH SNATCHER is distributed in the hope that it will be useful,
+//	but WITHOUT ANY WARRANTY; without even the implied warranty of
+//	MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+//	GNU General Public License for more details.
+//
+//	You should have received a copy of the GNU General Public License
+//	along with FLESH SNATCHER; if not, write to the Free Software
+//	Foundation, Inc., 51 Franklin St, Fifth Floor, Boston, MA  02110-1301  USA
+
+package bench;
+
+import java.lang.management.ManagementFactory;
+import java.util.Random;
+import java.util.Vector;
+
+import input.Reader_Milkshape;
+import jglcore.JGL_3DMesh;
+import jglcore.JGL_3DTriangle;
+import jglcore.JGL_3DVector;
+import phys.Bsp_tree;
+import phys.Motion_slide;
+import phys.Mover;
+import phys.Shape;
+import phys.Shape_aabb;
+import phys.Shape_cylinder;
+import phys.Shape_sphere;
+import phys.Tracable;
+import phys.Trace;
+import phys.TraceContext;
+import phys.Tracer;
+import phys.Util4Phys;
+import world.CollisionBSP;
+import world.CollisionHeightMap;
+import world.CollisionNode;
+
+
+/**
+ * Speed and allocation rate of the collision sweeps, per collision node type, 
+ * shape type and trace precision.<br>
+ * The workloads are recorded once from a fixed seed, then replayed : player walk 
+ * cycles slid with <code>Motion_slide</code>, shoot rays and AI sightlines. 
+ * A walk cycle starts on a floor position sampled in the level, and each move 
+ * starts where the previous one ended. 
+ * Each workload gets warmup iterations, then measured iterations reporting 
+ * the average ns/op, the allocated bytes/op and the allocation rate.<br>
+ * The BSP areas ignore the trace precision, the height-map cells use it.<br>
+ * Usage : <code>java bench.PhysBench [file.ms3d.txt ...] [-hm width depth gap file.ms3d.txt]</code><br>
+ * The files are the brushes of BSP areas, the <code>-hm</code> file is the mesh of a height-map. 
+ * Without file, a synthetic level made of boxes and a synthetic height-map are used.
+ * 
+ * @author Nicolas Devere
+ *
+ */
+public final class PhysBench {
+	
+	/** Operations recorded per workload */
+	public static int OPS = 4096;
+	
+	/** Moves of a walk cycle, from a sampled floor position */
+	public static int CYCLE = 64;
+	
+	/** Warmup iterations over the recorded operations */
+	public static int WARMUP = 5;
+	
+	/** Measured iterations over the recorded operations */
+	public static int ITERATIONS = 10;
+	
+	private static final String[] MODES = {"VOLUME", "FACE"};
+	
+	
+	/**
+	 * Mover replaying the recorded moves of a walk cycle.
+	 */
+	private static final class ReplayMover implements Mover {
+		
+		JGL_3DVector move = new JGL_3DVector();
+		
+		public void setSpeed(float arg) {}
+		public float getSpeed() { return 1f; }
+		public void setVelocity(JGL_3DVector arg) {}
+		public JGL_3DVector getVelocity() { return move; }
+		public JGL_3DVector getMove() { return move; }
+		public void addMover(Mover arg) {}
+		public void update() {}
+		public boolean impactReaction(Trace trace, Tracable tracable) { return false; }
+		public boolean jump() { return false; }
+		public boolean isJumping() { return false; }
+		public Object clone() { return new ReplayMover(); }
+	}
+	
+	
+	/**
+	 * Sweeps against one collision node, with the context of the bench thread.
+	 */
+	private static final class NodeTracable implements Tracable {
+		
+		private CollisionNode node;
+		private TraceContext ctx;
+		
+		NodeTracable(CollisionNode _node) {
+			node = _node;
+			ctx = TraceContext.get();
+		}
+		
+		public boolean trace(Trace trace) {
+			return node.collideSimple(trace, false, ctx);
+		}
+	}
+	
+	
+	/**
+	 * Recorded operations : start and end points, or start points and moves. 
+	 * The moves of a walk cycle have no start point, except the first one.
+	 */
+	private static final class Workload {
+		
+		String name;
+		JGL_3DVector[] from = new JGL_3DVector[OPS];
+		JGL_3DVector[] to = new JGL_3DVector[OPS];
+		
+		Workload(String _name) {
+			name = _name;
+		}
+	}
+	
+	
+	/**
+	 * Returns the bounds of the faces of the meshes : min in [0], max in [1].
+	 */
+	static JGL_3DVector[] bounds(JGL_3DMesh[] meshes) {
+		
+		JGL_3DVector min = new JGL_3DVector(Float.MAX_VALUE, Float.MAX_VALUE, Float.MAX_VALUE);
+		JGL_3DVector max = new JGL_3DVector(-Float.MAX_VALUE, -Float.MAX_VALUE, -Float.MAX_VALUE);
+		for (int i=0; i<meshes.length; i++)
+			for (int j=0; j<meshes[i].getFaces().size(); j++) {
+				JGL_3DTriangle t = (JGL_3DTriangle)meshes[i].getFaces().get(j);
+				include(min, max, t.point1);
+				include(min, max, t.point2);
+				include(min, max, t.point3);
+			}
+		return new JGL_3DVector[] {min, max};
+	}
+	
+	
+	private static void include(JGL_3DVector min, JGL_3DVector max, JGL_3DVector p) {
+		min.x = Math.min(min.x, p.x); min.y = Math.min(min.y, p.y); min.z = Math.min(min.z, p.z);
+		max.x = Math.max(max.x, p.x); max.y = Math.max(max.y, p.y); max.z = Math.max(max.z, p.z);
+	}
+	
+	
+	private static JGL_3DVector random(Random r, JGL_3DVector min, JGL_3DVector max) {
+		return new JGL_3DVector(min.x + r.nextFloat() * (max.x - min.x), 
+								min.y + r.nextFloat() * (max.y - min.y), 
+								min.z + r.nextFloat() * (max.z - min.z));
+	}
+	
+	
+	/**
+	 * Returns a position of the shape standing on a floor of the node : the shape 
+	 * falls from random points out of the solid parts, until one lands on a floor. 
+	 * Returns null if no floor is found.
+	 */
+	static JGL_3DVector floor(Random r, CollisionNode node, Shape shape, JGL_3DVector min, JGL_3DVector max) {
+		
+		TraceContext ctx = TraceContext.get();
+		Trace trace = new Trace();
+		for (int i=0; i<1000; i++) {
+			JGL_3DVector p = random(r, min, max);
+			shape.setPosition(p);
+			trace.reset(shape, p, new JGL_3DVector(p.x, min.y - 1f, p.z));
+			node.collideSimple(trace, false, ctx);
+			if (!trace.dummy && trace.isImpact() && trace.correction.normal.y > Util4Phys.FLOOR_NORMAL)
+				return new JGL_3DVector(p.x + (trace.segment.x * trace.fractionImpact), 
+										p.y + (trace.segment.y * trace.fractionImpact), 
+										p.z + (trace.segment.z * trace.fractionImpact));
+		}
+		return null;
+	}
+	
+	
+	/**
+	 * Records walk cycles of the shape : from a floor position, short moves along 
+	 * a slowly turning heading, with the fall of the gravity. Returns null if the 
+	 * node has no floor.
+	 */
+	static Workload recordWalk(Random r, CollisionNode node, Shape shape, JGL_3DVector min, JGL_3DVector max) {
+		Workload w = new Workload("walk");
+		float heading = 0f;
+		for (int i=0; i<OPS; i++) {
+			if ((i % CYCLE)==0) {
+				heading = r.nextFloat() * 6.2832f;
+				w.from[i] = floor(r, node, shape, min, max);
+				if (w.from[i]==null)
+					return null;
+			}
+			heading += (r.nextFloat() - 0.5f) * 0.2f;
+			w.to[i] = new JGL_3DVector((float)Math.sin(heading) * 0.4f, -0.3f, (float)Math.cos(heading) * 0.4f);
+		}
+		return w;
+	}
+	
+	
+	/**
+	 * Records long segments, from random points to random points.
+	 */
+	static Workload recordSegments(String name, Random r, JGL_3DVector min, JGL_3DVector max, float length) {
+		Workload w = new Workload(name);
+		for (int i=0; i<OPS; i++) {
+			w.from[i] = random(r, min, max);
+			JGL_3DVector d = new JGL_3DVector(r.nextFloat() - 0.5f, (r.nextFloat() - 0.5f) * 0.2f, r.nextFloat() - 0.5f);
+			float n = length / (float)Math.sqrt((d.x * d.x) + (d.y * d.y) + (d.z * d.z));
+			w.to[i] = new JGL_3DVector(w.from[i].x + d.x * n, w.from[i].y + d.y * n, w.from[i].z + d.z * n);
+		}
+		return w;
+	}
+	
+	
+	/**
+	 * Replays a workload once, and returns a checksum of the results.
+	 */
+	static int replay(Workload w, CollisionNode node, Shape shape, Motion_slide motion, ReplayMover mover, Tracable tracable, Trace trace, TraceContext ctx) {
+		int sum = 0;
+		for (int i=0; i<OPS; i++) {
+			if (motion!=null) {
+				if (w.from[i]!=null)
+					shape.setPosition(w.from[i]);
+				mover.move.assign(w.to[i]);
+				if (motion.process(shape, mover, tracable))
+					sum++;
+			}
+			else if (shape!=null) {
+				shape.setPosition(w.from[i]);
+				trace.reset(shape, w.from[i], w.to[i]);
+				if (node.collideSimple(trace, false, ctx))
+					sum++;
+			}
+			else if (node.intersect(w.from[i], w.to[i], ctx))
+				sum++;
+		}
+		return sum;
+	}
+	
+	
+	/**
+	 * Returns the bytes allocated by the current thread, or -1 if the VM can't tell.
+	 */
+	static long allocatedBytes() {
+		try {
+			Object bean = ManagementFactory.getThreadMXBean();
+			if (bean instanceof com.sun.management.ThreadMXBean)
+				return ((com.sun.management.ThreadMXBean)bean).getThreadAllocatedBytes(Thread.currentThread().getId());
+		}
+		catch (UnsupportedOperationException e) {}
+		return -1L;
+	}
+	
+	
+	static void measure(String label, Workload w, CollisionNode node, Shape shape, boolean slide) {
+		
+		TraceContext ctx = TraceContext.get();
+		Motion_slide motion = slide ? new Motion_slide(0.5f) : null;
+		ReplayMover mover = new ReplayMover();
+		Tracable tracable = new NodeTracable(node);
+		Trace trace = new Trace();
+		
+		int sum = 0;
+		for (int i=0; i<WARMUP; i++)
+			sum = replay(w, node, shape, motion, mover, tracable, trace, ctx);
+		
+		long bytes = allocatedBytes();
+		long t = System.nanoTime();
+		for (int i=0; i<ITERATIONS; i++)
+			replay(w, node, shape, motion, mover, tracable, trace, ctx);
+		t = System.nanoTime() - t;
+		long ops = (long)OPS * ITERATIONS;
+		String alloc = "n/a";
+		if (bytes>=0L) {
+			bytes = allocatedBytes() - bytes;
+			alloc = (bytes / ops) + " B/op, " + ((bytes * 1000L) / Math.max(1L, t)) + " MB/s";
+		}
+		System.out.println("  " + label + " : " + (t / ops) + " ns/op, " + alloc + ", " + sum + "/" + OPS + " hits");
+	}
+	
+	
+	static void run(String name, CollisionNode node, JGL_3DVector min, JGL_3DVector max) {
+		
+		node.setInGame(true);
+		Random r = new Random(7);
+		float size = Math.max(max.x - min.x, max.z - min.z);
+		Workload shoot = recordSegments("shoot", r, min, max, size * 0.5f);
+		Workload sight = recordSegments("sightline", r, min, max, size * 0.25f);
+		
+		Shape[] shapes = {	new Shape_aabb(new JGL_3DVector(), new JGL_3DVector(-0.5f, -1.8f, -0.5f), new JGL_3DVector(0.5f, 0.2f, 0.5f)), 
+							new Shape_sphere(new JGL_3DVector(), 0.8f), 
+							new Shape_cylinder(new JGL_3DVector(), -1.8f, 0.2f, 0.5f) };
+		String[] shapeNames = {"aabb", "sphere", "cylinder"};
+		Shape ray = new Shape_sphere(new JGL_3DVector(), 0.05f);
+		
+		// Same floor positions and headings for each shape
+		Workload[] walks = new Workload[shapes.length];
+		for (int i=0; i<shapes.length; i++)
+			walks[i] = recordWalk(new Random(7), node, shapes[i], min, max);
+		
+		System.out.println(name);
+		for (short mode=0; mode<MODES.length; mode++) {
+			Tracer.setTracePrecision(mode==0 ? Tracer.VOLUME_PRECISION : Tracer.FACE_PRECISION);
+			Trace.setTracePrecision(mode==0 ? Trace.VOLUME_PRECISION : Trace.FACE_PRECISION);
+			String m = MODES[mode];
+			for (int i=0; i<shapes.length; i++) {
+				if (walks[i]!=null)
+					measure(m + " walk " + shapeNames[i], walks[i], node, shapes[i], true);
+				else
+					System.out.println("  " + m + " walk " + shapeNames[i] + " : no floor found");
+			}
+			measure(m + " " + shoot.name + " ray", shoot, node, ray, false);
+			measure(m + " " + sight.name, sight, node, null, false);
+		}
+		Tracer.setTracePrecision(Tracer.VOLUME_PRECISION);
+		Trace.setTracePrecision(Trace.VOLUME_PRECISION);
+	}
+	
+	
+	static void runBsp(String name, JGL_3DMesh[] meshes) {
+		JGL_3DVector[] b = bounds(meshes);
+		
+		// One view shape around the whole level
+		Vector views = new Vector();
+		views.add(new Shape_aabb(	new JGL_3DVector(), 
+									new JGL_3DVector(b[0].x - 1f, b[0].y - 1f, b[0].z - 1f), 
+									new JGL_3DVector(b[1].x + 1f, b[1].y + 1f, b[1].z + 1f)));
+		CollisionNode node = new CollisionBSP(name, new Bsp_tree(meshes), views);
+		run(name + " : BSP of " + meshes.length + " brushes", node, b[0], b[1]);
+	}
+	
+	
+	static void runHeightMap(String name, int width, int depth, float gap, JGL_3DMesh mesh) {
+		
+		// Height range of the points, the grid gives the others
+		float minY = Float.MAX_VALUE;
+		float maxY = -Float.MAX_VALUE;
+		for (int i=0; i<mesh.getPoints().size(); i++) {
+			float y = ((JGL_3DVector)mesh.getPoints().get(i)).y;
+			minY = Math.min(minY, y);
+			maxY = Math.max(maxY, y);
+		}
+		CollisionHeightMap map = new CollisionHeightMap(name, new JGL_3DVector(), width, depth, gap, mesh);
+		run(name + " : height map " + width + "x" + depth, map, 
+			new JGL_3DVector(0f, minY - 1f, -(depth - 1) * gap), new JGL_3DVector((width - 1) * gap, maxY + 4f, 0f));
+	}
+	
+	
+	public static void main(String[] args) throws Exception {
+		
+		boolean bsp = false;
+		boolean heightMap = false;
+		for (int i=0; i<args.length; i++) {
+			if (args[i].equals("-hm") && i + 4 < args.length) {
+				int width = Integer.parseInt(args[++i]);
+				int depth = Integer.parseInt(args[++i]);
+				float gap = Float.parseFloat(args[++i]);
+				String file = args[++i];
+				runHeightMap(file, width, depth, gap, new Reader_Milkshape(file).getData().mesh);
+				heightMap = true;
+			}
+			else {
+				Vector v = new Reader_Milkshape(args[i]).getData().subMeshes;
+				JGL_3DMesh[] meshes = new JGL_3DMesh[v.size()];
+				v.toArray(meshes);
+				runBsp(args[i], meshes);
+				bsp = true;
+			}
+		}
+		
+		if (!bsp)
+			runBsp("Level of 64 rooms", BspBuildBench.buildLevel(64, new Random(3)));
+		
+		if (!heightMap) {
+			int side = 256;
+			float gap = 2f;
+			runHeightMap("Synthetic", side, side, gap, HeightMapBench.buildMesh(side, gap, new Random(3)));
+		}
+	}
+	
+}
@@ -0,0 +1,175 @@
+//	Copyright 2009 Nicolas Devere
+//
+//	This file is part of FLESH SNATCHER.
+//
+//	FLESH SNATCHER is free software; you can redistribute it and/or modify
+//	it under the terms of the GNU General Public License as published by
+//	the Free Software Foundation; either version 2 of the License, or
+//	(at your option) any later version.
+//
+//	FLESH SNATCHER is distributed in the hope that it will be useful,
+//	but WITHOUT ANY WARRANTY; without even the implied warranty of
+//	MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+//	GNU General Public License for more details.
+//
+//	You should have received a copy of the GNU General Public License
+//	along with FLESH SNATCHER; if not, write to the Free Software
+//	Foundation, Inc., 51 Franklin St, Fifth Floor, Boston, MA  02110-1301  USA
+
+package bench;
+
+import java.util.Random;
+
+import ai.PathGraph;
+import ai.ZombieAIpath;
+import entity.Blood;
+import entity.Entity;
+import entity.Explosion;
+import entity.Factory;
+import entity.PlayerEntity;
+import entity.Zombie01;
+import jglcore.JGL_3DMesh;
+import jglcore.JGL_3DVector;
+import jglcore.JGL_Time;
+import main.Player;
+import phys.Motion_NoCollision;
+import phys.Motion_slide;
+import phys.Mover_none;
+import phys.Shape_aabb;
+import struct.Explode;
+import world.CollisionHeightMap;
+import world.Map;
+import world.World;
+
+import com.jme.scene.Node;
+
+
+/**
+ * Frame time of the map update against the number of zombies and of threads. 
+ * The zombies are spawned by factories on a flat height-map, and chase the 
+ * player with the path AI.<br>
+ * Each run starts from the same situation, and prints a checksum of the final 
+ * positions : the two-phase runs must give the same one for any number of threads.<br>
+ * Usage : <code>java bench.ZombieBench [frames]</code>
+ * 
+ * @author Nicolas Devere
+ *
+ */
+public final class ZombieBench {
+	
+	static final int SIDE = 16;
+	static final float GAP = 10f;
+	static final int WARMUP_FRAMES = 60;
+	
+	
+	static Node node(String id) {
+		Node n = new Node(id);
+		n.attachChild(new Node(id + "_mesh"));
+		return n;
+	}
+	
+	
+	/**
+	 * Builds a map of n factories producing one zombie each, around the player.
+	 */
+	static Map buildMap(int n, PathGraph graph) {
+		
+		World.map = new Map();
+		
+		JGL_3DMesh mesh = new JGL_3DMesh();
+		int side = SIDE + 4;
+		for (int i=0; i<side; i++)
+			for (int j=0; j<side; j++)
+				mesh.getPoints().add(new JGL_3DVector(i * GAP, 0f, -j * GAP));
+		CollisionHeightMap floor = new CollisionHeightMap("floor", new JGL_3DVector(-2f * GAP, 0f, (SIDE + 2) * GAP), side, side, GAP, mesh);
+		floor.setInGame(true);
+		World.map.addCollisionNode(floor);
+		
+		float center = SIDE * GAP * 0.5f;
+		Player.entity = new PlayerEntity(center, 15f, center, 0f, 0f, 0f, node("player"), new Motion_slide(3f));
+		
+		Blood[] bloods = new Blood[3];
+		for (int i=0; i<bloods.length; i++)
+			bloods[i] = new Blood(node("blood"), 500l);
+		Zombie01 proto = new Zombie01(	"zombie", 1, 0f, 0f, 0f, 0f, 0f, 0f, 100f, 0.1f, 0.8f, 
+										node("zombie"), bloods, new ZombieAIpath(null, graph), 
+										new Shape_aabb(new JGL_3DVector(), new JGL_3DVector(-2.5f, -10f, -2.5f), new JGL_3DVector(2.5f, 2f, 2.5f)), 
+										new Mover_none(), new Motion_slide(3f));
+		
+		int k = (int)Math.ceil(Math.sqrt(n));
+		float spacing = (SIDE - 1) * GAP / k;
+		for (int i=0; i<n; i++) {
+			float x = (i % k) * spacing;
+			float z = (i / k) * spacing;
+			Factory f = new Factory("factory" + i, 1, x, 10f, z, 100f, 0f, 0l, 1, node("factory"), node("hit"), 
+									new Explosion("exp", new Explode[0], "dum"), 
+									new Explosion("gen", new Explode[0], "dum"), proto, 
+									new Shape_aabb(new JGL_3DVector(), new JGL_3DVector(-0.5f, -0.5f, -0.5f), new JGL_3DVector(0.5f, 0.5f, 0.5f)), 
+									new Mover_none(), new Motion_NoCollision());
+			World.map.addObject(f);
+		}
+		
+		// The factories spawn their zombie during the first update, with a random 
+		// speed : the runs must start from the same situation
+		World.map.update();
+		for (int i=0; i<World.map.characters.size(); i++)
+			((Entity)World.map.characters.get(i)).setSpeed(0.8f);
+		
+		return World.map;
+	}
+	
+	
+	static void run(String label, int n, PathGraph graph, int frames) {
+		
+		Map map = buildMap(n, graph);
+		for (int i=0; i<WARMUP_FRAMES; i++)
+			map.update();
+		
+		long t = System.nanoTime();
+		for (int i=0; i<frames; i++)
+			map.update();
+		t = System.nanoTime() - t;
+		
+		double sum = 0.0;
+		for (int i=0; i<map.characters.size(); i++) {
+			JGL_3DVector p = ((Entity)map.characters.get(i)).getPosition();
+			sum += (p.x * 3.0) + (p.y * 5.0) + (p.z * 7.0);
+		}
+		
+		System.out.println(	"N=" + n + " " + label + " : " + (t / frames / 1000) + " us/frame, " + 
+							map.characters.size() + " zombies, checksum " + sum);
+	}
+	
+	
+	public static void main(String[] args) {
+		
+		int frames = args.length>0 ? Integer.parseInt(args[0]) : 300;
+		int cores = Runtime.getRuntime().availableProcessors();
+		System.out.println("Processors : " + cores);
+		
+		JGL_Time.reset();
+		PathGraph graph = PathGraphBench.buildGraph(SIDE, new Random(5));
+		
+		int[] sizes = {50, 100, 200, 400};
+		for (int i=0; i<sizes.length; i++) {
+			
+			Map.PARALLEL_UPDATE = false;
+			run("sequential", sizes[i], graph, frames);
+			
+			Map.PARALLEL_UPDATE = true;
+			Map.PARALLEL_MIN_THINKERS = Integer.MAX_VALUE;
+			run("two-phase", sizes[i], graph, frames);
+			
+			Map.PARALLEL_MIN_THINKERS = 1;
+			for (int threads=1; threads<=cores; threads*=2) {
+				Map.PARALLEL_THREADS = threads;
+				run("parallel " + threads + " threads", sizes[i], graph, frames);
+			}
+			if (Integer.bitCount(cores)!=1) {
+				Map.PARALLEL_THREADS = cores;
+				run("parallel " + cores + " threads", sizes[i], graph, frames);
+			}
+		}
+	}
+	
+}
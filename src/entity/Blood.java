@@ -28,6 +28,7 @@ import phys.Shape;
 import phys.Shape_aabb;
 import phys.Trace;
 import world.DecalFactory;
+import world.World;
 
 import com.jme.scene.Node;
 import com.jme.system.DisplaySystem;
@@ -215,7 +216,8 @@ public class Blood implements Entity {
 	public void setDead() {
 		// TODO Auto-generated method stub
 		state = DEAD;
-		DecalFactory.addBloodDecal(getPosition());
+		if (!World.headless)
+			DecalFactory.addBloodDecal(getPosition());
 	}
 
 	@Override
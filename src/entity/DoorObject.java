@@ -43,7 +43,7 @@ import com.jme.util.export.binary.BinaryImporter;
 import com.jme.image.Texture;
 
 
-public class DoorObject implements Entity, Scriptable {
+public class DoorObject implements Entity, Scriptable, Sleepable {
 	
 	String name;
 	private int state;
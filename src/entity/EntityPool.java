@@ -0,0 +1,225 @@
+//	Copyright 2009 Nicolas Devere
+//
+//	This file is part of FLESH SNATCHER.
+//
+//	FLESH SNATCHER is free software; you can redistribute it and/or modify
+//	it under the terms of the GNU General Public License as published by
+//	the Free Software Foundation; either version 2 of the License, or
+//	(at your option) any later version.
+//
+//	FLESH SNATCHER is distributed in the hope that it will be useful,
+//	but WITHOUT ANY WARRANTY; without even the implied warranty of
+//	MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+//	GNU General Public License for more details.
+//
+//	You should have received a copy of the GNU General Public License
+//	along with FLESH SNATCHER; if not, write to the Free Software
+//	Foundation, Inc., 51 Franklin St, Fifth Floor, Boston, MA  02110-1301  USA
+
+package entity;
+
+import java.util.Hashtable;
+import java.util.Vector;
+
+
+/**
+ * Pool of reusable copies of a prototype entity, for the factories.<br>
+ * The copies coming out of the pool are reset, and the dead ones come back 
+ * in it, so a long wave only clones the entities alive at the same time. 
+ * Only the <code>Revivable</code> prototypes are recycled : the pools of the 
+ * other ones have no room, and always give new clones. 
+ * The pools are shared by all the factories of the same prototype, and 
+ * their size can be set for each prototype ID, before the level loading.<br>
+ * The pools are only used by the update thread.
+ * 
+ * @author Nicolas Devere
+ *
+ */
+public final class EntityPool {
+	
+	/** Max number of entities kept by a pool, when no size is set for its prototype */
+	public static int DEFAULT_SIZE = 32;
+	
+	private static Hashtable sizes = new Hashtable();
+	private static Hashtable pools = new Hashtable();
+	private static Vector list = new Vector();
+	
+	private Entity prototype;
+	private Entity[] free;
+	private int nbFree;
+	private int reserved;
+	
+	private int created;
+	private int reused;
+	private int dropped;
+	
+	
+	private EntityPool(Entity proto, int size) {
+		prototype = proto;
+		free = new Entity[(proto instanceof Revivable) ? size : 0];
+		nbFree = 0;
+		reserved = 0;
+		created = reused = dropped = 0;
+	}
+	
+	
+	/**
+	 * Returns the pool of the specified prototype, created if needed. 
+	 * The pool of a prototype which isn't <code>Revivable</code> is empty.
+	 * 
+	 * @param proto : the prototype entity
+	 * @return the pool of the prototype
+	 */
+	public static EntityPool get(Entity proto) {
+		EntityPool pool = (EntityPool)pools.get(proto);
+		if (pool==null) {
+			pool = new EntityPool(proto, getSize(proto.getID()));
+			pools.put(proto, pool);
+			list.add(pool);
+		}
+		return pool;
+	}
+	
+	
+	/**
+	 * Sets the max number of entities kept by the pools of the prototypes 
+	 * with the specified ID. A size of 0 disables the recycling.
+	 * 
+	 * @param id : the prototype ID
+	 * @param size : the pool size
+	 */
+	public static void setSize(String id, int size) {
+		sizes.put(id, new Integer(Math.max(size, 0)));
+	}
+	
+	
+	/**
+	 * Returns the max number of entities kept by the pools of the prototypes 
+	 * with the specified ID.
+	 * 
+	 * @param id : the prototype ID
+	 * @return the pool size
+	 */
+	public static int getSize(String id) {
+		Integer size = (Integer)sizes.get(id);
+		return size!=null ? size.intValue() : DEFAULT_SIZE;
+	}
+	
+	
+	/**
+	 * Releases all the pools. The sizes are kept.
+	 */
+	public static void clear() {
+		pools.clear();
+		list.clear();
+	}
+	
+	
+	/**
+	 * Clones entities in the pool so that the specified number of entities 
+	 * can be obtained without cloning, in the pool size limit. The reserves 
+	 * of the factories sharing the pool are added.
+	 * 
+	 * @param nb : the number of entities to reserve
+	 */
+	public void reserve(int nb) {
+		reserved += nb;
+		int target = Math.min(reserved, free.length);
+		while (nbFree<target) {
+			free[nbFree++] = (Entity)prototype.clone();
+			created++;
+		}
+	}
+	
+	
+	/**
+	 * Returns an entity of the pool, reset, or a new copy of the prototype if the pool is empty.
+	 * 
+	 * @return an active copy of the prototype
+	 */
+	public Entity obtain() {
+		if (nbFree==0) {
+			created++;
+			return (Entity)prototype.clone();
+		}
+		Entity e = free[--nbFree];
+		free[nbFree] = null;
+		e.reset();
+		e.getOrientation().assign(prototype.getOrientation());
+		reused++;
+		return e;
+	}
+	
+	
+	/**
+	 * Gives back an entity out of the game, which must not be used anymore 
+	 * by the caller. It's dropped if the pool is full.
+	 * 
+	 * @param e : the entity to give back
+	 */
+	public void release(Entity e) {
+		if (nbFree<free.length)
+			free[nbFree++] = e;
+		else
+			dropped++;
+	}
+	
+	
+	/**
+	 * Returns the number of entities in the pool.
+	 * 
+	 * @return the number of free entities
+	 */
+	public int getFree() {
+		return nbFree;
+	}
+	
+	
+	/**
+	 * Returns the number of copies of the prototype made by the pool.
+	 * 
+	 * @return the number of clones
+	 */
+	public int getCreated() {
+		return created;
+	}
+	
+	
+	/**
+	 * Returns the number of entities obtained from the pool without cloning.
+	 * 
+	 * @return the number of recycled entities
+	 */
+	public int getReused() {
+		return reused;
+	}
+	
+	
+	/**
+	 * Returns the number of released entities dropped because the pool was full.
+	 * 
+	 * @return the number of dropped entities
+	 */
+	public int getDropped() {
+		return dropped;
+	}
+	
+	
+	/**
+	 * Returns a text report of the pools : size, clones and recycled entities.
+	 * 
+	 * @return the report
+	 */
+	public static String getReport() {
+		StringBuffer sb = new StringBuffer();
+		sb.append("Entity pools : " + list.size() + "\n");
+		for (int i=0; i<list.size(); i++) {
+			EntityPool pool = (EntityPool)list.get(i);
+			sb.append("  " + pool.prototype.getID() + " : size " + pool.free.length + 
+						", free " + pool.nbFree + ", cloned " + pool.created + 
+						", recycled " + pool.reused + ", dropped " + pool.dropped + "\n");
+		}
+		return sb.toString();
+	}
+	
+}
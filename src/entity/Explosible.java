@@ -26,13 +26,13 @@ import phys.Mover;
 import phys.Shape;
 import phys.Shape_sphere;
 import phys.Trace;
+import world.EntityList;
 import world.World;
 
 import com.jme.scene.Node;
 import com.jme.system.DisplaySystem;
 import com.jmex.model.animation.KeyframeController;
 
-import java.util.Vector;
 
 
 /**
@@ -297,21 +297,21 @@ public final class Explosible implements Entity {
 		state = DYING;
 		isHit = false;
 		
-		Vector v = World.map.characters;
+		EntityList v = World.map.getCharacters();
 		Entity e;
 		for (int i=0; i<v.size(); i++) {
-			e = (Entity)v.get(i);
-			if (e!=this && JGL_Math.vector_squareDistance(getPosition(), e.getPosition())<damOffset2) {
+			e = v.get(i);
+			if (e!=null && e!=this && JGL_Math.vector_squareDistance(getPosition(), e.getPosition())<damOffset2) {
 				trace.reset(pPoint, getPosition(), e.getPosition());
 				e.getCShape().trace(trace);
 				e.touchReact(this, trace);
 			}
 		}
 		
-		v = World.map.objects;
+		v = World.map.getObjects();
 		for (int i=0; i<v.size(); i++) {
-			e = (Entity)v.get(i);
-			if (e!=this && JGL_Math.vector_squareDistance(getPosition(), e.getPosition())<damOffset2) {
+			e = v.get(i);
+			if (e!=null && e!=this && JGL_Math.vector_squareDistance(getPosition(), e.getPosition())<damOffset2) {
 				trace.reset(pPoint, getPosition(), e.getPosition());
 				e.getCShape().trace(trace);
 				e.touchReact(this, trace);
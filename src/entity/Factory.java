@@ -26,6 +26,7 @@ import phys.Mover;
 import phys.Shape;
 import phys.Trace;
 import phys.Util4Phys;
+import world.EntityList;
 import world.World;
 
 import com.jme.scene.Node;
@@ -69,7 +70,9 @@ public class Factory implements Entity, Scriptable {
 	private int length;
 	
 	private Entity proto;
+	private EntityPool pool;
 	
+	// Spawned ennemies, until their death
 	private Entity[] ennemies;
 	private int ennemyCursor;
 	private int ennemiesNb;
@@ -119,19 +122,38 @@ public class Factory implements Entity, Scriptable {
 		curNode = objNode;
 		
 		proto = prototype;
+		pool = EntityPool.get(prototype);
+		pool.reserve(ennemyNumber);
 		
 		ennemiesNb = ennemyNumber;
 		ennemies = new Entity[ennemyNumber];
-		for (int i=0; i<ennemyNumber; i++) {
-			ennemies[i] = (Entity)prototype.clone();
-			float s = ennemies[i].getMover().getSpeed();
-			ennemies[i].setSpeed(s - (s * (0.3f - (0.3f*JGL_Math.rnd()) )));
-		}
-		
 		ennemyCursor = 0;
 	}
 	
 	
+	/**
+	 * Takes a new ennemy from the pool, with a random speed around the prototype's one.
+	 */
+	private Entity obtainEnnemy() {
+		Entity e = pool.obtain();
+		float s = proto.getMover().getSpeed();
+		e.setSpeed(s - (s * (0.3f - (0.3f*JGL_Math.rnd()) )));
+		return e;
+	}
+	
+	
+	/**
+	 * Gives back the dead ennemies to the pool.
+	 */
+	private void releaseDeadEnnemies() {
+		for (int i=0; i<ennemyCursor; i++)
+			if (ennemies[i]!=null && ennemies[i].isDead()) {
+				pool.release(ennemies[i]);
+				ennemies[i] = null;
+			}
+	}
+	
+	
 
 	private void setCurrentNode(Node n) {
 		curNode = n;
@@ -177,11 +199,14 @@ public class Factory implements Entity, Scriptable {
 		setCurrentNode(objNode);
 		isHit = false;
 		cmover.setSpeed(sp);
-		for (int i=0; i<ennemiesNb; i++) {
-			ennemies[i] = (Entity)proto.clone();
-			float s = ennemies[i].getMover().getSpeed();
-			ennemies[i].setSpeed(s - (s * (0.3f - (0.3f*JGL_Math.rnd()) )));
+		// The ennemies out of the map come back in the pool
+		for (int i=0; i<ennemies.length; i++) {
+			if (ennemies[i]!=null && (ennemies[i].isDead() || !World.map.getCharacters().contains(ennemies[i])))
+				pool.release(ennemies[i]);
+			ennemies[i] = null;
 		}
+		ennemyCursor = 0;
+		cumulTimeGen = 0l;
 		if (scriptbox!=null)
 			scriptbox.reset();
 	}
@@ -380,12 +405,17 @@ public class Factory implements Entity, Scriptable {
 		// TODO Auto-generated method stub
 		if (isActive()) {
 			cumulTimeGen += (long)(JGL_Time.getTimePerFrame() * 1000f);
+			releaseDeadEnnemies();
 			if ( (cumulTimeGen)>pSpeed) {
+				if (ennemies[ennemyCursor]==null)
+					ennemies[ennemyCursor] = obtainEnnemy();
 				ennemies[ennemyCursor].getPosition().assign(getPosition().x, getPosition().y + ennemies[ennemyCursor].getCShape().getOffset(Util4Phys.up.normal) + Util4Phys.MIN_DISTANCE, getPosition().z);
 				ennemies[ennemyCursor].setTeam(team);
 				boolean spawnOk = true;
-				for (int i=0; i<World.map.characters.size() && spawnOk; i++)
-					spawnOk = !(ennemies[ennemyCursor].getCShape().isIn(((Entity)World.map.characters.get(i)).getCShape()));
+				EntityList characters = World.map.getCharacters();
+				for (int i=0; i<characters.size() && spawnOk; i++)
+					if (characters.get(i)!=null)
+						spawnOk = !(ennemies[ennemyCursor].getCShape().isIn(characters.get(i).getCShape()));
 				if (spawnOk) {
 					World.map.addCharacter(ennemies[ennemyCursor]);
 					genNode.reset(ennemies[ennemyCursor].getPosition().x, ennemies[ennemyCursor].getPosition().y, ennemies[ennemyCursor].getPosition().z);
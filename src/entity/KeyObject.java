@@ -41,7 +41,7 @@ import com.jme.util.export.binary.BinaryImporter;
 import com.jme.image.Texture;
 
 
-public class KeyObject implements Entity, Scriptable {
+public class KeyObject implements Entity, Scriptable, Sleepable {
 	
 	private String name;
 	private int state;
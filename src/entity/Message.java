@@ -93,6 +93,10 @@ public class Message {
 	
 	public static void displayMessage(String message, Texture t1, Texture t2, Texture t3) {
         
+        // Not initialized without display
+        if (text==null)
+        	return;
+        
         text.setText(message);
         displayNode.updateGeometricState( 0.0f, true );
         
@@ -442,6 +442,12 @@ public final class PlayerEntity implements Entity {
 	
 	@Override
 	public void synchronizeNode() {
+		
+	}
+	
+	@Override
+	public void render() {
+		
 		node.setLocalTranslation(getPosition().x, getPosition().y, getPosition().z);
 		
 		//	 X axis Quaternion compute
@@ -458,10 +464,7 @@ public final class PlayerEntity implements Entity {
 		
 		node.setLocalRotation(qy.multLocal(qx.multLocal(qz)));
 		node.updateGeometricState(JGL_Time.getTimePerFrame(), true);
-	}
-	
-	@Override
-	public void render() {
+		
 		DisplaySystem.getDisplaySystem().getRenderer().draw(node);
 	}
 	
@@ -19,7 +19,6 @@
 package entity;
 
 import java.util.Vector;
-import java.util.StringTokenizer;
 
 import com.jme.scene.Node;
 
@@ -32,7 +31,8 @@ import phys.Shape;
 import phys.Trace;
 import main.Player;
 import world.World;
-import script.Script;
+import script.Command;
+import script.ScriptCompiler;
 
 
 /**
@@ -56,6 +56,7 @@ public final class ScriptBox implements Entity, Scriptable {
 	private boolean isCheckpoint;
 	
 	private Vector scr;
+	private Command[] commands;
 	
 	private ScriptBox scriptbox;
 	
@@ -75,6 +76,7 @@ public final class ScriptBox implements Entity, Scriptable {
 		cmover = new Mover_none();
 		cmotion = new Motion_NoCollision();
 		scr = scripts;
+		commands = ScriptCompiler.compile(scripts);
 		
 		team = -4;
 		life = 1f;
@@ -266,8 +268,8 @@ public final class ScriptBox implements Entity, Scriptable {
 	 * Scripts execution
 	 */
 	public void executeScripts() {
-		for (int i=0; i<scr.size(); i++)
-			Script.execute(new StringTokenizer((String)scr.get(i)));
+		for (int i=0; i<commands.length; i++)
+			commands[i].execute();
 		if (scriptbox!=null)
 			scriptbox.executeScripts();
 	}
@@ -32,7 +32,7 @@ import com.jme.math.Quaternion;
 import com.jme.scene.Node;
 import com.jme.system.DisplaySystem;
 
-public final class StaticObject implements Entity {
+public final class StaticObject implements Entity, Sleepable {
 	
 	private String name;
 	private Mover cmover;
@@ -214,22 +214,7 @@ public final class StaticObject implements Entity {
 	@Override
 	public void synchronizeNode() {
 		// TODO Auto-generated method stub
-		objNode.setLocalTranslation(getPosition().x, getPosition().y, getPosition().z);
-		
-		//	 X axis Quaternion compute
-		float angle = angles.x * 0.5f;
-		qx.set(JGL_Math.sin(angle), 0f, 0f, JGL_Math.cos(angle));
-		
-		//	 Y axis Quaternion compute
-		angle = angles.y * 0.5f;
-		qy.set(0f, -JGL_Math.sin(angle), 0f, JGL_Math.cos(angle));
 		
-		//	 Z axis Quaternion compute
-		angle = angles.z * 0.5f;
-		qz.set(0f, 0f, JGL_Math.sin(angle), JGL_Math.cos(angle));
-		
-		objNode.setLocalRotation(qy.multLocal(qx.multLocal(qz)));
-		objNode.updateGeometricState(JGL_Time.getTimePerFrame(), true);
 	}
 
 	@Override
@@ -246,6 +231,24 @@ public final class StaticObject implements Entity {
 	
 	@Override
 	public void render() {
+		
+		objNode.setLocalTranslation(getPosition().x, getPosition().y, getPosition().z);
+		
+		//	 X axis Quaternion compute
+		float angle = angles.x * 0.5f;
+		qx.set(JGL_Math.sin(angle), 0f, 0f, JGL_Math.cos(angle));
+		
+		//	 Y axis Quaternion compute
+		angle = angles.y * 0.5f;
+		qy.set(0f, -JGL_Math.sin(angle), 0f, JGL_Math.cos(angle));
+		
+		//	 Z axis Quaternion compute
+		angle = angles.z * 0.5f;
+		qz.set(0f, 0f, JGL_Math.sin(angle), JGL_Math.cos(angle));
+		
+		objNode.setLocalRotation(qy.multLocal(qx.multLocal(qz)));
+		objNode.updateGeometricState(JGL_Time.getTimePerFrame(), true);
+		
 		DisplaySystem.getDisplaySystem().getRenderer().draw(objNode);
 	}
 	
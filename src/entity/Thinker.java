@@ -0,0 +1,50 @@
+//	Copyright 2009 Nicolas Devere
+//
+//	This file is part of FLESH SNATCHER.
+//
+//	FLESH SNATCHER is free software; you can redistribute it and/or modify
+//	it under the terms of the GNU General Public License as published by
+//	the Free Software Foundation; either version 2 of the License, or
+//	(at your option) any later version.
+//
+//	FLESH SNATCHER is distributed in the hope that it will be useful,
+//	but WITHOUT ANY WARRANTY; without even the implied warranty of
+//	MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+//	GNU General Public License for more details.
+//
+//	You should have received a copy of the GNU General Public License
+//	along with FLESH SNATCHER; if not, write to the Free Software
+//	Foundation, Inc., 51 Franklin St, Fifth Floor, Boston, MA  02110-1301  USA
+
+package entity;
+
+/**
+ * Interface of the entities whose update starts with a think step : the AI 
+ * and the mover update, which only read the map and the other entities, 
+ * and only write the entity own orientation, moves and mover.<br>
+ * The map may run the think steps of several entities at the same time, 
+ * before processing their collisions in the list order. The working objects 
+ * of the map traces and path searches are those of the thread 
+ * (<code>TraceContext</code>, <code>PathSearch</code>) : a height-map trace 
+ * rebuilds its cell in the thread context, never in the map.
+ * 
+ * @author Nicolas Devere
+ *
+ */
+public interface Thinker {
+	
+	/**
+	 * Returns if the update of this frame is only the think step.
+	 * 
+	 * @return if the think step can replace the update
+	 */
+	public boolean canThink();
+	
+	
+	/**
+	 * Runs the think step. It must not add or remove entities, 
+	 * play sounds, or move any entity.
+	 */
+	public void think();
+	
+}
@@ -39,7 +39,7 @@ import com.jme.system.DisplaySystem;
  * @author Nicolas Devere
  *
  */
-public final class Turret01 implements Entity, Scriptable {
+public final class Turret01 implements Entity, Scriptable, Sleepable {
 	
 	private String name;
 	private int state;
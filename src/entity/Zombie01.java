@@ -37,7 +37,7 @@ import com.jme.scene.Node;
 import com.jme.system.DisplaySystem;
 
 
-public final class Zombie01 implements Entity, Scriptable {
+public final class Zombie01 implements Entity, Scriptable, Thinker, Revivable {
 	
 	private String name;
 	private int state;
@@ -51,6 +51,9 @@ public final class Zombie01 implements Entity, Scriptable {
 	private static long DYING_PERIOD = 2000l;
 	private long dyingCumulTime;
 	
+	// Mover of the dying zombies, it has no state
+	private static Mover noMover = new Mover_none();
+	
 	private Node node;
 	private KeyframeController kc;
 	private float kspeed;
@@ -65,6 +68,7 @@ public final class Zombie01 implements Entity, Scriptable {
 	
 	private boolean collidable;
 	private Mover cmover;
+	private Mover_gravity walkMover;
 	private Motion cmotion;
 	private Shape cshape;
 	
@@ -77,6 +81,7 @@ public final class Zombie01 implements Entity, Scriptable {
 	private float diag;
 	
 	private ZombieAI ia;
+	private ZombieAI brain;
 	
 	private ScriptBox scriptbox;
 	
@@ -115,7 +120,8 @@ public final class Zombie01 implements Entity, Scriptable {
         
 		collidable = true;
 		//cmover = mover;
-		cmover = new Mover_gravity(new JGL_3DVector(0f, 0f, -1f));
+		walkMover = new Mover_gravity(new JGL_3DVector(0f, 0f, -1f));
+		cmover = walkMover;
 		cmover.setSpeed(sp);
 		cshape = shape;
 		cshape.setPosition(new JGL_3DVector(posX, posY, posZ));
@@ -128,18 +134,29 @@ public final class Zombie01 implements Entity, Scriptable {
 		asides = 0;
 		diag = JGL_Math.cos(45f);
 		
-		ia = protoAI.clone(this);
+		ia = brain = protoAI.clone(this);
 		
 		scriptbox = null;
 	}
 	
 	
+	/**
+	 * Brings the zombie back alive, even after its death : the walk mover 
+	 * and the AI are restored in their starting state.
+	 */
 	public void reset() {
 		state = ACTIVE;
 		life = lifeMax;
 		bloodIndex = 0;
 		collidable = true;
+		dyingCumulTime = 0l;
+		setAnimationFrames(0, nbFrames - 1);
+		walkMover.reset();
+		cmover = walkMover;
 		cmover.setSpeed(sp);
+		ia = brain;
+		if (ia!=null)
+			ia.reset();
 		setForwardMove(0);
 		setSideMove(0);
 		if (scriptbox!=null)
@@ -273,7 +290,7 @@ public final class Zombie01 implements Entity, Scriptable {
 			setCollidable(false);
 			setAnimationFrames(nbFrames - 1, nbFrames - 1);
 			dyingCumulTime = 0l;
-			cmover = new Mover_none();
+			cmover = noMover;
 			setForwardMove(0);
 			setSideMove(0);
 			ia = null;
@@ -314,7 +331,7 @@ public final class Zombie01 implements Entity, Scriptable {
 	 * @param ZombieAI : the AI object to affiliate to this zombie
 	 */
 	public void linkAI(ZombieAI zombieAI) {
-		ia = zombieAI;
+		ia = brain = zombieAI;
 	}
 
 	@Override
@@ -470,11 +487,8 @@ public final class Zombie01 implements Entity, Scriptable {
 	public void update() {
 		// TODO Auto-generated method stub
 		
-		if (isActive()) {
-			ia.update();
-			JGL_Math.vector_fastYXrotate(way, 0f, angles.y, cmover.getVelocity());
-			cmover.update();
-		}
+		if (isActive())
+			think();
 		
 		else if (isDying()) {
 			dyingCumulTime += JGL_Time.getTimePerFrame() * 1000f;
@@ -483,6 +497,16 @@ public final class Zombie01 implements Entity, Scriptable {
 		}
 	}
 	
+	public boolean canThink() {
+		return isActive();
+	}
+	
+	public void think() {
+		ia.update();
+		JGL_Math.vector_fastYXrotate(way, 0f, angles.y, cmover.getVelocity());
+		cmover.update();
+	}
+	
 	@Override
 	public void render() {
 		if (kc!=null)
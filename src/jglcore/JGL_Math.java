@@ -41,10 +41,13 @@ public final class JGL_Math {
 	
 	private static float sine[] = new float[3601];
 	private static float cosine[] = new float[3601];
-	private static JGL_3DVector vect1 = new JGL_3DVector();
-	private static JGL_3DVector vect2 = new JGL_3DVector();
-	private static JGL_3DVector vect3 = new JGL_3DVector();
-	private static JGL_3DVector vect4 = new JGL_3DVector();
+	
+	// Split points of triangle_split, one set for each thread
+	private static ThreadLocal splitPoints = new ThreadLocal() {
+		protected Object initialValue() {
+			return new JGL_3DVector[] { new JGL_3DVector(), new JGL_3DVector(), new JGL_3DVector() };
+		}
+	};
 	
 	private static int nbRand = 253;
 	private static float[] rand = new float[nbRand];
@@ -374,9 +377,9 @@ public final class JGL_Math {
 	 */
 	public static final boolean plane_lineIntersection(JGL_3DPlane plane, JGL_3DVector p1, JGL_3DVector p2, JGL_3DVector result) {
 		
-		vect4.x = p2.x - p1.x;
-		vect4.y = p2.y - p1.y;
-		vect4.z = p2.z - p1.z;
+		float sx = p2.x - p1.x;
+		float sy = p2.y - p1.y;
+		float sz = p2.z - p1.z;
 		
 		float d1 = plane.distance(p1);
 		float d2 = plane.distance(p2);
@@ -387,9 +390,9 @@ public final class JGL_Math {
 		
 		float frac = d1 / dDiff;
 		
-		result.x = p1.x + (vect4.x * frac);
-		result.y = p1.y + (vect4.y * frac);
-		result.z = p1.z + (vect4.z * frac);
+		result.x = p1.x + (sx * frac);
+		result.y = p1.y + (sy * frac);
+		result.z = p1.z + (sz * frac);
 		return true;
 	}
 	
@@ -409,9 +412,9 @@ public final class JGL_Math {
 	 */
 	public static final float plane_segmentIntersection(JGL_3DPlane plane, JGL_3DVector p1, JGL_3DVector p2, float a, float b, JGL_3DVector result) {
 		
-		vect4.x = p2.x - p1.x;
-		vect4.y = p2.y - p1.y;
-		vect4.z = p2.z - p1.z;
+		float sx = p2.x - p1.x;
+		float sy = p2.y - p1.y;
+		float sz = p2.z - p1.z;
 		
 		float d1 = plane.distance(p1);
 		float d2 = plane.distance(p2);
@@ -426,9 +429,9 @@ public final class JGL_Math {
 		float frac = d1 / dDiff;
 		
 		if(frac>=a && frac<=b) {
-			result.x = p1.x + (vect4.x * frac);
-			result.y = p1.y + (vect4.y * frac);
-			result.z = p1.z + (vect4.z * frac);
+			result.x = p1.x + (sx * frac);
+			result.y = p1.y + (sy * frac);
+			result.z = p1.z + (sz * frac);
 			return frac;
 		}
 		
@@ -461,16 +464,18 @@ public final class JGL_Math {
 			Math.abs(d2)<=EPSILON && 
 			Math.abs(d3)<=EPSILON) {
 			
-			vect1.x = triangle.point2.x - triangle.point1.x;
-			vect1.y = triangle.point2.y - triangle.point1.y;
-			vect1.z = triangle.point2.z - triangle.point1.z;
+			float ax = triangle.point2.x - triangle.point1.x;
+			float ay = triangle.point2.y - triangle.point1.y;
+			float az = triangle.point2.z - triangle.point1.z;
 			
-			vect2.x = triangle.point3.x - triangle.point1.x;
-			vect2.y = triangle.point3.y - triangle.point1.y;
-			vect2.z = triangle.point3.z - triangle.point1.z;
+			float bx = triangle.point3.x - triangle.point1.x;
+			float by = triangle.point3.y - triangle.point1.y;
+			float bz = triangle.point3.z - triangle.point1.z;
 			
-			vector_crossProduct(vect1, vect2, vect3);
-			dot = vector_dotProduct(plane.normal, vect3);
+			// Dot product of the plane normal and the face normal
+			dot = (plane.normal.x * ((ay * bz) - (az * by))) + 
+				  (plane.normal.y * ((az * bx) - (ax * bz))) + 
+				  (plane.normal.z * ((ax * by) - (ay * bx)));
 			if (dot<0f)
 				return 9;
 			if (dot>0f)
@@ -534,6 +539,11 @@ public final class JGL_Math {
 		short nbSplit = 0;
 		short scan = 0;
 		
+		JGL_3DVector[] points = (JGL_3DVector[])splitPoints.get();
+		JGL_3DVector vect1 = points[0];
+		JGL_3DVector vect2 = points[1];
+		JGL_3DVector vect3 = points[2];
+		
 		frac = JGL_Math.plane_segmentIntersection(plane, triangle.point1, triangle.point2, 0f, 1f, vect1);
 		if(frac != 99f && !vect1.eq(triangle.point1) && !vect1.eq(triangle.point2)) {
 			nbSplit++; scan += 0;
@@ -18,11 +18,17 @@
 
 package jglcore;
 
+import java.util.concurrent.locks.LockSupport;
+
 import com.jme.util.NanoTimer;
 
 
 /**
- * Real-time manager.
+ * Real-time manager.<br>
+ * In fixed step mode, each frame runs <code>getSteps()</code> simulation steps of the same 
+ * duration, between <code>beginStep()</code> and <code>endStep()</code>. The time values 
+ * are the step ones inside a step, and the frame ones outside. The fraction of step left 
+ * for the next frame, <code>getAlpha()</code>, interpolates the rendered situations.
  * 
  * @author Nicolas Devere
  *
@@ -31,13 +37,22 @@ public final class JGL_Time {
 	
 	private static float tpf;
 	private static float rtFactor;
-	private static float minTime;
+	private static float minTime = 1f / 75f;
 	private static long timeAbsolute;
 	
 	private static NanoTimer timer;
 	private static NanoTimer timerLimiter;
 	private static NanoTimer timerAbsolute;
 	
+	// Fixed step mode
+	private static boolean fixed = false;
+	private static float stepTime = 1f / 60f;
+	private static int maxSteps = 5;
+	private static float frameTime;
+	private static float accumulator;
+	private static int steps;
+	private static float alpha;
+	
 	/**
 	 * Resets the real time system.
 	 */
@@ -53,8 +68,45 @@ public final class JGL_Time {
 		
 		tpf = 1f / 60f;
 		rtFactor = 1f;
-		minTime = 1f / 75f;
 		timeAbsolute = (long)(1000f / 60f);
+		
+		frameTime = tpf;
+		accumulator = 0f;
+		steps = 1;
+		alpha = 1f;
+	}
+	
+	
+	/**
+	 * Sets the fixed step mode : the simulation runs at the specified frequency, 
+	 * with at most the specified number of steps per frame. The time beyond is dropped.
+	 * 
+	 * @param hz : the simulation frequency
+	 * @param max : the max number of steps per frame
+	 */
+	public static final void setFixedStep(float hz, int max) {
+		fixed = true;
+		stepTime = 1f / hz;
+		maxSteps = Math.max(1, max);
+		accumulator = 0f;
+	}
+	
+	
+	/**
+	 * Sets the variable step mode : one simulation step per frame, of the frame duration.
+	 */
+	public static final void setVariableStep() {
+		fixed = false;
+	}
+	
+	
+	/**
+	 * Returns if the fixed step mode is set.
+	 * 
+	 * @return if the fixed step mode is set
+	 */
+	public static final boolean isFixedStep() {
+		return fixed;
 	}
 	
 	
@@ -64,16 +116,84 @@ public final class JGL_Time {
 	 */
 	public static final void update() {
 		
-		if (timer.getTimePerFrame()<minTime) {
-			timerLimiter.reset();
-			while ((timer.getTimePerFrame() + timerLimiter.getTimeInSeconds())<minTime) {}
-		}
+		// Frame limiter : parks the thread until the min time since the last update
+		float wait;
+		while ((wait = minTime - timerLimiter.getTimeInSeconds()) > 0f)
+			LockSupport.parkNanos((long)(wait * 1000000000f));
+		timerLimiter.reset();
 		
-		tpf = timer.getTimePerFrame();
+		frameTime = timer.getTimePerFrame();
+		tpf = frameTime;
 		rtFactor = tpf * 60f;
 		timer.update();
 		
 		timeAbsolute = (long)(timerAbsolute.getTime() * 0.000001f);
+		
+		if (!fixed) {
+			steps = 1;
+			alpha = 1f;
+			return;
+		}
+		
+		accumulator += frameTime;
+		steps = (int)(accumulator / stepTime);
+		if (steps>maxSteps) {
+			accumulator -= (steps - maxSteps) * stepTime;
+			steps = maxSteps;
+		}
+		accumulator -= steps * stepTime;
+		alpha = accumulator / stepTime;
+	}
+	
+	
+	/**
+	 * Returns the number of simulation steps to run in the current frame.
+	 * 
+	 * @return the number of steps
+	 */
+	public static final int getSteps() {
+		return steps;
+	}
+	
+	
+	/**
+	 * Begins a simulation step : the time values are the step ones until <code>endStep()</code>.
+	 */
+	public static final void beginStep() {
+		if (fixed) {
+			tpf = stepTime;
+			rtFactor = tpf * 60f;
+		}
+	}
+	
+	
+	/**
+	 * Ends a simulation step : the time values are the frame ones again.
+	 */
+	public static final void endStep() {
+		tpf = frameTime;
+		rtFactor = tpf * 60f;
+	}
+	
+	
+	/**
+	 * Returns the fraction of step between the last simulated situation and the 
+	 * current time, from 0 to 1. It's 1 in variable step mode.
+	 * 
+	 * @return the interpolation factor
+	 */
+	public static final float getAlpha() {
+		return alpha;
+	}
+	
+	
+	/**
+	 * Sets the max frame rate, 0 for none.
+	 * 
+	 * @param fps : the max frame rate
+	 */
+	public static final void setMaxFrameRate(float fps) {
+		minTime = (fps>0f) ? 1f / fps : 0f;
 	}
 	
 	
@@ -113,8 +113,14 @@ public class DisplayInGame {
 	        ((PlayerHandler)input).update();
         	
 	        
-	        // World update
-			World.map.update();
+	        // World update, one or several steps in fixed step mode
+	        int steps = JGL_Time.getSteps();
+	        for (int i=0; i<steps && !Player.entity.isDead() && !World.map.isFinished(); i++) {
+	        	JGL_Time.beginStep();
+	        	World.map.update();
+	        	JGL_Time.endStep();
+	        }
+	        World.map.interpolate(JGL_Time.getAlpha(), Player.entity);
 			
 			// Camera update
 			matrix.identity();
@@ -177,6 +183,8 @@ public class DisplayInGame {
 	        Player.render();
 	        Message.render();
 	        
+	        World.map.restore();
+	        
 	        if (frustum != Player.FRUSTUM_NORMAL)
 				camera.setFrustumPerspective( frustum, (float) DisplaySystem.getDisplaySystem().getWidth()
 		                / (float) DisplaySystem.getDisplaySystem().getHeight(), 1f, 3000f );
@@ -0,0 +1,252 @@
+//	Copyright 2009 Nicolas Devere
+//
+//	This file is part of FLESH SNATCHER.
+//
+//	FLESH SNATCHER is free software; you can redistribute it and/or modify
+//	it under the terms of the GNU General Public License as published by
+//	the Free Software Foundation; either version 2 of the License, or
+//	(at your option) any later version.
+//
+//	FLESH SNATCHER is distributed in the hope that it will be useful,
+//	but WITHOUT ANY WARRANTY; without even the implied warranty of
+//	MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+//	GNU General Public License for more details.
+//
+//	You should have received a copy of the GNU General Public License
+//	along with FLESH SNATCHER; if not, write to the Free Software
+//	Foundation, Inc., 51 Franklin St, Fifth Floor, Boston, MA  02110-1301  USA
+
+package main;
+
+import java.io.BufferedReader;
+import java.util.StringTokenizer;
+import java.util.Vector;
+
+import entity.EntityPool;
+import input.LoadHelper;
+import jglcore.JGL_Time;
+import script.Script;
+import world.MapLoader;
+import world.Resources;
+import world.World;
+
+import com.jme.system.DisplaySystem;
+import com.jme.system.dummy.DummySystemProvider;
+
+
+/**
+ * Runs a level without display, to load-test the levels and profile the simulation.<br>
+ * The render resources are created by the jME dummy display system, the HUD, 
+ * the messages, the sounds and the decals are skipped, and the kinematics are 
+ * stopped as soon as they start. The map is updated at a fixed tick, with the 
+ * player driven by an input script, and the ticks per second are reported.<br>
+ * Each line of the input script is : <code>ticks forward side turnX turnY [jump] [shoot]</code>, 
+ * the turns being in degrees per tick. The script loops.<br>
+ * Usage : <code>java main.Headless level [ticks] [hz] [input]</code>
+ * 
+ * @author Nicolas Devere
+ *
+ */
+public final class Headless {
+	
+	/** Number of ticks between two progress reports */
+	public static int REPORT_TICKS = 1000;
+	
+	
+	/**
+	 * Player input during a number of ticks.
+	 */
+	private static final class Step {
+		int ticks;
+		int forward;
+		int side;
+		float turnX;
+		float turnY;
+		boolean jump;
+		boolean shoot;
+	}
+	
+	
+	/**
+	 * Default input : walks and shoots in circles, strafes, then jumps back.
+	 */
+	private static String[] DEFAULT_INPUT = {
+		"240 1 0 0 1.5 shoot", 
+		"60 0 1 0 0", 
+		"60 0 -1 0 -1.5 shoot", 
+		"120 -1 0 0 0 jump"
+	};
+	
+	
+	private static Step parseStep(String line) {
+		StringTokenizer st = new StringTokenizer(line);
+		Step step = new Step();
+		step.ticks = Integer.parseInt(st.nextToken());
+		step.forward = Integer.parseInt(st.nextToken());
+		step.side = Integer.parseInt(st.nextToken());
+		step.turnX = Float.parseFloat(st.nextToken());
+		step.turnY = Float.parseFloat(st.nextToken());
+		while (st.hasMoreTokens()) {
+			String token = st.nextToken();
+			if (token.equals("jump"))
+				step.jump = true;
+			if (token.equals("shoot"))
+				step.shoot = true;
+		}
+		return step;
+	}
+	
+	
+	/**
+	 * Returns the steps of the specified input script, or of the default input.
+	 */
+	private static Step[] loadInput(String path) throws Exception {
+		
+		Vector lines = new Vector();
+		if (path==null) {
+			for (int i=0; i<DEFAULT_INPUT.length; i++)
+				lines.add(DEFAULT_INPUT[i]);
+		}
+		else {
+			BufferedReader br = LoadHelper.getBufferedReader(path);
+			String line;
+			while ((line = br.readLine())!=null)
+				if (line.trim().length()>0 && !line.startsWith("!"))
+					lines.add(line);
+			br.close();
+		}
+		
+		Step[] steps = new Step[lines.size()];
+		for (int i=0; i<steps.length; i++)
+			steps[i] = parseStep((String)lines.get(i));
+		return steps;
+	}
+	
+	
+	/**
+	 * Loads the specified level without display.
+	 * 
+	 * @param path : the level file
+	 * @throws Exception
+	 */
+	public static void load(String path) throws Exception {
+		
+		World.headless = true;
+		DisplaySystem.setSystemProvider(new DummySystemProvider());
+		LoadHelper.setTextureLocator("data/map/textures/");
+		
+		Player.entity = null;
+		new MapLoader().loadMap(path);
+		if (Player.entity==null)
+			throw new Exception("No player in the level " + path);
+	}
+	
+	
+	/**
+	 * Updates the current map during the specified number of ticks, or until 
+	 * the player is dead or the level is finished, and returns the number of ticks run.
+	 * 
+	 * @param ticks : the max number of ticks
+	 * @param hz : the tick frequency
+	 * @param input : the player input steps
+	 * @return the number of ticks run
+	 */
+	private static int run(int ticks, float hz, Step[] input) {
+		
+		JGL_Time.reset();
+		JGL_Time.setFixedStep(hz, 1);
+		
+		int tick, iStep = 0, stepTicks = 0;
+		long start = System.nanoTime();
+		long last = start;
+		
+		for (tick=0; tick<ticks && !Player.entity.isDead() && !World.map.isFinished(); tick++) {
+			
+			if (World.mode==World.KINEMATIC)
+				Script.stopKinematic();
+			
+			// Player input
+			if (input.length>0) {
+				while (stepTicks>=input[iStep].ticks) {
+					iStep = (iStep + 1) % input.length;
+					stepTicks = 0;
+				}
+				Step step = input[iStep];
+				Player.entity.setForwardMove(step.forward);
+				Player.entity.setSideMove(step.side);
+				Player.entity.increaseAngles(step.turnX, step.turnY);
+				if (step.jump)
+					Player.entity.jump();
+				if (step.shoot)
+					Player.entity.shoot();
+				stepTicks++;
+			}
+			
+			JGL_Time.beginStep();
+			World.map.update();
+			JGL_Time.endStep();
+			
+			if ((tick + 1) % REPORT_TICKS == 0) {
+				long now = System.nanoTime();
+				System.out.println(	"Tick " + (tick + 1) + " : " + 
+									rate(REPORT_TICKS, now - last) + " ticks/s, " + 
+									World.map.characters.size() + " characters, " + 
+									World.map.objects.size() + " objects, " + 
+									World.map.shoots.size() + " shoots, " + 
+									World.map.getAwakeCount() + " awake, " + 
+									World.map.getSleepingCount() + " sleeping");
+				last = now;
+			}
+		}
+		
+		long time = System.nanoTime() - start;
+		System.out.println(	tick + " ticks in " + (time / 1000000) + " ms : " + rate(tick, time) + 
+							" ticks/s, " + (rate(tick, time) / hz) + " x real time");
+		return tick;
+	}
+	
+	
+	private static float rate(int ticks, long nanos) {
+		if (nanos<=0)
+			return 0f;
+		return ticks * 1000000000f / nanos;
+	}
+	
+	
+	public static void main(String[] args) {
+		
+		if (args.length<1) {
+			System.out.println("Usage : java main.Headless level [ticks] [hz] [input]");
+			return;
+		}
+		
+		try {
+			int ticks = args.length>1 ? Integer.parseInt(args[1]) : 10000;
+			float hz = args.length>2 ? Float.parseFloat(args[2]) : 60f;
+			Step[] input = loadInput(args.length>3 ? args[3] : null);
+			
+			long t = System.nanoTime();
+			load(args[0]);
+			t = System.nanoTime() - t;
+			System.out.println(	"Level " + args[0] + " loaded in " + (t / 1000000) + " ms : " + 
+								World.map.collNodes.size() + " collision nodes, " + 
+								World.map.characters.size() + " characters, " + 
+								World.map.objects.size() + " objects");
+			System.out.print(Resources.getReport());
+			
+			run(ticks, hz, input);
+			System.out.print(EntityPool.getReport());
+			
+			if (Player.entity.isDead())
+				System.out.println("Player dead");
+			if (World.map.isFinished())
+				System.out.println("Level finished");
+		}
+		catch (Exception ex) {
+			ex.printStackTrace(System.out);
+			System.exit(1);
+		}
+		System.exit(0);
+	}
+	
+}
@@ -25,6 +25,7 @@ import java.util.logging.Logger;
 import world.World;
 import entity.Message;
 import input.LoadHelper;
+import jglcore.JGL_Time;
 import sound.Sounds;
 
 import com.jme.app.AbstractGame;
@@ -145,6 +146,7 @@ public class Main extends AbstractGame {
     		return;
     	
     	initSystem();
+    	initTime();
     	initGame();
     	Sounds.init();
     	
@@ -331,6 +333,23 @@ public class Main extends AbstractGame {
         JoystickInput.destroyIfInitalized();
     }
 
+    /**
+     * Sets the simulation and frame rates from the settings :<br>
+     * SIM_HZ : the fixed simulation frequency, 0 for one step of the frame duration per frame<br>
+     * SIM_MAX_STEPS : the max number of simulation steps per frame<br>
+     * MAX_FPS : the max frame rate, 0 for none
+     */
+    protected void initTime() {
+    	float hz = settings.getFloat("SIM_HZ", 0f);
+    	if (hz > 0f)
+    		JGL_Time.setFixedStep(hz, settings.getInt("SIM_MAX_STEPS", 5));
+    	else
+    		JGL_Time.setVariableStep();
+    	JGL_Time.setMaxFrameRate(settings.getFloat("MAX_FPS", 75f));
+    	logger.info("Simulation : " + (hz > 0f ? hz + " Hz" : "one step per frame") + 
+    				", max frame rate : " + settings.getFloat("MAX_FPS", 75f));
+    }
+
     protected GameSettings getNewSettings() {
         return new BaseGameSettings();
     }
@@ -0,0 +1,166 @@
+//	Copyright 2009 Nicolas Devere
+//
+//	This file is part of FLESH SNATCHER.
+//
+//	FLESH SNATCHER is free software; you can redistribute it and/or modify
+//	it under the terms of the GNU General Public License as published by
+//	the Free Software Foundation; either version 2 of the License, or
+//	(at your option) any later version.
+//
+//	FLESH SNATCHER is distributed in the hope that it will be useful,
+//	but WITHOUT ANY WARRANTY; without even the implied warranty of
+//	MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+//	GNU General Public License for more details.
+//
+//	You should have received a copy of the GNU General Public License
+//	along with FLESH SNATCHER; if not, write to the Free Software
+//	Foundation, Inc., 51 Franklin St, Fifth Floor, Boston, MA  02110-1301  USA
+
+package phys;
+
+import java.util.Vector;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.RecursiveAction;
+
+import jglcore.JGL_3DMesh;
+
+
+/**
+ * Independent steps of a collision BSP construction, split over a range of 
+ * brushes or leaves and run on a fork/join pool. Each step writes only 
+ * in its own array cells, so the built tree doesn't depend on the threads.<br>
+ * The brush and plane computations used by the steps (<code>JGL_Math</code> 
+ * face positions and splits) keep their working vectors on the thread.
+ * 
+ * @author Nicolas Devere
+ *
+ */
+final class BspBuildTask extends RecursiveAction {
+	
+	private static final long serialVersionUID = 1L;
+	
+	/** Max number of items processed by a task without splitting */
+	static int GRAIN = 8;
+	
+	private static ForkJoinPool s_pool;
+	
+	private static final int BRUSHES = 0;
+	private static final int REACHED = 1;
+	private static final int CLEAN = 2;
+	
+	private int step;
+	private int from, to;
+	
+	private JGL_3DMesh[] meshes;
+	private Bsp_brush[] brushes;
+	private Bsp_node root;
+	private Vector[] reached;
+	private Bsp_node[] leaves;
+	
+	
+	/**
+	 * Task building the brush of each mesh.
+	 */
+	BspBuildTask(JGL_3DMesh[] _meshes, Bsp_brush[] _brushes) {
+		this(BRUSHES, 0, _meshes.length);
+		meshes = _meshes;
+		brushes = _brushes;
+	}
+	
+	
+	/**
+	 * Task storing the leaves reached by each brush.
+	 */
+	BspBuildTask(Bsp_node _root, Bsp_brush[] _brushes, Vector[] _reached) {
+		this(REACHED, 0, _brushes.length);
+		root = _root;
+		brushes = _brushes;
+		reached = _reached;
+	}
+	
+	
+	/**
+	 * Task removing the wrong brushes of each solid leaf.
+	 */
+	BspBuildTask(Bsp_node[] _leaves) {
+		this(CLEAN, 0, _leaves.length);
+		leaves = _leaves;
+	}
+	
+	
+	private BspBuildTask(int _step, int _from, int _to) {
+		step = _step;
+		from = _from;
+		to = _to;
+	}
+	
+	
+	private BspBuildTask sub(int _from, int _to) {
+		BspBuildTask t = new BspBuildTask(step, _from, _to);
+		t.meshes = meshes;
+		t.brushes = brushes;
+		t.root = root;
+		t.reached = reached;
+		t.leaves = leaves;
+		return t;
+	}
+	
+	
+	/**
+	 * Runs the task on the shared pool, or on the current thread.
+	 * 
+	 * @param task : the task
+	 * @param parallel : if the task is run on the pool
+	 */
+	static void run(BspBuildTask task, boolean parallel) {
+		if (parallel)
+			getSharedPool().invoke(task);
+		else
+			task.process(task.from, task.to);
+	}
+	
+	
+	private static synchronized ForkJoinPool getSharedPool() {
+		if (s_pool==null)
+			s_pool = new ForkJoinPool();
+		return s_pool;
+	}
+	
+	
+	protected void compute() {
+		if (to - from <= GRAIN) {
+			process(from, to);
+			return;
+		}
+		int mid = (from + to) >>> 1;
+		invokeAll(sub(from, mid), sub(mid, to));
+	}
+	
+	
+	private void process(int _from, int _to) {
+		
+		TraceContext ctx = TraceContext.get();
+		
+		for (int i=_from; i<_to; i++) {
+			
+			if (step==BRUSHES) {
+				meshes[i].markFaces();
+				Bsp_brush b = new Bsp_brush(meshes[i]);
+				JGL_3DMesh m = new JGL_3DMesh();
+				b.bsp.getMesh(m);
+				m.markFaces();
+				brushes[i] = new Bsp_brush(m);
+				brushes[i].index = i;
+			}
+			
+			else if (step==REACHED) {
+				reached[i] = new Vector();
+				Bsp_tree.getLeaves(root, brushes[i], reached[i]);
+			}
+			
+			else
+				Bsp_tree.removeWrongBrushes(leaves[i], ctx);
+		}
+	}
+	
+}
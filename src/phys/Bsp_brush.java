@@ -32,7 +32,9 @@ public final class Bsp_brush {
 	
 	public JGL_3DMesh mesh;
 	public JGL_3DBsp bsp;
-	public boolean collision_tested;
+	
+	/** Index of the brush in its tree */
+	int index;
 	
 	
 	/**
@@ -45,7 +47,7 @@ public final class Bsp_brush {
 		mesh = _mesh;
 		bsp = new JGL_3DBsp(mesh);
 		clean(bsp);
-		collision_tested = false;
+		index = 0;
 	}
 	
 	
@@ -60,15 +62,17 @@ public final class Bsp_brush {
 	
 	
 	/**
-	 * Traces the brush.
+	 * Traces the brush, if it has not been tested yet in the current tree trace.
 	 * 
 	 * @param trace : the impact trace
+	 * @param ctx : the trace context
 	 */
-	public void trace(Trace trace) {
+	public void trace(Trace trace, TraceContext ctx) {
 		
-		if (!collision_tested) {
-			trace.trace(bsp, true);
-			collision_tested = true;
+		boolean[] tested = ctx.getBrushes();
+		if (!tested[index]) {
+			trace.trace(bsp, true, ctx);
+			tested[index] = true;
 			//System.out.println("BRUSH TESTED !!");
 		}
 	}
@@ -208,13 +208,14 @@ public final class Bsp_node {
 	/**
 	 * Tests the intersection with the BSP.
 	 * 
+	 * @param ctx : the trace context
 	 * @param trace
 	 * @param p1f
 	 * @param p2f
 	 * @param p1
 	 * @param p2
 	 */
-	public void traceThroughTree( Trace trace, float p1f, float p2f, float p1x, float p1y, float p1z, float p2x, float p2y, float p2z) {
+	public void traceThroughTree( TraceContext ctx, Trace trace, float p1f, float p2f, float p1x, float p1y, float p1z, float p2x, float p2y, float p2z) {
 		
 		float		t1, t2, offset, offset2;
 		float		frac, frac2;
@@ -232,7 +233,7 @@ public final class Bsp_node {
 		// if < 0, we are in a leaf node
 		if (type == SOLID_LEAF) {
 			for (int i=0; i<brushes.length; i++)
-				brushes[i].trace(trace);
+				brushes[i].trace(trace, ctx);
 			return;
 		}
 		
@@ -247,16 +248,14 @@ public final class Bsp_node {
 
 		// see which sides we need to consider
 		if ( t1 >= offset + 1f && t2 >= offset + 1f ) {
-			front.traceThroughTree( trace, p1f, p2f, p1x, p1y, p1z, p2x, p2y, p2z );
+			front.traceThroughTree( ctx, trace, p1f, p2f, p1x, p1y, p1z, p2x, p2y, p2z );
 			return;
 		}
 		
-		plane.normal.invert();
-		offset2 = trace.cshape.getOffset(plane.normal);
-		plane.normal.invert();
+		offset2 = trace.cshape.getOffsetNegated(plane.normal);
 		
 		if ( t1 <= -offset2 - 1f  && t2 <= -offset2 - 1f ) {
-			rear.traceThroughTree( trace, p1f, p2f, p1x, p1y, p1z, p2x, p2y, p2z );
+			rear.traceThroughTree( ctx, trace, p1f, p2f, p1x, p1y, p1z, p2x, p2y, p2z );
 			return;
 		}
 
@@ -296,7 +295,7 @@ public final class Bsp_node {
 		midy = p1y + frac*(p2y - p1y);
 		midz = p1z + frac*(p2z - p1z);
 
-		node1.traceThroughTree( trace, p1f, midf, p1x, p1y, p1z, midx, midy, midz );
+		node1.traceThroughTree( ctx, trace, p1f, midf, p1x, p1y, p1z, midx, midy, midz );
 		
 		// go past the node
 		if ( frac2 < 0 ) {
@@ -312,7 +311,7 @@ public final class Bsp_node {
 		midy = p1y + frac2*(p2y - p1y);
 		midz = p1z + frac2*(p2z - p1z);
 
-		node2.traceThroughTree( trace, midf, p2f, midx, midy, midz, p2x, p2y, p2z );
+		node2.traceThroughTree( ctx, trace, midf, p2f, midx, midy, midz, p2x, p2y, p2z );
 	}
 	
 	
@@ -23,6 +23,9 @@ import jglcore.JGL_3DTriangle;
 import jglcore.JGL_3DMesh;
 import jglcore.JGL_3DBsp;
 import jglcore.JGL_Math;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.nio.ByteBuffer;
 import java.util.Vector;
 
 
@@ -35,10 +38,16 @@ import java.util.Vector;
 public final class Bsp_tree {
 	
 	
-	private static Trace s_impact = new Trace();
+	/** If the big trees are built on several threads */
+	public static boolean PARALLEL_BUILD = true;
+	
+	/** Min number of brushes of a tree built on several threads */
+	public static int PARALLEL_MIN_BRUSHES = 32;
+	
 	
 	private Bsp_brush[] brushes;
 	private Bsp_node root;
+	private FlatBsp flat;
 	
 	
 	/**
@@ -48,30 +57,17 @@ public final class Bsp_tree {
 	 */
 	public Bsp_tree(JGL_3DMesh[] _meshes) {
 		
-		int i;
+		int i, j;
 		int length = _meshes.length;
+		boolean parallel = PARALLEL_BUILD && length>=PARALLEL_MIN_BRUSHES;
 		
-		for (i=0; i<length; i++)
-			_meshes[i].markFaces();
-		
-		
-		JGL_3DMesh[] m = new JGL_3DMesh[length];
-		Bsp_brush[] b = new Bsp_brush[length];
-		
-		for (i=0; i<length; i++) {
-			b[i] = new Bsp_brush(_meshes[i]);
-			m[i] = new JGL_3DMesh();
-			b[i].bsp.getMesh(m[i]);
-			m[i].markFaces();
-		}
-		
+		// Brushes : independent for each mesh
 		brushes = new Bsp_brush[length];
-		for (i=0; i<length; i++)
-			brushes[i] = new Bsp_brush(m[i]);
+		BspBuildTask.run(new BspBuildTask(_meshes, brushes), parallel);
 		
 		JGL_3DBsp bsp1 = new JGL_3DBsp();
 		for (i=0; i<length; i++)
-			bsp1.addMesh(m[i]);
+			bsp1.addMesh(brushes[i].mesh);
 		
 		
 		root = new Bsp_node();
@@ -81,11 +77,69 @@ public final class Bsp_tree {
 		
 		emptyfy(root);
 		
+		// Leaves reached by each brush, then stored in the brushes order
+		Vector[] reached = new Vector[length];
+		BspBuildTask.run(new BspBuildTask(root, brushes, reached), parallel);
 		for (i=0; i<length; i++)
-			addBrush(root, brushes[i]);
+			for (j=0; j<reached[i].size(); j++) {
+				Bsp_node leaf = (Bsp_node)reached[i].get(j);
+				leaf.brushes = addBrush(leaf.brushes, brushes[i]);
+				leaf.type = Bsp_node.SOLID_LEAF;
+			}
 		
-		for (i=0; i<length; i++)
-			removeWrongBrushes(root, brushes[i]);
+		// Wrong brushes : independent for each solid leaf
+		Vector solid = new Vector();
+		getSolidLeaves(root, solid);
+		Bsp_node[] leaves = new Bsp_node[solid.size()];
+		solid.toArray(leaves);
+		BspBuildTask.run(new BspBuildTask(leaves), parallel);
+		
+		flat = new FlatBsp(root, brushes);
+	}
+	
+	
+	/**
+	 * Constructs a collision BSP with its compiled form only.
+	 * 
+	 * @param _flat : the compiled BSP
+	 */
+	private Bsp_tree(FlatBsp _flat) {
+		brushes = null;
+		root = null;
+		flat = _flat;
+	}
+	
+	
+	/**
+	 * Writes the compiled form of the BSP in binary form.
+	 * 
+	 * @param out : the output stream
+	 * @throws IOException
+	 */
+	public void write(DataOutputStream out) throws IOException {
+		flat.write(out);
+	}
+	
+	
+	/**
+	 * Reads a collision BSP written by <code>write(DataOutputStream)</code>. 
+	 * It only has its compiled form, which gives the same traces.
+	 * 
+	 * @param in : the buffer, positioned at the BSP start
+	 * @return the collision BSP
+	 */
+	public static Bsp_tree read(ByteBuffer in) {
+		return new Bsp_tree(FlatBsp.read(in));
+	}
+	
+	
+	/**
+	 * Returns the compiled form of the BSP, used by the traces.
+	 * 
+	 * @return the compiled BSP
+	 */
+	public FlatBsp getFlat() {
+		return flat;
 	}
 	
 	
@@ -128,38 +182,7 @@ public final class Bsp_tree {
 			return;
 		
 		if (bsp.type==Bsp_node.SOLID_LEAF) {
-			boolean toRemove = false;
-			for (int i=0; i<bsp.b_faces.size(); i++) {
-				Vector subFaces = (Vector)bsp.b_faces.get(i);
-				for (int j=0; j<subFaces.size(); j++)
-					if (!Util4Phys.isInBrush((JGL_3DTriangle)subFaces.get(j), brush)) {
-						toRemove = true;
-					}
-			}
-			if (!toRemove)
-				for (int i=0; i<bsp.b_faces.size(); i++) {
-					Vector subFaces = (Vector)bsp.b_faces.get(i);
-					JGL_3DPlane plane = (JGL_3DPlane)bsp.b_planes.get(i);
-					if (Util4Phys.isBrushPlane(plane, brush)) {
-						for (int j=0; j<subFaces.size(); j++)
-							if (!Util4Phys.isStrictlyInBrush((JGL_3DTriangle)subFaces.get(j), brush)) {
-								toRemove = true;
-							}
-					}
-				}
-			if (!toRemove)
-				for (int i=0; i<bsp.b_faces.size(); i++) {
-					Vector subFaces = (Vector)bsp.b_faces.get(i);
-					JGL_3DPlane plane = (JGL_3DPlane)bsp.b_planes.get(i);
-					if (!Util4Phys.isBrushPlane(plane, brush)) {
-						for (int j=0; j<subFaces.size(); j++)
-							if (Util4Phys.isBrushEdge((JGL_3DTriangle)subFaces.get(j), brush)) {
-								toRemove = true;
-							}
-					}
-				}
-			
-			if (toRemove)
+			if (isWrongBrush(bsp, brush, TraceContext.get()))
 				bsp.brushes = removeBrush(bsp.brushes, brush);
 			if (bsp.brushes.length==0)
 				bsp.type = Bsp_node.EMPTY_LEAF;
@@ -170,6 +193,64 @@ public final class Bsp_tree {
 	}
 	
 	
+	/**
+	 * Removes the wrong brushes of the specified solid leaf. Gives the same result 
+	 * as <code>removeWrongBrushes(Bsp_node, Bsp_brush)</code> called with every brush, 
+	 * as the other brushes are not in the leaf.
+	 * 
+	 * @param leaf : the solid leaf
+	 * @param ctx : the trace context
+	 */
+	static void removeWrongBrushes(Bsp_node leaf, TraceContext ctx) {
+		
+		Bsp_brush[] kept = new Bsp_brush[leaf.brushes.length];
+		int nb = 0;
+		for (int i=0; i<leaf.brushes.length; i++)
+			if (!isWrongBrush(leaf, leaf.brushes[i], ctx))
+				kept[nb++] = leaf.brushes[i];
+		
+		if (nb<kept.length) {
+			leaf.brushes = new Bsp_brush[nb];
+			System.arraycopy(kept, 0, leaf.brushes, 0, nb);
+		}
+		if (leaf.brushes.length==0)
+			leaf.type = Bsp_node.EMPTY_LEAF;
+	}
+	
+	
+	/**
+	 * Returns if the brush must be removed from the specified solid leaf.
+	 */
+	private static boolean isWrongBrush(Bsp_node bsp, Bsp_brush brush, TraceContext ctx) {
+		
+		for (int i=0; i<bsp.b_faces.size(); i++) {
+			Vector subFaces = (Vector)bsp.b_faces.get(i);
+			for (int j=0; j<subFaces.size(); j++)
+				if (!Util4Phys.isInBrush((JGL_3DTriangle)subFaces.get(j), brush, ctx))
+					return true;
+		}
+		for (int i=0; i<bsp.b_faces.size(); i++) {
+			Vector subFaces = (Vector)bsp.b_faces.get(i);
+			JGL_3DPlane plane = (JGL_3DPlane)bsp.b_planes.get(i);
+			if (Util4Phys.isBrushPlane(plane, brush)) {
+				for (int j=0; j<subFaces.size(); j++)
+					if (!Util4Phys.isStrictlyInBrush((JGL_3DTriangle)subFaces.get(j), brush, ctx))
+						return true;
+			}
+		}
+		for (int i=0; i<bsp.b_faces.size(); i++) {
+			Vector subFaces = (Vector)bsp.b_faces.get(i);
+			JGL_3DPlane plane = (JGL_3DPlane)bsp.b_planes.get(i);
+			if (!Util4Phys.isBrushPlane(plane, brush)) {
+				for (int j=0; j<subFaces.size(); j++)
+					if (Util4Phys.isBrushEdge((JGL_3DTriangle)subFaces.get(j), brush, ctx))
+						return true;
+			}
+		}
+		return false;
+	}
+	
+	
 	public static void buildNodes(JGL_3DBsp bsp1, Bsp_node bsp2) {
 		
 		if (bsp1.rear != null) {
@@ -264,6 +345,51 @@ public final class Bsp_tree {
 	
 	
 	
+	/**
+	 * Stores the leaves reached by the specified brush, without modifying the tree.
+	 * 
+	 * @param bsp : the node
+	 * @param brush : the brush
+	 * @param result : receives the reached leaves
+	 */
+	static void getLeaves(Bsp_node bsp, Bsp_brush brush, Vector result) {
+		
+		if (bsp.type!=Bsp_node.NODE) {
+			result.add(bsp);
+			return;
+		}
+		
+		int place = JGL_Math.plane_meshPosition(bsp.plane, brush.mesh);
+		
+		if (place==-1)
+			getLeaves(bsp.rear, brush, result);
+		else if (place==1)
+			getLeaves(bsp.front, brush, result);
+		else {
+			getLeaves(bsp.rear, brush, result);
+			getLeaves(bsp.front, brush, result);
+		}
+	}
+	
+	
+	/**
+	 * Stores the solid leaves of the tree.
+	 * 
+	 * @param bsp : the node
+	 * @param result : receives the solid leaves
+	 */
+	static void getSolidLeaves(Bsp_node bsp, Vector result) {
+		
+		if (bsp.type==Bsp_node.SOLID_LEAF)
+			result.add(bsp);
+		else if (bsp.type==Bsp_node.NODE) {
+			getSolidLeaves(bsp.rear, result);
+			getSolidLeaves(bsp.front, result);
+		}
+	}
+	
+	
+	
 	public static void clearAllBrushes(Bsp_node bsp) {
 		if (bsp.type!=Bsp_node.NODE) {
 			bsp.brushes = new Bsp_brush[0];
@@ -275,7 +401,7 @@ public final class Bsp_tree {
 	
 	
 	
-	private static Bsp_brush[] addBrush(Bsp_brush[] _brushes, Bsp_brush _brush) {
+	static Bsp_brush[] addBrush(Bsp_brush[] _brushes, Bsp_brush _brush) {
 		for (int i=0; i<_brushes.length; i++)
 			if (_brushes[i]==_brush)
 				return _brushes;
@@ -307,21 +433,52 @@ public final class Bsp_tree {
 	 * @return if an intersection occurs with the BSP
 	 */
 	public boolean trace(Trace trace) {
+		return trace(trace, TraceContext.get());
+	}
+	
+	
+	/**
+	 * Tests the intersection between a collision shape and the BSP, 
+	 * and stores the result in the specified trace.
+	 * 
+	 * @param trace : describes the shape movement and stores the impact result
+	 * @param ctx : the context storing the working objects
+	 * @return if an intersection occurs with the BSP
+	 */
+	public boolean trace(Trace trace, TraceContext ctx) {
+		return flat.trace(trace, ctx);
+	}
+	
+	
+	/**
+	 * Tests the intersection between a collision shape and the BSP, 
+	 * walking the node tree recursively. Gives the same result as 
+	 * <code>trace(Trace, TraceContext)</code>, which uses the compiled BSP.
+	 * 
+	 * @param trace : describes the shape movement and stores the impact result
+	 * @param ctx : the context storing the working objects
+	 * @return if an intersection occurs with the BSP
+	 */
+	public boolean traceNodes(Trace trace, TraceContext ctx) {
+		
+		// Read from a binary file : no node tree
+		if (root==null)
+			return trace(trace, ctx);
 		
-		s_impact.reset(trace.cshape, trace.start, trace.end);
+		Trace impact = ctx.tree;
+		impact.reset(trace.cshape, trace.start, trace.end);
 		
-		for (int i=0; i<brushes.length; i++)
-			brushes[i].collision_tested = false;
+		ctx.clearBrushes(brushes.length);
 		
-		root.traceThroughTree(s_impact, 0f, 1f, 
-				s_impact.start.x, s_impact.start.y, s_impact.start.z, 
-				s_impact.end.x, s_impact.end.y, s_impact.end.z);
+		root.traceThroughTree(ctx, impact, 0f, 1f, 
+				impact.start.x, impact.start.y, impact.start.z, 
+				impact.end.x, impact.end.y, impact.end.z);
 		
-		if (s_impact.dummy)
+		if (impact.dummy)
 			trace.dummy = true;
 		
-		if (s_impact.isImpact())
-			return trace.setNearerImpact(s_impact.correction, s_impact.fractionImpact, s_impact.fractionReal);
+		if (impact.isImpact())
+			return trace.setNearerImpact(impact.correction, impact.fractionImpact, impact.fractionReal);
 		
 		return false;
 	}
@@ -0,0 +1,518 @@
+//	Copyright 2009 Nicolas Devere
+//
+//	This file is part of FLESH SNATCHER.
+//
+//	FLESH SNATCHER is free software; you can redistribute it and/or modify
+//	it under the terms of the GNU General Public License as published by
+//	the Free Software Foundation; either version 2 of the License, or
+//	(at your option) any later version.
+//
+//	FLESH SNATCHER is distributed in the hope that it will be useful,
+//	but WITHOUT ANY WARRANTY; without even the implied warranty of
+//	MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+//	GNU General Public License for more details.
+//
+//	You should have received a copy of the GNU General Public License
+//	along with FLESH SNATCHER; if not, write to the Free Software
+//	Foundation, Inc., 51 Franklin St, Fifth Floor, Boston, MA  02110-1301  USA
+
+package phys;
+
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.util.Vector;
+
+import jglcore.JGL_3DBsp;
+import jglcore.JGL_3DPlane;
+import jglcore.JGL_3DVector;
+
+
+/**
+ * Compiled, read-only form of a collision BSP.<br>
+ * The node planes and the brush planes are stored in parallel arrays,
+ * the children in index arrays, and the tree is traced iteratively.
+ * A negative child index <code>c</code> designs the leaf <code>-c-1</code>,
+ * the leaf 0 being the empty leaf.<br>
+ * The trace results are the same as the <code>Bsp_node</code> tree ones,
+ * including the correction planes, which are the brushes planes.
+ *
+ * @author Nicolas Devere
+ *
+ */
+public final class FlatBsp {
+
+
+	// Nodes
+	private float[] nx;
+	private float[] ny;
+	private float[] nz;
+	private float[] nd;
+	private int[] front;
+	private int[] rear;
+	private int root;
+
+	// Leaves
+	private int[] leafStart;
+	private int[] leafCount;
+	private int[] leafBrushes;
+
+	// Brushes
+	private int[] brushStart;
+	private int[] brushCount;
+	private float[] bx;
+	private float[] by;
+	private float[] bz;
+	private float[] bd;
+	private JGL_3DPlane[] bPlanes;
+
+
+
+	/**
+	 * Compiles the specified BSP nodes and their brushes.
+	 * The brushes indices must be their position in the array.
+	 *
+	 * @param _root : the root node
+	 * @param _brushes : the brushes
+	 */
+	FlatBsp(Bsp_node _root, Bsp_brush[] _brushes) {
+
+		int i;
+		JGL_3DBsp b;
+
+		// Brushes planes
+		Vector planes = new Vector();
+		brushStart = new int[_brushes.length];
+		brushCount = new int[_brushes.length];
+		for (i=0; i<_brushes.length; i++) {
+			brushStart[i] = planes.size();
+			b = _brushes[i].bsp;
+			while (b!=null && b.type==JGL_3DBsp.NODE) {
+				planes.add(b.plane);
+				b = b.rear;
+			}
+			brushCount[i] = planes.size() - brushStart[i];
+		}
+
+		bPlanes = new JGL_3DPlane[planes.size()];
+		bx = new float[bPlanes.length];
+		by = new float[bPlanes.length];
+		bz = new float[bPlanes.length];
+		bd = new float[bPlanes.length];
+		for (i=0; i<bPlanes.length; i++) {
+			bPlanes[i] = (JGL_3DPlane)planes.get(i);
+			bx[i] = bPlanes[i].normal.x;
+			by[i] = bPlanes[i].normal.y;
+			bz[i] = bPlanes[i].normal.z;
+			bd[i] = bPlanes[i].constant;
+		}
+
+		// Nodes and leaves
+		Vector nodes = new Vector();
+		Vector leaves = new Vector();
+		leaves.add(null);
+		count(_root, nodes, leaves);
+
+		nx = new float[nodes.size()];
+		ny = new float[nodes.size()];
+		nz = new float[nodes.size()];
+		nd = new float[nodes.size()];
+		front = new int[nodes.size()];
+		rear = new int[nodes.size()];
+
+		leafStart = new int[leaves.size()];
+		leafCount = new int[leaves.size()];
+		int nbBrushes = 0;
+		for (i=1; i<leaves.size(); i++)
+			nbBrushes += ((Bsp_node)leaves.get(i)).brushes.length;
+		leafBrushes = new int[nbBrushes];
+
+		nbBrushes = 0;
+		for (i=1; i<leaves.size(); i++) {
+			Bsp_brush[] lb = ((Bsp_node)leaves.get(i)).brushes;
+			leafStart[i] = nbBrushes;
+			leafCount[i] = lb.length;
+			for (int j=0; j<lb.length; j++)
+				leafBrushes[nbBrushes++] = lb[j].index;
+		}
+
+		for (i=0; i<nodes.size(); i++) {
+			Bsp_node n = (Bsp_node)nodes.get(i);
+			nx[i] = n.plane.normal.x;
+			ny[i] = n.plane.normal.y;
+			nz[i] = n.plane.normal.z;
+			nd[i] = n.plane.constant;
+			front[i] = indexOf(n.front, nodes, leaves);
+			rear[i] = indexOf(n.rear, nodes, leaves);
+		}
+		root = indexOf(_root, nodes, leaves);
+	}
+
+
+	/**
+	 * Constructs an empty BSP, filled by <code>read(ByteBuffer)</code>.
+	 */
+	private FlatBsp() {
+	}
+
+
+	/**
+	 * Writes the compiled BSP in binary form.
+	 *
+	 * @param out : the output stream
+	 * @throws IOException
+	 */
+	void write(DataOutputStream out) throws IOException {
+		writeFloats(out, nx);
+		writeFloats(out, ny);
+		writeFloats(out, nz);
+		writeFloats(out, nd);
+		writeInts(out, front);
+		writeInts(out, rear);
+		out.writeInt(root);
+		writeInts(out, leafStart);
+		writeInts(out, leafCount);
+		writeInts(out, leafBrushes);
+		writeInts(out, brushStart);
+		writeInts(out, brushCount);
+		writeFloats(out, bx);
+		writeFloats(out, by);
+		writeFloats(out, bz);
+		writeFloats(out, bd);
+	}
+
+
+	/**
+	 * Reads a compiled BSP written by <code>write(DataOutputStream)</code>.
+	 *
+	 * @param in : the buffer, positioned at the BSP start
+	 * @return the compiled BSP
+	 */
+	static FlatBsp read(ByteBuffer in) {
+
+		FlatBsp f = new FlatBsp();
+		f.nx = readFloats(in);
+		f.ny = readFloats(in);
+		f.nz = readFloats(in);
+		f.nd = readFloats(in);
+		f.front = readInts(in);
+		f.rear = readInts(in);
+		f.root = in.getInt();
+		f.leafStart = readInts(in);
+		f.leafCount = readInts(in);
+		f.leafBrushes = readInts(in);
+		f.brushStart = readInts(in);
+		f.brushCount = readInts(in);
+		f.bx = readFloats(in);
+		f.by = readFloats(in);
+		f.bz = readFloats(in);
+		f.bd = readFloats(in);
+
+		f.bPlanes = new JGL_3DPlane[f.bx.length];
+		for (int i=0; i<f.bPlanes.length; i++) {
+			f.bPlanes[i] = new JGL_3DPlane(0f, 1f, 0f);
+			f.bPlanes[i].assign(f.bx[i], f.by[i], f.bz[i], f.bd[i]);
+		}
+		return f;
+	}
+
+
+	private static void writeFloats(DataOutputStream out, float[] array) throws IOException {
+		out.writeInt(array.length);
+		for (int i=0; i<array.length; i++)
+			out.writeFloat(array[i]);
+	}
+
+
+	private static void writeInts(DataOutputStream out, int[] array) throws IOException {
+		out.writeInt(array.length);
+		for (int i=0; i<array.length; i++)
+			out.writeInt(array[i]);
+	}
+
+
+	private static float[] readFloats(ByteBuffer in) {
+		float[] array = new float[in.getInt()];
+		in.asFloatBuffer().get(array);
+		in.position(in.position() + (array.length * 4));
+		return array;
+	}
+
+
+	private static int[] readInts(ByteBuffer in) {
+		int[] array = new int[in.getInt()];
+		in.asIntBuffer().get(array);
+		in.position(in.position() + (array.length * 4));
+		return array;
+	}
+
+
+	/**
+	 * Lists the nodes and the solid leaves of the specified BSP, in depth-first order.
+	 */
+	private static void count(Bsp_node bsp, Vector nodes, Vector leaves) {
+
+		if (bsp==null)
+			return;
+
+		if (bsp.type!=Bsp_node.NODE) {
+			if (bsp.type==Bsp_node.SOLID_LEAF && bsp.brushes.length>0)
+				leaves.add(bsp);
+			return;
+		}
+		nodes.add(bsp);
+		count(bsp.front, nodes, leaves);
+		count(bsp.rear, nodes, leaves);
+	}
+
+
+	private static int indexOf(Bsp_node bsp, Vector nodes, Vector leaves) {
+
+		if (bsp==null)
+			return -1;
+
+		if (bsp.type==Bsp_node.NODE)
+			return nodes.indexOf(bsp);
+
+		int leaf = leaves.indexOf(bsp);
+		if (leaf<0)
+			leaf = 0;
+		return -leaf - 1;
+	}
+
+
+
+	/**
+	 * Returns the number of nodes.
+	 *
+	 * @return the number of nodes
+	 */
+	public int getNodesNumber() {
+		return nx.length;
+	}
+
+
+	/**
+	 * Returns the number of leaves, including the empty leaf.
+	 *
+	 * @return the number of leaves
+	 */
+	public int getLeavesNumber() {
+		return leafStart.length;
+	}
+
+
+	/**
+	 * Returns the number of brushes.
+	 *
+	 * @return the number of brushes
+	 */
+	public int getBrushesNumber() {
+		return brushStart.length;
+	}
+
+
+
+	/**
+	 * Tests the intersection between a collision shape and the BSP,
+	 * and stores the result in the specified trace.
+	 *
+	 * @param trace : describes the shape movement and stores the impact result
+	 * @param ctx : the context storing the working objects
+	 * @return if an intersection occurs with the BSP
+	 */
+	public boolean trace(Trace trace, TraceContext ctx) {
+
+		Trace impact = ctx.tree;
+		impact.reset(trace.cshape, trace.start, trace.end);
+
+		boolean[] tested = ctx.clearBrushes(brushStart.length);
+		Shape shape = impact.cshape;
+		JGL_3DVector normal = ctx.normal;
+
+		float t1, t2, offset, offset2;
+		float frac, frac2, idist, midf;
+		int node1, node2;
+
+		int node = root;
+		float p1f = 0f;
+		float p2f = 1f;
+		float p1x = impact.start.x, p1y = impact.start.y, p1z = impact.start.z;
+		float p2x = impact.end.x, p2y = impact.end.y, p2z = impact.end.z;
+
+		int sp = 0;
+
+		while (true) {
+
+			// Not already hit something nearer
+			if (impact.fractionReal > p1f) {
+
+				// Leaf
+				if (node<0) {
+					int leaf = -node - 1;
+					int end = leafStart[leaf] + leafCount[leaf];
+					for (int i=leafStart[leaf]; i<end; i++) {
+						int b = leafBrushes[i];
+						if (!tested[b]) {
+							traceBrush(b, impact, normal);
+							tested[b] = true;
+						}
+					}
+				}
+
+				// Node
+				else {
+					float x = nx[node];
+					float y = ny[node];
+					float z = nz[node];
+					float c = nd[node];
+					t1 = (x * p1x) + (y * p1y) + (z * p1z) + c;
+					t2 = (x * p2x) + (y * p2y) + (z * p2z) + c;
+
+					normal.x = x; normal.y = y; normal.z = z;
+					offset = shape.getOffset(normal);
+
+					if ( t1 >= offset + 1f && t2 >= offset + 1f ) {
+						node = front[node];
+						continue;
+					}
+
+					offset2 = shape.getOffsetNegated(normal);
+
+					if ( t1 <= -offset2 - 1f  && t2 <= -offset2 - 1f ) {
+						node = rear[node];
+						continue;
+					}
+
+					if ( t1 < t2 ) {
+						idist = 1f/(t1-t2);
+						node1 = rear[node];
+						node2 = front[node];
+						frac2 = (t1 + offset2 + Util4Phys.CLIP_EPSILON)*idist;
+						frac = (t1 - offset2 + Util4Phys.CLIP_EPSILON)*idist;
+					} else if (t1 > t2) {
+						idist = 1f/(t1-t2);
+						node1 = front[node];
+						node2 = rear[node];
+						frac2 = (t1 - offset - Util4Phys.CLIP_EPSILON)*idist;
+						frac = (t1 + offset + Util4Phys.CLIP_EPSILON)*idist;
+					} else {
+						node1 = rear[node];
+						node2 = front[node];
+						frac = 1;
+						frac2 = 0;
+					}
+
+					if ( frac < 0 ) frac = 0;
+					if ( frac > 1 ) frac = 1;
+					if ( frac2 < 0 ) frac2 = 0;
+					if ( frac2 > 1 ) frac2 = 1;
+
+					// the far side is traced after the near side
+					float[] stack = ctx.flatStack(sp + 1);
+					int[] stackNodes = ctx.flatStackNodes();
+					int s = sp * 8;
+					stackNodes[sp] = node2;
+					stack[s]   = p1f + (p2f - p1f)*frac2;
+					stack[s+1] = p2f;
+					stack[s+2] = p1x + frac2*(p2x - p1x);
+					stack[s+3] = p1y + frac2*(p2y - p1y);
+					stack[s+4] = p1z + frac2*(p2z - p1z);
+					stack[s+5] = p2x;
+					stack[s+6] = p2y;
+					stack[s+7] = p2z;
+					sp++;
+
+					// the near side
+					midf = p1f + (p2f - p1f)*frac;
+					p2x = p1x + frac*(p2x - p1x);
+					p2y = p1y + frac*(p2y - p1y);
+					p2z = p1z + frac*(p2z - p1z);
+					p2f = midf;
+					node = node1;
+					continue;
+				}
+			}
+
+			if (sp==0)
+				break;
+
+			sp--;
+			float[] stack = ctx.flatStack(0);
+			int s = sp * 8;
+			node = ctx.flatStackNodes()[sp];
+			p1f = stack[s];
+			p2f = stack[s+1];
+			p1x = stack[s+2];
+			p1y = stack[s+3];
+			p1z = stack[s+4];
+			p2x = stack[s+5];
+			p2y = stack[s+6];
+			p2z = stack[s+7];
+		}
+
+		if (impact.dummy)
+			trace.dummy = true;
+
+		if (impact.isImpact())
+			return trace.setNearerImpact(impact.correction, impact.fractionImpact, impact.fractionReal);
+
+		return false;
+	}
+
+
+	/**
+	 * Traces the specified convex brush and stores the nearer impact in the trace.
+	 *
+	 * @param b : the brush index
+	 * @param impact : the trace
+	 * @param normal : a working vector
+	 */
+	private void traceBrush(int b, Trace impact, JGL_3DVector normal) {
+
+		float offset, d1, d2, dDiff, fReal;
+		float tReal = 1f;
+		float tImpact = 1f;
+		JGL_3DPlane tPlane = null;
+
+		Shape shape = impact.cshape;
+		float sx = impact.start.x, sy = impact.start.y, sz = impact.start.z;
+		float ex = impact.end.x, ey = impact.end.y, ez = impact.end.z;
+
+		int end = brushStart[b] + brushCount[b];
+		for (int i=brushStart[b]; i<end; i++) {
+
+			float x = bx[i];
+			float y = by[i];
+			float z = bz[i];
+			normal.x = x; normal.y = y; normal.z = z;
+			offset = shape.getOffset(normal);
+
+			d1 = (x * sx) + (y * sy) + (z * sz) + bd[i];
+			d2 = (x * ex) + (y * ey) + (z * ez) + bd[i];
+
+			// before the plane : no impact with the brush
+			if (d1>offset && d2>offset)
+				return;
+
+			// crosses the plane : keeps the farer impact
+			if (d1>offset && d2<=offset) {
+				d1 -= offset;
+				d2 -= offset;
+				dDiff = 1f / (d1 - d2);
+				fReal = d1 * dDiff;
+				if (tReal>=1f || fReal>tReal) {
+					tPlane = bPlanes[i];
+					tReal = fReal;
+					tImpact = (d1 - Util4Phys.MIN_DISTANCE) * dDiff;
+				}
+			}
+		}
+
+		if (tReal<1f)
+			impact.setNearerImpact(tPlane, tImpact, tReal);
+		else
+			impact.dummy = true;
+	}
+
+}
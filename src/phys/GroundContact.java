@@ -0,0 +1,194 @@
+//	Copyright 2009 Nicolas Devere
+//
+//	This file is part of FLESH SNATCHER.
+//
+//	FLESH SNATCHER is free software; you can redistribute it and/or modify
+//	it under the terms of the GNU General Public License as published by
+//	the Free Software Foundation; either version 2 of the License, or
+//	(at your option) any later version.
+//
+//	FLESH SNATCHER is distributed in the hope that it will be useful,
+//	but WITHOUT ANY WARRANTY; without even the implied warranty of
+//	MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+//	GNU General Public License for more details.
+//
+//	You should have received a copy of the GNU General Public License
+//	along with FLESH SNATCHER; if not, write to the Free Software
+//	Foundation, Inc., 51 Franklin St, Fifth Floor, Boston, MA  02110-1301  USA
+
+package phys;
+
+import java.util.concurrent.atomic.AtomicLong;
+
+import jglcore.JGL_3DPlane;
+import jglcore.JGL_3DVector;
+
+
+/**
+ * Last ground impact of a moving shape against the static collision objects.<br>
+ * The contact stays valid while the shape remains on the same ground plane, 
+ * within <code>RADIUS</code> of the probe position, and while the static 
+ * collision objects don't change. Only floor impacts are kept.
+ * 
+ * @author Nicolas Devere
+ *
+ */
+public final class GroundContact {
+	
+	
+	/** Horizontal distance from the probe position in which the contact is valid */
+	public static float RADIUS = 0.5f;
+	
+	// Statistics
+	private static AtomicLong probes = new AtomicLong();
+	private static AtomicLong skipped = new AtomicLong();
+	
+	
+	private boolean valid;
+	private JGL_3DPlane plane;
+	private Object node;
+	private int version;
+	private float x, z;
+	private float distance;
+	
+	
+	
+	/**
+	 * Constructs an invalid contact.
+	 */
+	public GroundContact() {
+		valid = false;
+		plane = new JGL_3DPlane(0f, 1f, 0f);
+		node = null;
+		version = 0;
+	}
+	
+	
+	/**
+	 * Invalidates the contact, the next ground trace is searched.
+	 */
+	public void invalidate() {
+		valid = false;
+		node = null;
+	}
+	
+	
+	/**
+	 * Returns if the contact is valid for the specified position and static objects version.
+	 * 
+	 * @param pos : the shape position
+	 * @param _version : the current version of the static collision objects
+	 * @return if the contact is valid
+	 */
+	public boolean isValid(JGL_3DVector pos, int _version) {
+		
+		if (!valid)
+			return false;
+		
+		// Moving away from the ground plane, or through it, needs a new probe
+		float dx = pos.x - x;
+		float dz = pos.z - z;
+		float d = plane.distance(pos);
+		if (_version!=version || (dx * dx) + (dz * dz) > RADIUS * RADIUS || 
+				d > distance || d < distance - Util4Phys.GROUND_CHECK) {
+			valid = false;
+			node = null;
+			return false;
+		}
+		return true;
+	}
+	
+	
+	/**
+	 * Sets the stored impact plane in the specified trace, with the fractions 
+	 * of the trace segment against it, and counts a skipped probe. 
+	 * If the segment doesn't reach the plane, the contact is invalidated.
+	 * 
+	 * @param trace : the ground trace
+	 * @return if the impact is set
+	 */
+	public boolean restore(Trace trace) {
+		
+		// Same fractions as a trace against the plane, from the current position
+		float offset = trace.cshape.getOffset(plane.normal);
+		float d1 = plane.distance(trace.start) - offset;
+		float d2 = plane.distance(trace.end) - offset;
+		float dDiff = d1 - d2;
+		float fReal = (dDiff > 0f) ? d1 / dDiff : 2f;
+		if (fReal < 0f || fReal > 1f) {
+			invalidate();
+			return false;
+		}
+		
+		trace.setImpact(plane, (d1 - Util4Phys.MIN_DISTANCE) / dDiff, fReal);
+		skipped.incrementAndGet();
+		return true;
+	}
+	
+	
+	/**
+	 * Stores the impact of the specified ground trace if it is a floor impact, 
+	 * and counts a probe.
+	 * 
+	 * @param trace : the ground trace, against the static objects only
+	 * @param _node : the static object which gave the impact
+	 * @param _version : the current version of the static collision objects
+	 */
+	public void store(Trace trace, Object _node, int _version) {
+		
+		probes.incrementAndGet();
+		
+		if (trace.dummy || !trace.isImpact() || _node==null || trace.correction.normal.y <= Util4Phys.FLOOR_NORMAL) {
+			invalidate();
+			return;
+		}
+		
+		valid = true;
+		plane.assign(trace.correction);
+		node = _node;
+		version = _version;
+		x = trace.start.x;
+		z = trace.start.z;
+		distance = plane.distance(trace.start);
+	}
+	
+	
+	/**
+	 * Returns the static object of the contact, or null if the contact is invalid.
+	 * 
+	 * @return the static object of the contact
+	 */
+	public Object getNode() {
+		return node;
+	}
+	
+	
+	/**
+	 * Returns the number of ground traces searched against the static objects.
+	 * 
+	 * @return the number of ground probes
+	 */
+	public static long getProbes() {
+		return probes.get();
+	}
+	
+	
+	/**
+	 * Returns the number of ground traces given by a valid contact.
+	 * 
+	 * @return the number of skipped ground probes
+	 */
+	public static long getSkipped() {
+		return skipped.get();
+	}
+	
+	
+	/**
+	 * Resets the probes counters.
+	 */
+	public static void resetCounters() {
+		probes.set(0L);
+		skipped.set(0L);
+	}
+	
+}
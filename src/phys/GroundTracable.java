@@ -0,0 +1,42 @@
+//	Copyright 2009 Nicolas Devere
+//
+//	This file is part of FLESH SNATCHER.
+//
+//	FLESH SNATCHER is free software; you can redistribute it and/or modify
+//	it under the terms of the GNU General Public License as published by
+//	the Free Software Foundation; either version 2 of the License, or
+//	(at your option) any later version.
+//
+//	FLESH SNATCHER is distributed in the hope that it will be useful,
+//	but WITHOUT ANY WARRANTY; without even the implied warranty of
+//	MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+//	GNU General Public License for more details.
+//
+//	You should have received a copy of the GNU General Public License
+//	along with FLESH SNATCHER; if not, write to the Free Software
+//	Foundation, Inc., 51 Franklin St, Fifth Floor, Boston, MA  02110-1301  USA
+
+package phys;
+
+
+/**
+ * Interface for tracable objects whose static part can give its ground impact 
+ * through a ground contact cache.
+ * 
+ * @author Nicolas Devere
+ *
+ */
+public interface GroundTracable extends Tracable {
+	
+	/**
+	 * Searches and stores collision impact against this object. The impact against 
+	 * the static part is read from the specified contact if it is still valid, 
+	 * otherwise it is searched and stored in the contact.
+	 * 
+	 * @param trace : describes the shape movement and stores the impact data.
+	 * @param contact : the ground contact cache of the moving shape
+	 * @return if a collision occurs
+	 */
+	public boolean trace(Trace trace, GroundContact contact);
+
+}
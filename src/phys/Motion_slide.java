@@ -46,6 +46,7 @@ public final class Motion_slide implements Motion {
 	private JGL_3DVector stepSeg;
 	private JGL_3DVector act_pos;
 	private JGL_3DVector old_pos;
+	private GroundContact contact;
 	
 	
 	/**
@@ -70,6 +71,7 @@ public final class Motion_slide implements Motion {
 		stepSeg = new JGL_3DVector();
 		act_pos = new JGL_3DVector();
 		old_pos = new JGL_3DVector();
+		contact = new GroundContact();
 	}
 	
 	
@@ -107,7 +109,13 @@ public final class Motion_slide implements Motion {
 		tr.reset(cshape, pos, pos);
 		tr.end.y -= Util4Phys.GROUND_CHECK;
 		tr.segment.y -= Util4Phys.GROUND_CHECK;
-		tracable.trace(tr);
+		if (tracable instanceof GroundTracable) {
+			if (mover.isJumping())
+				contact.invalidate();
+			((GroundTracable)tracable).trace(tr, contact);
+		}
+		else
+			tracable.trace(tr);
 		if (!tr.dummy && tr.isImpact() && tr.correction.normal.y > Util4Phys.FLOOR_NORMAL)
 			near_ground = true;
 		
@@ -288,6 +296,16 @@ public final class Motion_slide implements Motion {
 		return trace;
 	}
 	
+	
+	/**
+	 * Returns the ground contact cache of the ground checks.
+	 * 
+	 * @return the ground contact cache
+	 */
+	public GroundContact getGroundContact() {
+		return contact;
+	}
+	
 
 	public Object clone() {
 		return new Motion_slide(step);
@@ -201,6 +201,18 @@ public final class Mover_gravity implements Mover {
 	}
 	
 	
+	/**
+	 * Stops the mover : no pending move, no fall and no jump.
+	 */
+	public void reset() {
+		trans.assign(0f, 0f, 0f);
+		mov.assign(0f, 0f, 0f);
+		resetGravity();
+		jump = false;
+		yi = yCumul = 0f;
+	}
+	
+	
 	/**
 	 * Resets the gravity parameters as if it's no fall.
 	 */
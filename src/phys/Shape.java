@@ -54,6 +54,16 @@ public interface Shape extends Tracable {
 	public float getOffset(JGL_3DVector planeNormal);
 	
 	
+	/**
+	 * Returns the shape offset according to the inverse of the specified plane normal, 
+	 * without modifying the normal.
+	 * 
+	 * @param planeNormal : the normal of the plane to invert
+	 * @return the offset
+	 */
+	public float getOffsetNegated(JGL_3DVector planeNormal);
+	
+	
 	/**
 	 * Returns if the specified shape is intersecting this shape.
 	 * 
@@ -120,6 +120,27 @@ public final class Shape_aabb implements Shape {
 	}
 	
 	
+	public float getOffsetNegated(JGL_3DVector planeNormal) {
+		
+		float xc, yc, zc;
+		
+		float xn = planeNormal.x;
+		float yn = planeNormal.y;
+		float zn = planeNormal.z;
+		
+		if (xn<0f) xc = min.x;
+		else xc = max.x;
+		
+		if (yn<0f) yc = min.y;
+		else yc = max.y;
+		
+		if (zn<0f) zc = min.z;
+		else zc = max.z;
+		
+		return Math.abs((xc * xn) + (yc * yn) + (zc * zn));
+	}
+	
+	
 	/**
 	 * Searches and stores collision impact 
 	 * from the specified shape against this object.
@@ -268,6 +289,41 @@ public final class Shape_aabb implements Shape {
 	}
 	
 	
+	/**
+	 * Searches and stores collision impact 
+	 * from the specified shape against this object.<br>
+	 * The impact plane stored in the trace belongs to the context, 
+	 * and is only valid until the next shape trace with this context.
+	 * 
+	 * @param trace : describes the shape movement and stores the impact data.
+	 * @param ctx : the context storing the working objects
+	 * @return if a collision occurs
+	 */
+	public boolean trace(Trace trace, TraceContext ctx) {
+		
+		if (trace.dummy)
+			return false;
+		
+		Trace impact = ctx.shape;
+		impact.reset(trace.cshape, trace.start, trace.end);
+		JGL_Math.vector_subtract(impact.start, pos, impact.start);
+		JGL_Math.vector_subtract(impact.end, pos, impact.end);
+		
+		bsp.trace(impact, ctx);
+		
+		if (impact.dummy) {
+			trace.dummy = true;
+			return false;
+		}
+		
+		if (impact.isImpact()) {
+			JGL_Math.plane_translate(impact.correction, pos, ctx.result);
+			return trace.setNearerImpact(ctx.result, impact.fractionImpact, impact.fractionReal);
+		}
+		return false;
+	}
+	
+	
 	
 	public boolean isIn(Shape shape) {
 		
@@ -55,6 +55,11 @@ public class Shape_bsp implements Shape {
 		// TODO Auto-generated method stub
 		return -1f;
 	}
+	
+	@Override
+	public float getOffsetNegated(JGL_3DVector planeNormal) {
+		return -1f;
+	}
 
 	@Override
 	public JGL_3DVector getPosition() {
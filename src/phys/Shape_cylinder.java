@@ -80,6 +80,22 @@ public final class Shape_cylinder implements Shape {
 	}
 	
 	
+	public float getOffsetNegated(JGL_3DVector planeNormal) {
+		
+		float yn = planeNormal.y;
+		
+		if (yn==0f) return rad;
+		
+		if (yn<0f) {
+			if (yn==-1f) return -fl;
+			return Math.abs(fl * yn) + Math.abs( rad * (float)Math.sqrt((1f - (yn * yn))) );
+		}
+		
+		if (yn==1f) return ce;
+		return Math.abs(ce * yn) + Math.abs( rad * (float)Math.sqrt((1f - (yn * yn))) );
+	}
+	
+	
 	public boolean isIn(Shape shape) {
 		return false;
 	}
@@ -72,6 +72,11 @@ public final class Shape_sphere implements Shape {
 	}
 	
 	
+	public float getOffsetNegated(JGL_3DVector planeNormal) {
+		return offset;
+	}
+	
+	
 	
 	/**
 	 * returns the sphere offset.
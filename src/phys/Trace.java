@@ -55,30 +55,30 @@ public final class Trace {
 	
 	/** State of the trace */
 	public boolean dummy;
+	
+	// Copy of an impact plane which doesn't belong to a collision object
+	private JGL_3DPlane impactPlane;
 
 
 	public static short VOLUME_PRECISION 	= 0;
 	public static short FACE_PRECISION		= 1;
 	private static short s_precision;
 
-	// trace method
-	private static Trace s_impact;
-	private static Trace s_impact_t;
-
-	// triangleTrace method
-	private static JGL_3DVector s_intersect;
-
-	// nodeSphereIntersection method
-	private static JGL_3DVector s_impactPoint_sav;
-
 	static {
 		s_precision = VOLUME_PRECISION;
-
-		s_impact = new Trace();
-		s_impact_t = new Trace();
-
-		s_intersect = new JGL_3DVector();
-		s_impactPoint_sav = new JGL_3DVector();
+	}
+	
+	
+	/**
+	 * Sets the precision level of the BSP traces of this class, used by the
+	 * height-map cells. See <code>Tracer.setTracePrecision</code>.
+	 *
+	 * @param arg : <code>Trace.VOLUME_PRECISION</code> or
+	 * 				<code>Trace.FACE_PRECISION</code>
+	 */
+	public static void setTracePrecision(short arg) {
+		if (arg==VOLUME_PRECISION || arg==FACE_PRECISION)
+			s_precision = arg;
 	}
 	
 	
@@ -90,6 +90,7 @@ public final class Trace {
 		start = new JGL_3DVector();
 		end = new JGL_3DVector();
 		segment = new JGL_3DVector();
+		impactPlane = new JGL_3DPlane(0f, 1f, 0f);
 		clearImpact();
 	}
 	
@@ -148,6 +149,30 @@ public final class Trace {
 	}
 	
 	
+	/**
+	 * Stores a copy of the specified impact plane and the impact data, only if 
+	 * the specified real fraction is lesser than the object's one. The copy 
+	 * belongs to the trace : it is used for the planes which change after 
+	 * the call, like the working planes of a trace context.
+	 * 
+	 * @param _correction : the impact plane to copy
+	 * @param fraction_impact : the impact fraction compared to the full segment
+	 * @param fraction_real : the real intersection fraction compared to the full segment
+	 * @return if the impact is stored or not
+	 */
+	public boolean setNearerImpactCopy(JGL_3DPlane _correction, float fraction_impact, float fraction_real) {
+		
+		if(fraction_real < fractionReal) {
+			impactPlane.assign(_correction);
+			correction = impactPlane;
+			fractionReal = fraction_real;
+			fractionImpact = fraction_impact;
+			return true;
+		}
+		return false;
+	}
+	
+	
 	/**
 	 * Stores the specified impact data, only if the specified real fraction 
 	 * is bigger than the object's one.
@@ -206,24 +231,39 @@ public final class Trace {
 	 * @return if an intersection occurs with the BSP
 	 */
 	public boolean trace(JGL_3DBsp bsp, boolean convex) {
+		return trace(bsp, convex, TraceContext.get());
+	}
+
 
-		s_impact.reset(this.cshape, this.start, this.end);
+	/**
+	 * Tests the intersection between a collision shape and a BSP,
+	 * and stores the result in the specified trace.
+	 *
+	 * @param bsp : the BSP
+	 * @param convex : if the BSP is convex or not
+	 * @param ctx : the context storing the working objects
+	 * @return if an intersection occurs with the BSP
+	 */
+	public boolean trace(JGL_3DBsp bsp, boolean convex, TraceContext ctx) {
+
+		Trace impact = ctx.impact;
+		impact.reset(this.cshape, this.start, this.end);
 
 		if (s_precision == VOLUME_PRECISION) {
-			s_impact_t.reset(this.cshape, this.start, this.end);
+			ctx.impactT.reset(this.cshape, this.start, this.end);
 			if (convex)
-				convexTrace(bsp);
+				convexTrace(bsp, ctx);
 			else
-				solidTrace(bsp);
+				solidTrace(bsp, ctx);
 		}
 		else
-			triangleTrace(bsp);
+			triangleTrace(bsp, ctx);
 
-		if (s_impact.dummy)
+		if (impact.dummy)
 			this.dummy = true;
 
-		if (s_impact.isImpact())
-			return this.setNearerImpact(s_impact.correction, s_impact.fractionImpact, s_impact.fractionReal);
+		if (impact.isImpact())
+			return this.setNearerImpact(impact.correction, impact.fractionImpact, impact.fractionReal);
 		return false;
 	}
 
@@ -233,9 +273,12 @@ public final class Trace {
 	 * Tests the intersection with the specified BSP.
 	 *
 	 * @param bsp : the BSP
+	 * @param ctx : the trace context
 	 */
-	private void solidTrace(JGL_3DBsp bsp) {
+	private static void solidTrace(JGL_3DBsp bsp, TraceContext ctx) {
 
+		Trace impact = ctx.impact;
+		Trace impact_t = ctx.impactT;
 		float offset;
 		float d1, d2, dDiff;
 		float fReal, fImpact;
@@ -243,40 +286,38 @@ public final class Trace {
 
 		// empty leaf
 		if (bsp.type == JGL_3DBsp.EMPTY_LEAF) {
-			s_impact_t.clearImpact();
+			impact_t.clearImpact();
 			return;
 		}
 
 		// solid leaf
 		if (bsp.type == JGL_3DBsp.SOLID_LEAF) {
-			if (s_impact_t.isImpact())
-				s_impact.setNearerImpact(s_impact_t.correction, s_impact_t.fractionImpact, s_impact_t.fractionReal);
+			if (impact_t.isImpact())
+				impact.setNearerImpact(impact_t.correction, impact_t.fractionImpact, impact_t.fractionReal);
 			else
-				s_impact.dummy = true;
-			s_impact_t.clearImpact();
+				impact.dummy = true;
+			impact_t.clearImpact();
 			return;
 		}
 
 		// node
 
-		offset = s_impact_t.cshape.getOffset(bsp.plane.normal);
+		offset = impact_t.cshape.getOffset(bsp.plane.normal);
 
-		d1 = bsp.plane.distance(s_impact.start);
-		d2 = bsp.plane.distance(s_impact.end);
+		d1 = bsp.plane.distance(impact.start);
+		d2 = bsp.plane.distance(impact.end);
 
 		// before the node
 		if (d1>offset && d2>offset) {
-			solidTrace(bsp.front);
+			solidTrace(bsp.front, ctx);
 			return;
 		}
 
-		bsp.plane.normal.invert();
-		float offset2 = s_impact.cshape.getOffset(bsp.plane.normal);
-		bsp.plane.normal.invert();
+		float offset2 = impact.cshape.getOffsetNegated(bsp.plane.normal);
 
 		// behind the node
 		if (d1<=-offset2 && d2<=-offset2) {
-			solidTrace(bsp.rear);
+			solidTrace(bsp.rear, ctx);
 			return;
 		}
 
@@ -287,53 +328,55 @@ public final class Trace {
 			d2 -= offset;
 			dDiff = 1f / (d1 - d2);
 			fReal = d1 * dDiff;
-			if (fReal>=s_impact.fractionReal)
+			if (fReal>=impact.fractionReal)
 				return;
 
-			if (fReal<s_impact_t.fractionReal) {
+			if (fReal<impact_t.fractionReal) {
 				vect_i = bsp.plane;
 				fImpact = (d1 - Util4Phys.MIN_DISTANCE) * dDiff;
-				s_impact_t.setImpact(vect_i, fImpact, fReal);
+				impact_t.setImpact(vect_i, fImpact, fReal);
 			}
 			else {
-				vect_i = s_impact_t.correction;
-				fReal = s_impact_t.fractionReal;
-				fImpact = s_impact_t.fractionImpact;
+				vect_i = impact_t.correction;
+				fReal = impact_t.fractionReal;
+				fImpact = impact_t.fractionImpact;
 			}
 		}
 		else {
-			vect_i = s_impact_t.correction;
-			fReal = s_impact_t.fractionReal;
-			fImpact = s_impact_t.fractionImpact;
+			vect_i = impact_t.correction;
+			fReal = impact_t.fractionReal;
+			fImpact = impact_t.fractionImpact;
 		}
 
-		solidTrace(bsp.rear);
-		s_impact_t.setImpact(vect_i, fImpact, fReal);
-		solidTrace(bsp.front);
+		solidTrace(bsp.rear, ctx);
+		impact_t.setImpact(vect_i, fImpact, fReal);
+		solidTrace(bsp.front, ctx);
 	}
 
 
 
-	private void convexTrace(JGL_3DBsp bsp) {
+	private static void convexTrace(JGL_3DBsp bsp, TraceContext ctx) {
 
+		Trace impact = ctx.impact;
+		Trace impact_t = ctx.impactT;
 		float offset;
 		float d1, d2, dDiff;
 
 		// Leaf reached
 		if (bsp.type == JGL_3DBsp.SOLID_LEAF) {
-			if (s_impact_t.isImpact())
-				s_impact.setImpact(s_impact_t.correction, s_impact_t.fractionImpact, s_impact_t.fractionReal);
+			if (impact_t.isImpact())
+				impact.setImpact(impact_t.correction, impact_t.fractionImpact, impact_t.fractionReal);
 			else
-				s_impact.dummy = true;
+				impact.dummy = true;
 			return;
 		}
 
 		// node
 
-		offset = s_impact.cshape.getOffset(bsp.plane.normal);
+		offset = impact.cshape.getOffset(bsp.plane.normal);
 
-		d1 = bsp.plane.distance(s_impact.start);
-		d2 = bsp.plane.distance(s_impact.end);
+		d1 = bsp.plane.distance(impact.start);
+		d2 = bsp.plane.distance(impact.end);
 
 		// before the node
 		if (d1>offset && d2>offset)
@@ -344,9 +387,9 @@ public final class Trace {
 			d1 -= offset;
 			d2 -= offset;
 			dDiff = 1f / (d1 - d2);
-			s_impact_t.setFarerImpact(bsp.plane, (d1 - Util4Phys.MIN_DISTANCE) * dDiff, d1 * dDiff);
+			impact_t.setFarerImpact(bsp.plane, (d1 - Util4Phys.MIN_DISTANCE) * dDiff, d1 * dDiff);
 		}
-		convexTrace(bsp.rear);
+		convexTrace(bsp.rear, ctx);
 	}
 
 
@@ -354,29 +397,31 @@ public final class Trace {
 	 * Tests the intersection with the triangles from the specified BSP.
 	 *
 	 * @param bsp : the BSP
+	 * @param ctx : the trace context
 	 */
-	private void triangleTrace(JGL_3DBsp bsp) {
+	private static void triangleTrace(JGL_3DBsp bsp, TraceContext ctx) {
 
 		if(bsp.type != JGL_3DBsp.NODE)
 			return;
 
-		float offset = s_impact.cshape.getOffset(bsp.plane.normal);
+		Trace impact = ctx.impact;
+		JGL_3DVector intersect = ctx.intersect;
+
+		float offset = impact.cshape.getOffset(bsp.plane.normal);
 
-		float d1 = bsp.plane.distance(s_impact.start);
-		float d2 = bsp.plane.distance(s_impact.end);
+		float d1 = bsp.plane.distance(impact.start);
+		float d2 = bsp.plane.distance(impact.end);
 
 		// before the node
 		if (d1>offset && d2>offset)
-			triangleTrace(bsp.front);
+			triangleTrace(bsp.front, ctx);
 
 			// behind the node
 		else if (d1<=offset && d2<=offset) {
-			triangleTrace(bsp.rear);
-			bsp.plane.normal.invert();
-			float offset2 = s_impact.cshape.getOffset(bsp.plane.normal);
-			bsp.plane.normal.invert();
+			triangleTrace(bsp.rear, ctx);
+			float offset2 = impact.cshape.getOffsetNegated(bsp.plane.normal);
 			if (d1>=-offset2 && d2>=-offset2)
-				triangleTrace(bsp.front);
+				triangleTrace(bsp.front, ctx);
 		}
 
 		// crosses the node
@@ -386,9 +431,9 @@ public final class Trace {
 			float ny = bsp.plane.normal.y * offset;
 			float nz = bsp.plane.normal.z * offset;
 
-			float ex = s_impact.start.x - nx;
-			float ey = s_impact.start.y - ny;
-			float ez = s_impact.start.z - nz;
+			float ex = impact.start.x - nx;
+			float ey = impact.start.y - ny;
+			float ez = impact.start.z - nz;
 
 			if (d1 > 0f) {
 				d1 -= offset;
@@ -397,18 +442,18 @@ public final class Trace {
 				if(d_diff != 0f) {
 
 					float frac = d1 / d_diff;
-					s_intersect.x = ex + (((s_impact.end.x - nx) - ex) * frac);
-					s_intersect.y = ey + (((s_impact.end.y - ny) - ey) * frac);
-					s_intersect.z = ez + (((s_impact.end.z - nz) - ez) * frac);
+					intersect.x = ex + (((impact.end.x - nx) - ex) * frac);
+					intersect.y = ey + (((impact.end.y - ny) - ey) * frac);
+					intersect.z = ez + (((impact.end.z - nz) - ez) * frac);
 
-					if (nodeSphereIntersection(bsp, s_intersect, offset))
-						s_impact.setNearerImpact(bsp.plane, (d1 - Util4Phys.MIN_DISTANCE) / d_diff, frac);
+					if (nodeSphereIntersection(bsp, intersect, offset, ctx.impactPointSav))
+						impact.setNearerImpact(bsp.plane, (d1 - Util4Phys.MIN_DISTANCE) / d_diff, frac);
 				}
 			}
 
-			triangleTrace(bsp.front);
-			if(!s_impact.isImpact())
-				triangleTrace(bsp.rear);
+			triangleTrace(bsp.front, ctx);
+			if(!impact.isImpact())
+				triangleTrace(bsp.rear, ctx);
 		}
 
 	}
@@ -422,9 +467,10 @@ public final class Trace {
 	 * @param node : the BSP node
 	 * @param center : the sphere center
 	 * @param offset : the sphere offset
+	 * @param impactPoint_sav : the segment / sphere intersection point
 	 * @return if there is intersection between the BSP node triangles and the sphere.
 	 */
-	private boolean nodeSphereIntersection(JGL_3DBsp node, JGL_3DVector center, float offset) {
+	private static boolean nodeSphereIntersection(JGL_3DBsp node, JGL_3DVector center, float offset, JGL_3DVector impactPoint_sav) {
 
 		float d;
 		short pos;
@@ -439,19 +485,19 @@ public final class Trace {
 				return true;
 
 			else if (pos==1 || pos==2) {
-				d = Util4Phys.segmentSphereIntersection(center, offset, t.point1, t.point2, s_impactPoint_sav);
+				d = Util4Phys.segmentSphereIntersection(center, offset, t.point1, t.point2, impactPoint_sav);
 				if (d < sqrOffset)
 					return true;
 			}
 
 			else if (pos==3 || pos==4) {
-				d = Util4Phys.segmentSphereIntersection(center, offset, t.point2, t.point3, s_impactPoint_sav);
+				d = Util4Phys.segmentSphereIntersection(center, offset, t.point2, t.point3, impactPoint_sav);
 				if (d < sqrOffset)
 					return true;
 			}
 
 			else if (pos==5 || pos==6) {
-				d = Util4Phys.segmentSphereIntersection(center, offset, t.point3, t.point1, s_impactPoint_sav);
+				d = Util4Phys.segmentSphereIntersection(center, offset, t.point3, t.point1, impactPoint_sav);
 				if (d < sqrOffset)
 					return true;
 			}
@@ -0,0 +1,187 @@
+//	Copyright 2009 Nicolas Devere
+//
+//	This file is part of FLESH SNATCHER.
+//
+//	FLESH SNATCHER is free software; you can redistribute it and/or modify
+//	it under the terms of the GNU General Public License as published by
+//	the Free Software Foundation; either version 2 of the License, or
+//	(at your option) any later version.
+//
+//	FLESH SNATCHER is distributed in the hope that it will be useful,
+//	but WITHOUT ANY WARRANTY; without even the implied warranty of
+//	MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+//	GNU General Public License for more details.
+//
+//	You should have received a copy of the GNU General Public License
+//	along with FLESH SNATCHER; if not, write to the Free Software
+//	Foundation, Inc., 51 Franklin St, Fifth Floor, Boston, MA  02110-1301  USA
+
+package phys;
+
+import jglcore.JGL_3DBsp;
+import jglcore.JGL_3DPlane;
+import jglcore.JGL_3DTriangle;
+import jglcore.JGL_3DVector;
+
+
+/**
+ * Stores the working objects of a collision sweep.<br>
+ * A context must only be used by one thread at a time. The methods
+ * without context parameter use the current thread's default context,
+ * so sweeps running on different threads never share their working objects.
+ *
+ * @author Nicolas Devere
+ *
+ */
+public final class TraceContext {
+
+
+	private static ThreadLocal s_default = new ThreadLocal() {
+		protected Object initialValue() {
+			return new TraceContext();
+		}
+	};
+
+
+	/** BSP trace : the nearest impact */
+	public Trace impact;
+
+	/** BSP trace : the impact of the current volume */
+	public Trace impactT;
+
+	/** BSP tree trace */
+	public Trace tree;
+
+	/** Bounding shape trace */
+	public Trace shape;
+
+	/** Collision node trace */
+	public Trace test;
+
+	/** Point shape used by segment intersection tests */
+	public Shape_sphere point;
+
+	/** Point shape used by the brush inclusion tests */
+	public Shape_sphere vertex;
+
+	/** Triangle trace : the intersection point */
+	public JGL_3DVector intersect;
+
+	/** Triangle trace : the segment / sphere intersection point */
+	public JGL_3DVector impactPointSav;
+
+	/** Bounding shape trace : the translated impact plane */
+	public JGL_3DPlane result;
+
+	/** Working vector used for the shape offsets */
+	public JGL_3DVector normal;
+
+	/** Height-map trace : the BSP of the current cell, rebuilt for each tested cell */
+	public JGL_3DBsp cell;
+
+	/** Height-map trace : the first triangle of the current cell */
+	public JGL_3DTriangle cellFace1;
+
+	/** Height-map trace : the second triangle of the current cell */
+	public JGL_3DTriangle cellFace2;
+
+	/** Height-map trace : the working impact plane of the cells walk, copied by the trace */
+	public JGL_3DPlane cellImpact;
+
+	private boolean[] brushTested;
+	private float[] stack;
+	private int[] stackNodes;
+
+
+	/**
+	 * Constructs a new trace context.
+	 */
+	public TraceContext() {
+		impact = new Trace();
+		impactT = new Trace();
+		tree = new Trace();
+		shape = new Trace();
+		test = new Trace();
+		point = new Shape_sphere(new JGL_3DVector(), 0.05f);
+		vertex = new Shape_sphere(new JGL_3DVector(), 0.0005f);
+		intersect = new JGL_3DVector();
+		impactPointSav = new JGL_3DVector();
+		result = new JGL_3DPlane(0f, 1f, 0f);
+		normal = new JGL_3DVector();
+		cell = new JGL_3DBsp();
+		cellFace1 = new JGL_3DTriangle(new JGL_3DVector(), new JGL_3DVector(), new JGL_3DVector());
+		cellFace2 = new JGL_3DTriangle(new JGL_3DVector(), new JGL_3DVector(), new JGL_3DVector());
+		cellImpact = new JGL_3DPlane(0f, 1f, 0f);
+		brushTested = new boolean[0];
+		stack = new float[64 * 8];
+		stackNodes = new int[64];
+	}
+
+
+	/**
+	 * Returns the default context of the current thread.
+	 *
+	 * @return the default context of the current thread
+	 */
+	public static TraceContext get() {
+		return (TraceContext)s_default.get();
+	}
+
+
+	/**
+	 * Clears and returns the tested brushes flags, with at least the specified size.
+	 *
+	 * @param size : the brushes number
+	 * @return the cleared flags
+	 */
+	boolean[] clearBrushes(int size) {
+		if (brushTested.length<size)
+			brushTested = new boolean[size];
+		else
+			for (int i=0; i<size; i++)
+				brushTested[i] = false;
+		return brushTested;
+	}
+
+
+	/**
+	 * Returns the tested brushes flags.
+	 *
+	 * @return the tested brushes flags
+	 */
+	boolean[] getBrushes() {
+		return brushTested;
+	}
+
+
+	/**
+	 * Returns the flat BSP traversal stack, with at least the specified frames number.
+	 * A frame stores 8 floats.
+	 *
+	 * @param frames : the frames number
+	 * @return the traversal stack
+	 */
+	float[] flatStack(int frames) {
+		if (stackNodes.length<frames) {
+			int size = Math.max(frames, stackNodes.length * 2);
+			float[] s = new float[size * 8];
+			int[] n = new int[size];
+			System.arraycopy(stack, 0, s, 0, stack.length);
+			System.arraycopy(stackNodes, 0, n, 0, stackNodes.length);
+			stack = s;
+			stackNodes = n;
+		}
+		return stack;
+	}
+
+
+	/**
+	 * Returns the nodes of the flat BSP traversal stack.
+	 *
+	 * @return the stacked nodes
+	 */
+	int[] flatStackNodes() {
+		return stackNodes;
+	}
+
+}
@@ -38,25 +38,8 @@ public final class Tracer {
 	private static short s_precision;
 	
 	
-	// trace method
-	private static Trace s_impact;
-	private static Trace s_impact_t;
-	
-	// triangleTrace method
-	private static JGL_3DVector s_intersect;
-	
-	// nodeSphereIntersection method
-	private static JGL_3DVector s_impactPoint_sav;
-	
-	
 	static {
 		s_precision = VOLUME_PRECISION;
-		
-		s_impact = new Trace();
-		s_impact_t = new Trace();
-		
-		s_intersect = new JGL_3DVector();
-		s_impactPoint_sav = new JGL_3DVector();
 	}
 	
 	
@@ -91,24 +74,41 @@ public final class Tracer {
 	 * @return if an intersection occurs with the BSP
 	 */
 	public static boolean trace(JGL_3DBsp bsp, boolean convex, Trace trace) {
+		return trace(bsp, convex, trace, TraceContext.get());
+	}
+	
+	
+	
+	/**
+	 * Tests the intersection between a collision shape and a BSP, 
+	 * and stores the result in the specified trace.
+	 * 
+	 * @param bsp : the BSP
+	 * @param convex : if the BSP is convex or not
+	 * @param trace : describes the shape movement and stores the impact result
+	 * @param ctx : the context storing the working objects
+	 * @return if an intersection occurs with the BSP
+	 */
+	public static boolean trace(JGL_3DBsp bsp, boolean convex, Trace trace, TraceContext ctx) {
 		
-		s_impact.reset(trace.cshape, trace.start, trace.end);
+		Trace impact = ctx.impact;
+		impact.reset(trace.cshape, trace.start, trace.end);
 		
 		if (s_precision == VOLUME_PRECISION) {
-			s_impact_t.reset(trace.cshape, trace.start, trace.end);
+			ctx.impactT.reset(trace.cshape, trace.start, trace.end);
 			if (convex)
-				convexTrace(bsp);
+				convexTrace(bsp, ctx);
 			else 
-				solidTrace(bsp);
+				solidTrace(bsp, ctx);
 		}
 		else
-			triangleTrace(bsp);
+			triangleTrace(bsp, ctx);
 		
-		if (s_impact.dummy)
+		if (impact.dummy)
 			trace.dummy = true;
 		
-		if (s_impact.isImpact())
-			return trace.setNearerImpact(s_impact.correction, s_impact.fractionImpact, s_impact.fractionReal);
+		if (impact.isImpact())
+			return trace.setNearerImpact(impact.correction, impact.fractionImpact, impact.fractionReal);
 		return false;
 	}
 	
@@ -118,9 +118,12 @@ public final class Tracer {
 	 * Tests the intersection with the specified BSP.
 	 * 
 	 * @param bsp : the BSP
+	 * @param ctx : the trace context
 	 */
-	private static void solidTrace(JGL_3DBsp bsp) {
+	private static void solidTrace(JGL_3DBsp bsp, TraceContext ctx) {
 		
+		Trace impact = ctx.impact;
+		Trace impact_t = ctx.impactT;
 		float offset;
 		float d1, d2, dDiff;
 		float fReal, fImpact;
@@ -128,40 +131,38 @@ public final class Tracer {
 		
 		// empty leaf
 		if (bsp.type == JGL_3DBsp.EMPTY_LEAF) {
-			s_impact_t.clearImpact();
+			impact_t.clearImpact();
 			return;
 		}
 		
 		// solid leaf
 		if (bsp.type == JGL_3DBsp.SOLID_LEAF) {
-			if (s_impact_t.isImpact())
-				s_impact.setNearerImpact(s_impact_t.correction, s_impact_t.fractionImpact, s_impact_t.fractionReal);
+			if (impact_t.isImpact())
+				impact.setNearerImpact(impact_t.correction, impact_t.fractionImpact, impact_t.fractionReal);
 			else
-				s_impact.dummy = true;
-			s_impact_t.clearImpact();
+				impact.dummy = true;
+			impact_t.clearImpact();
 			return;
 		}
 		
 		// node
 		
-		offset = s_impact_t.cshape.getOffset(bsp.plane.normal);
+		offset = impact_t.cshape.getOffset(bsp.plane.normal);
 		
-		d1 = bsp.plane.distance(s_impact.start);
-		d2 = bsp.plane.distance(s_impact.end);
+		d1 = bsp.plane.distance(impact.start);
+		d2 = bsp.plane.distance(impact.end);
 		
 		// before the node
 		if (d1>offset && d2>offset) {
-			solidTrace(bsp.front);
+			solidTrace(bsp.front, ctx);
 			return;
 		}
 		
-		bsp.plane.normal.invert();
-		float offset2 = s_impact.cshape.getOffset(bsp.plane.normal);
-		bsp.plane.normal.invert();
+		float offset2 = impact.cshape.getOffsetNegated(bsp.plane.normal);
 		
 		// behind the node
 		if (d1<=-offset2 && d2<=-offset2) {
-			solidTrace(bsp.rear);
+			solidTrace(bsp.rear, ctx);
 			return;
 		}
 		
@@ -172,53 +173,55 @@ public final class Tracer {
 			d2 -= offset;
 			dDiff = 1f / (d1 - d2);
 			fReal = d1 * dDiff;
-			if (fReal>=s_impact.fractionReal)
+			if (fReal>=impact.fractionReal)
 				return;
 			
-			if (fReal<s_impact_t.fractionReal) {
+			if (fReal<impact_t.fractionReal) {
 				vect_i = bsp.plane;
 				fImpact = (d1 - Util4Phys.MIN_DISTANCE) * dDiff;
-				s_impact_t.setImpact(vect_i, fImpact, fReal);
+				impact_t.setImpact(vect_i, fImpact, fReal);
 			}
 			else {
-				vect_i = s_impact_t.correction;
-				fReal = s_impact_t.fractionReal;
-				fImpact = s_impact_t.fractionImpact;
+				vect_i = impact_t.correction;
+				fReal = impact_t.fractionReal;
+				fImpact = impact_t.fractionImpact;
 			}
 		}
 		else {
-			vect_i = s_impact_t.correction;
-			fReal = s_impact_t.fractionReal;
-			fImpact = s_impact_t.fractionImpact;
+			vect_i = impact_t.correction;
+			fReal = impact_t.fractionReal;
+			fImpact = impact_t.fractionImpact;
 		}
 		
-		solidTrace(bsp.rear);
-		s_impact_t.setImpact(vect_i, fImpact, fReal);
-		solidTrace(bsp.front);
+		solidTrace(bsp.rear, ctx);
+		impact_t.setImpact(vect_i, fImpact, fReal);
+		solidTrace(bsp.front, ctx);
 	}
 	
 	
 	
-	private static void convexTrace(JGL_3DBsp bsp) {
+	private static void convexTrace(JGL_3DBsp bsp, TraceContext ctx) {
 		
+		Trace impact = ctx.impact;
+		Trace impact_t = ctx.impactT;
 		float offset;
 		float d1, d2, dDiff;
 		
 		// Leaf reached
 		if (bsp.type == JGL_3DBsp.SOLID_LEAF) {
-			if (s_impact_t.isImpact())
-				s_impact.setImpact(s_impact_t.correction, s_impact_t.fractionImpact, s_impact_t.fractionReal);
+			if (impact_t.isImpact())
+				impact.setImpact(impact_t.correction, impact_t.fractionImpact, impact_t.fractionReal);
 			else
-				s_impact.dummy = true;
+				impact.dummy = true;
 			return;
 		}
 		
 		// node
 		
-		offset = s_impact.cshape.getOffset(bsp.plane.normal);
+		offset = impact.cshape.getOffset(bsp.plane.normal);
 		
-		d1 = bsp.plane.distance(s_impact.start);
-		d2 = bsp.plane.distance(s_impact.end);
+		d1 = bsp.plane.distance(impact.start);
+		d2 = bsp.plane.distance(impact.end);
 		
 		// before the node
 		if (d1>offset && d2>offset)
@@ -229,9 +232,9 @@ public final class Tracer {
 			d1 -= offset;
 			d2 -= offset;
 			dDiff = 1f / (d1 - d2);
-			s_impact_t.setFarerImpact(bsp.plane, (d1 - Util4Phys.MIN_DISTANCE) * dDiff, d1 * dDiff);
+			impact_t.setFarerImpact(bsp.plane, (d1 - Util4Phys.MIN_DISTANCE) * dDiff, d1 * dDiff);
 		}
-		convexTrace(bsp.rear);
+		convexTrace(bsp.rear, ctx);
 	}
 
 	
@@ -239,29 +242,31 @@ public final class Tracer {
 	 * Tests the intersection with the triangles from the specified BSP.
 	 * 
 	 * @param bsp : the BSP
+	 * @param ctx : the trace context
 	 */
-	private static void triangleTrace(JGL_3DBsp bsp) {
+	private static void triangleTrace(JGL_3DBsp bsp, TraceContext ctx) {
 		
 		if(bsp.type != JGL_3DBsp.NODE)
 			return;
 		
-		float offset = s_impact.cshape.getOffset(bsp.plane.normal);
+		Trace impact = ctx.impact;
+		JGL_3DVector intersect = ctx.intersect;
+		
+		float offset = impact.cshape.getOffset(bsp.plane.normal);
 		
-		float d1 = bsp.plane.distance(s_impact.start);
-		float d2 = bsp.plane.distance(s_impact.end);
+		float d1 = bsp.plane.distance(impact.start);
+		float d2 = bsp.plane.distance(impact.end);
 		
 		// before the node
 		if (d1>offset && d2>offset)
-			triangleTrace(bsp.front);
+			triangleTrace(bsp.front, ctx);
 		
 		// behind the node
 		else if (d1<=offset && d2<=offset) {
-			triangleTrace(bsp.rear);
-			bsp.plane.normal.invert();
-			float offset2 = s_impact.cshape.getOffset(bsp.plane.normal);
-			bsp.plane.normal.invert();
+			triangleTrace(bsp.rear, ctx);
+			float offset2 = impact.cshape.getOffsetNegated(bsp.plane.normal);
 			if (d1>=-offset2 && d2>=-offset2)
-				triangleTrace(bsp.front);
+				triangleTrace(bsp.front, ctx);
 		}
 		
 		// crosses the node
@@ -271,9 +276,9 @@ public final class Tracer {
 			float ny = bsp.plane.normal.y * offset;
 			float nz = bsp.plane.normal.z * offset;
 			
-			float ex = s_impact.start.x - nx;
-			float ey = s_impact.start.y - ny;
-			float ez = s_impact.start.z - nz;
+			float ex = impact.start.x - nx;
+			float ey = impact.start.y - ny;
+			float ez = impact.start.z - nz;
 			
 			if (d1 > 0f) {
 				d1 -= offset;
@@ -282,18 +287,18 @@ public final class Tracer {
 				if(d_diff != 0f) {
 					
 					float frac = d1 / d_diff;
-					s_intersect.x = ex + (((s_impact.end.x - nx) - ex) * frac);
-					s_intersect.y = ey + (((s_impact.end.y - ny) - ey) * frac);
-					s_intersect.z = ez + (((s_impact.end.z - nz) - ez) * frac);
+					intersect.x = ex + (((impact.end.x - nx) - ex) * frac);
+					intersect.y = ey + (((impact.end.y - ny) - ey) * frac);
+					intersect.z = ez + (((impact.end.z - nz) - ez) * frac);
 					
-					if (nodeSphereIntersection(bsp, s_intersect, offset))
-						s_impact.setNearerImpact(bsp.plane, (d1 - Util4Phys.MIN_DISTANCE) / d_diff, frac);
+					if (nodeSphereIntersection(bsp, intersect, offset, ctx.impactPointSav))
+						impact.setNearerImpact(bsp.plane, (d1 - Util4Phys.MIN_DISTANCE) / d_diff, frac);
 				}
 			}
 			
-			triangleTrace(bsp.front);
-			if(!s_impact.isImpact())
-				triangleTrace(bsp.rear);
+			triangleTrace(bsp.front, ctx);
+			if(!impact.isImpact())
+				triangleTrace(bsp.rear, ctx);
 		}
 		
 	}
@@ -307,9 +312,10 @@ public final class Tracer {
 	 * @param node : the BSP node
 	 * @param center : the sphere center
 	 * @param offset : the sphere offset
+	 * @param impactPoint_sav : the segment / sphere intersection point
 	 * @return if there is intersection between the BSP node triangles and the sphere.
 	 */
-	private static boolean nodeSphereIntersection(JGL_3DBsp node, JGL_3DVector center, float offset) {
+	private static boolean nodeSphereIntersection(JGL_3DBsp node, JGL_3DVector center, float offset, JGL_3DVector impactPoint_sav) {
 		
 		float d;
 		short pos;
@@ -324,19 +330,19 @@ public final class Tracer {
 				return true;
 			
 			else if (pos==1 || pos==2) {
-				d = Util4Phys.segmentSphereIntersection(center, offset, t.point1, t.point2, s_impactPoint_sav);
+				d = Util4Phys.segmentSphereIntersection(center, offset, t.point1, t.point2, impactPoint_sav);
 				if (d < sqrOffset)
 					return true;
 			}
 			
 			else if (pos==3 || pos==4) {
-				d = Util4Phys.segmentSphereIntersection(center, offset, t.point2, t.point3, s_impactPoint_sav);
+				d = Util4Phys.segmentSphereIntersection(center, offset, t.point2, t.point3, impactPoint_sav);
 				if (d < sqrOffset)
 					return true;
 			}
 			
 			else if (pos==5 || pos==6) {
-				d = Util4Phys.segmentSphereIntersection(center, offset, t.point3, t.point1, s_impactPoint_sav);
+				d = Util4Phys.segmentSphereIntersection(center, offset, t.point3, t.point1, impactPoint_sav);
 				if (d < sqrOffset)
 					return true;
 			}
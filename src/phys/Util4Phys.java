@@ -95,10 +95,6 @@ public final class Util4Phys {
 	
 	
 	
-	private static Trace s_trace1 = new Trace();
-	private static Trace s_trace2 = new Trace();
-	private static Trace s_trace3 = new Trace();
-	private static Shape_sphere s_sphere = new Shape_sphere(new JGL_3DVector(), 0.0005f);
 	
 	
 	/**
@@ -360,14 +356,21 @@ public final class Util4Phys {
 	 * @return if the triangle is inside the brush
 	 */
 	public static boolean isInBrush(JGL_3DTriangle triangle, Bsp_brush brush) {
+		return isInBrush(triangle, brush, TraceContext.get());
+	}
+	
+	
+	/**
+	 * Returns if the specified triangle is inside the brush.
+	 * 
+	 * @param triangle : the triangle to test
+	 * @param brush : the brush
+	 * @param ctx : the trace context
+	 * @return if the triangle is inside the brush
+	 */
+	public static boolean isInBrush(JGL_3DTriangle triangle, Bsp_brush brush, TraceContext ctx) {
 		
-		s_trace1.reset(s_sphere, triangle.point1, triangle.point1);
-		s_trace2.reset(s_sphere, triangle.point2, triangle.point2);
-		s_trace3.reset(s_sphere, triangle.point3, triangle.point3);
-		s_trace1.trace(brush.bsp, false);
-		s_trace2.trace(brush.bsp, false);
-		s_trace3.trace(brush.bsp, false);
-		if (s_trace1.dummy && s_trace2.dummy && s_trace3.dummy) {
+		if (arePointsInBrush(triangle, brush, ctx)) {
 			JGL_3DBsp bsp = brush.bsp;
 			while (bsp.type==JGL_3DBsp.NODE) {
 				int p = JGL_Math.plane_trianglePosition(bsp.plane, triangle);
@@ -389,14 +392,21 @@ public final class Util4Phys {
 	 * @return if the triangle is inside the brush
 	 */
 	public static boolean isStrictlyInBrush(JGL_3DTriangle triangle, Bsp_brush brush) {
+		return isStrictlyInBrush(triangle, brush, TraceContext.get());
+	}
+	
+	
+	/**
+	 * Returns if the specified triangle is inside the brush.
+	 * 
+	 * @param triangle : the triangle to test
+	 * @param brush : the brush
+	 * @param ctx : the trace context
+	 * @return if the triangle is inside the brush
+	 */
+	public static boolean isStrictlyInBrush(JGL_3DTriangle triangle, Bsp_brush brush, TraceContext ctx) {
 		
-		s_trace1.reset(s_sphere, triangle.point1, triangle.point1);
-		s_trace2.reset(s_sphere, triangle.point2, triangle.point2);
-		s_trace3.reset(s_sphere, triangle.point3, triangle.point3);
-		s_trace1.trace(brush.bsp, false);
-		s_trace2.trace(brush.bsp, false);
-		s_trace3.trace(brush.bsp, false);
-		if (s_trace1.dummy && s_trace2.dummy && s_trace3.dummy) {
+		if (arePointsInBrush(triangle, brush, ctx)) {
 			JGL_3DBsp bsp = brush.bsp;
 			while (bsp.type==JGL_3DBsp.NODE) {
 				int p = JGL_Math.plane_trianglePosition(bsp.plane, triangle);
@@ -436,14 +446,21 @@ public final class Util4Phys {
 	 * @return if the triangle is a brush edge
 	 */
 	public static boolean isBrushEdge(JGL_3DTriangle triangle, Bsp_brush brush) {
+		return isBrushEdge(triangle, brush, TraceContext.get());
+	}
+	
+	
+	/**
+	 * Returns if the specified triangle is a brush edge.
+	 * 
+	 * @param triangle : the triangle to test
+	 * @param brush : the brush
+	 * @param ctx : the trace context
+	 * @return if the triangle is a brush edge
+	 */
+	public static boolean isBrushEdge(JGL_3DTriangle triangle, Bsp_brush brush, TraceContext ctx) {
 		
-		s_trace1.reset(s_sphere, triangle.point1, triangle.point1);
-		s_trace2.reset(s_sphere, triangle.point2, triangle.point2);
-		s_trace3.reset(s_sphere, triangle.point3, triangle.point3);
-		s_trace1.trace(brush.bsp, false);
-		s_trace2.trace(brush.bsp, false);
-		s_trace3.trace(brush.bsp, false);
-		if (s_trace1.dummy && s_trace2.dummy && s_trace3.dummy) {
+		if (arePointsInBrush(triangle, brush, ctx)) {
 			JGL_3DBsp bsp = brush.bsp;
 			while (bsp.type==JGL_3DBsp.NODE) {
 				int p = JGL_Math.plane_trianglePosition(bsp.plane, triangle);
@@ -457,6 +474,26 @@ public final class Util4Phys {
 	}
 	
 	
+	/**
+	 * Returns if the 3 points of the triangle are inside the brush volume.
+	 */
+	private static boolean arePointsInBrush(JGL_3DTriangle triangle, Bsp_brush brush, TraceContext ctx) {
+		
+		Trace trace = ctx.shape;
+		trace.reset(ctx.vertex, triangle.point1, triangle.point1);
+		trace.trace(brush.bsp, false, ctx);
+		if (!trace.dummy)
+			return false;
+		trace.reset(ctx.vertex, triangle.point2, triangle.point2);
+		trace.trace(brush.bsp, false, ctx);
+		if (!trace.dummy)
+			return false;
+		trace.reset(ctx.vertex, triangle.point3, triangle.point3);
+		trace.trace(brush.bsp, false, ctx);
+		return trace.dummy;
+	}
+	
+	
 	/**
 	 * Returns a BSP given a list of triangles.
 	 * 
@@ -22,6 +22,7 @@ import java.io.ByteArrayInputStream;
 import java.io.ByteArrayOutputStream;
 import java.nio.FloatBuffer;
 import java.nio.IntBuffer;
+import java.util.Hashtable;
 import java.util.StringTokenizer;
 import java.util.Vector;
 
@@ -36,8 +37,11 @@ import com.jme.scene.BillboardNode;
 import com.jme.scene.Controller;
 import com.jme.scene.Node;
 import com.jme.scene.QuadMesh;
+import com.jme.scene.SharedNode;
 import com.jme.scene.Skybox;
+import com.jme.scene.Spatial;
 import com.jme.scene.TexCoords;
+import com.jme.scene.TriMesh;
 import com.jme.scene.state.BlendState;
 import com.jme.scene.state.CullState;
 import com.jme.scene.state.LightState;
@@ -57,7 +61,6 @@ import com.jmex.effects.particles.ParticleMesh;
 import com.jmex.model.animation.KeyframeController;
 import com.jmex.model.animation.JointController;
 
-import phys.Bsp_tree;
 import phys.Shape;
 import phys.Shape_bsp;
 import phys.Shape_cylinder;
@@ -74,7 +77,6 @@ import phys.Motion_slide_2;
 import phys.Motion_stop;
 import phys.Motion_bounce;
 import phys.Motion_NoCollision;
-import phys.Util4Phys;
 
 import ai.TurretAI;
 import ai.SkeletonAI;
@@ -85,7 +87,6 @@ import ai.ZombieAIsimple;
 import jglcore.JGL;
 import jglcore.JGL_3DMatrix;
 import jglcore.JGL_3DVector;
-import jglcore.JGL_3DMesh;
 import entity.Entity;
 import entity.Scriptable;
 import entity.PlayerEntity;
@@ -103,6 +104,7 @@ import entity.DoorObject;
 import entity.StaticObject;
 import entity.Explosible;
 import entity.Explosion;
+import entity.EntityPool;
 import struct.Explode;
 import struct.Explode2D;
 import struct.Explode3D;
@@ -111,13 +113,10 @@ import sound.Sounds;
 import world.World;
 import world.DisplayNode;
 import world.CollisionNode;
-import world.CollisionBSP;
-import world.CollisionHeightMap;
+import world.CollisionCache;
 import world.Resources;
 import world.Kinematic;
-import input.Data3D;
 import input.LoadHelper;
-import input.Reader_Milkshape;
 
 
 /**
@@ -173,6 +172,7 @@ public final class Script {
 	public static String STOP_DLIGHT		= "stopdlight";
 	public static String SET_DLIGHT			= "setdlight";
 	public static String SET_TEXTURE_LOC	= "settexloc";
+	public static String SET_POOL			= "setpool";
 	
 	// Entities
 	public static String ZOMBIE01 	= "zombie01";
@@ -225,166 +225,332 @@ public final class Script {
 	// Properties
 	public static String SPEED 		= "speed";
 	
+	/** If the static models are instanced with shared geometry, instead of copied */
+	public static boolean SHARED_INSTANCES = true;
+	
+	// Model instancing statistics
+	private static int nbInstances = 0;
+	private static int nbCopies = 0;
+	private static long copiedBytes = 0L;
+	
+	
+	
+	// Verb codes of the dispatch table
+	static final int V_LOAD_SOUND		= 1;
+	static final int V_LOAD_TEXTURE		= 2;
+	static final int V_LOAD_BSP			= 3;
+	static final int V_LOAD_NODE		= 4;
+	static final int V_LINK_NODES		= 5;
+	static final int V_STORE_DISPLAY	= 6;
+	static final int V_STORE_COLLISION	= 7;
+	static final int V_STORE_ENTITY		= 8;
+	static final int V_RESET_ENTITY		= 9;
+	static final int V_SET_COLLISION_PVS= 10;
+	static final int V_FREE				= 11;
+	static final int V_FREE_ALL			= 12;
+	static final int V_INSERT_SKY		= 13;
+	static final int V_INSERT_DISPLAY	= 14;
+	static final int V_INSERT_COLLISION	= 15;
+	static final int V_INSERT_PLAYER	= 16;
+	static final int V_INSERT_CHARA		= 17;
+	static final int V_INSERT_OBJECT	= 18;
+	static final int V_INSERT_SCRIPT	= 19;
+	static final int V_INSERT_CHECKPOINT= 20;
+	static final int V_REMOVE_DISPLAY	= 21;
+	static final int V_REMOVE_COLLISION	= 22;
+	static final int V_PLAY_SOUND		= 23;
+	static final int V_PLAY_MUSIC		= 24;
+	static final int V_STOP_MUSIC		= 25;
+	static final int V_PLAY_KINEMATIC	= 26;
+	static final int V_STOP_KINEMATIC	= 27;
+	static final int V_CLEAR_MAP		= 28;
+	static final int V_END_LEVEL		= 29;
+	static final int V_SET_PROPERTY		= 30;
+	static final int V_RESET_PROPERTIES	= 31;
+	static final int V_START_DLIGHT		= 32;
+	static final int V_STOP_DLIGHT		= 33;
+	static final int V_SET_DLIGHT		= 34;
+	static final int V_SET_TEXTURE_LOC	= 35;
+	static final int V_SET_POOL			= 36;
+	
+	private static Hashtable verbs = new Hashtable();
+	
+	static {
+		String[] names = {	LOAD_SOUND, LOAD_TEXTURE, LOAD_BSP, LOAD_NODE, LINK_NODES, 
+							STORE_DISPLAY, STORE_COLLISION, STORE_ENTITY, RESET_ENTITY, SET_COLLISION_PVS, 
+							FREE, FREE_ALL, INSERT_SKY, INSERT_DISPLAY, INSERT_COLLISION, 
+							INSERT_PLAYER, INSERT_CHARA, INSERT_OBJECT, INSERT_SCRIPT, INSERT_CHECKPOINT, 
+							REMOVE_DISPLAY, REMOVE_COLLISION, PLAY_SOUND, PLAY_MUSIC, STOP_MUSIC, 
+							PLAY_KINEMATIC, STOP_KINEMATIC, CLEAR_MAP, END_LEVEL, SET_PROPERTY, 
+							RESET_PROPERTIES, START_DLIGHT, STOP_DLIGHT, SET_DLIGHT, SET_TEXTURE_LOC, 
+							SET_POOL };
+		for (int i=0; i<names.length; i++)
+			verbs.put(names[i], new Integer(i + 1));
+	}
+	
+	
+	/**
+	 * Returns the code of the specified verb, or 0 if it's unknown.
+	 */
+	static int getVerb(String verb) {
+		Integer code = (Integer)verbs.get(verb);
+		return code==null ? 0 : code.intValue();
+	}
+	
 	
 	
 	public static void execute(StringTokenizer script) {
 		
-		if (script.hasMoreTokens()) {
-			String verb = script.nextToken();
-			
-			if (verb.equals(LOAD_SOUND))
-				loadSound(script);
-			
-			if (verb.equals(LOAD_TEXTURE))
-				loadTexture(script);
-			
-			if (verb.equals(LOAD_BSP))
-				loadBsp(script);
-			
-			if (verb.equals(LOAD_NODE))
-				loadNode(script);
-			
-			if (verb.equals(LINK_NODES))
-				linkNodes(script);
-			
-			if (verb.equals(STORE_DISPLAY))
-				Resources.addDisplayNode(getDisplayNode(script));
-			
-			if (verb.equals(STORE_COLLISION))
-				Resources.addCollisionNode(getCollisionNode(script));
-			
-			if (verb.equals(STORE_ENTITY))
-				Resources.addEntity(getEntity(script));
-			
-			if (verb.equals(RESET_ENTITY)) {
-				Entity entity = getEntity(script);
-				if (entity!=null)
-					entity.reset();
-			}
-			
-			if (verb.equals(SET_COLLISION_PVS)) {
-				CollisionNode node = Resources.getCollisionNode(script.nextToken());
-				if (node!=null)
-					while(script.hasMoreTokens()) {
-						CollisionNode node2 = Resources.getCollisionNode(script.nextToken());
-						if (node2!=null)
-							node.addPvs(node2);
-					}
-			}
-			
-			if (verb.equals(FREE)) {}
-			
-			if (verb.equals(FREE_ALL)) {
-				Resources.clear();
-				Sounds.clear();
-			}
-			
-			if (verb.equals(INSERT_SKY)) {
-				Node node = Resources.getNode(script.nextToken());
-				if (node!=null)
-					World.map.setSky(node);
-			}
-			
-			if (verb.equals(INSERT_DISPLAY)) {
-				DisplayNode node = Resources.getDisplayNode(script.nextToken());
-				if (node!=null)
-					World.map.addDisplayNode(node);
-			}
-			
-			if (verb.equals(INSERT_COLLISION)) {
-				CollisionNode node = Resources.getCollisionNode(script.nextToken());
-				if (node!=null)
-					World.map.addCollisionNode(node);
-			}
-			
-			if (verb.equals(INSERT_PLAYER)) {
-				PlayerEntity player = getPlayer(script);
+		if (!script.hasMoreTokens())
+			return;
+		
+		long time = System.nanoTime();
+		Entity entity;
+		CollisionNode cNode;
+		String name;
+		
+		switch (getVerb(script.nextToken())) {
+		
+		case V_LOAD_SOUND :
+			loadSound(script);
+			break;
+		
+		case V_LOAD_TEXTURE :
+			loadTexture(script);
+			Resources.addLoadTime(Resources.TEXTURES, System.nanoTime() - time);
+			break;
+		
+		case V_LOAD_BSP :
+			loadBsp(script);
+			Resources.addLoadTime(Resources.BSPS, System.nanoTime() - time);
+			break;
+		
+		case V_LOAD_NODE :
+			loadNode(script);
+			Resources.addLoadTime(Resources.NODES, System.nanoTime() - time);
+			break;
+		
+		case V_LINK_NODES :
+			linkNodes(script);
+			Resources.addLoadTime(Resources.NODES, System.nanoTime() - time);
+			break;
+		
+		case V_STORE_DISPLAY :
+			Resources.addDisplayNode(getDisplayNode(script));
+			Resources.addLoadTime(Resources.DISPLAY_NODES, System.nanoTime() - time);
+			break;
+		
+		case V_STORE_COLLISION :
+			Resources.addCollisionNode(getCollisionNode(script));
+			Resources.addLoadTime(Resources.COLLISION_NODES, System.nanoTime() - time);
+			break;
+		
+		case V_STORE_ENTITY :
+			Resources.addEntity(getEntity(script));
+			Resources.addLoadTime(Resources.ENTITIES, System.nanoTime() - time);
+			break;
+		
+		case V_RESET_ENTITY :
+			entity = getEntity(script);
+			if (entity!=null)
+				entity.reset();
+			break;
+		
+		case V_SET_COLLISION_PVS :
+			cNode = Resources.getCollisionNode(script.nextToken());
+			if (cNode!=null)
+				while(script.hasMoreTokens()) {
+					CollisionNode node2 = Resources.getCollisionNode(script.nextToken());
+					if (node2!=null)
+						cNode.addPvs(node2);
+				}
+			break;
+		
+		case V_FREE :
+			break;
+		
+		case V_FREE_ALL :
+			freeAll();
+			break;
+		
+		case V_INSERT_SKY :
+			insertSky(Resources.getNode(script.nextToken()));
+			break;
+		
+		case V_INSERT_DISPLAY :
+			insertDisplay(Resources.getDisplayNode(script.nextToken()));
+			break;
+		
+		case V_INSERT_COLLISION :
+			insertCollision(Resources.getCollisionNode(script.nextToken()));
+			break;
+		
+		case V_INSERT_PLAYER :
+			PlayerEntity player = getPlayer(script);
+			if (World.headless)
+				Player.entity = player;
+			else
 				Player.init(player);
-				World.map.addCharacter(player);
-			}
-			
-			if (verb.equals(INSERT_CHARA)) {
-				Entity entity = getEntity(script);
-				if (entity!=null)
-					World.map.addCharacter(entity);
-			}
-			
-			if (verb.equals(INSERT_OBJECT)) {
-				Entity entity = getEntity(script);
-				if (entity!=null)
-					World.map.addObject(entity);
-			}
-			
-			if (verb.equals(INSERT_SCRIPT)) {
-				Entity entity = getEntity(script);
-				if (entity!=null)
-					World.map.addScriptBox(entity);
-			}
-			
-			if (verb.equals(INSERT_CHECKPOINT)) {
-				Entity entity = getEntity(script);
-				if (entity!=null)
-					World.map.setCheckpoint((Scriptable)entity);
-			}
-			
-			if (verb.equals(REMOVE_DISPLAY))
-				World.map.removeDisplayNode(Resources.getDisplayNode(script.nextToken()));
-			
-			if (verb.equals(REMOVE_COLLISION))
-				World.map.removeCollisionNode(Resources.getCollisionNode(script.nextToken()));
-			
-			if (verb.equals(PLAY_SOUND))
-				Sounds.play(script.nextToken());
-			
-			if (verb.equals(PLAY_MUSIC))
-				Sounds.playMusic(script.nextToken(), Float.parseFloat(script.nextToken()));
-			
-			if (verb.equals(STOP_MUSIC))
-				Sounds.stopMusic();
-			
-			if (verb.equals(PLAY_KINEMATIC))
-				playKinematic(script.nextToken());
-			
-			if (verb.equals(STOP_KINEMATIC))
-				stopKinematic();
-			
-			if (verb.equals(CLEAR_MAP)) {
-				World.map.characters.clear();
-				World.map.objects.clear();
-				World.map.scripts.clear();
-				World.map.shoots.clear();
-			}
-			
-			if (verb.equals(END_LEVEL))
-				World.map.setFinished();
-			
-			if (verb.equals(SET_PROPERTY))
-				setProperty(script);
-			
-			if (verb.equals(RESET_PROPERTIES))
-				resetProperties();
-			
-			if (verb.equals(START_DLIGHT)) {
-				String name = script.nextToken();
-				float fps = Float.parseFloat(script.nextToken());
-				((DLNode)World.map.getDisplayNode(name).getNode()).startAnimation(fps);
-			}
-			
-			if (verb.equals(STOP_DLIGHT))
-				((DLNode)World.map.getDisplayNode(script.nextToken()).getNode()).stopAnimation();
-			
-			if (verb.equals(SET_DLIGHT)) {
-				String name = script.nextToken();
-				int index = Integer.parseInt(script.nextToken());
-				((DLNode)World.map.getDisplayNode(name).getNode()).setAnimationTexture(index);
-			}
-			if (verb.equals(SET_TEXTURE_LOC))
-				LoadHelper.setTextureLocator(script.nextToken());
+			World.map.addCharacter(player);
+			break;
+		
+		case V_INSERT_CHARA :
+			insertEntity(V_INSERT_CHARA, getEntity(script));
+			break;
+		
+		case V_INSERT_OBJECT :
+			insertEntity(V_INSERT_OBJECT, getEntity(script));
+			break;
+		
+		case V_INSERT_SCRIPT :
+			insertEntity(V_INSERT_SCRIPT, getEntity(script));
+			break;
+		
+		case V_INSERT_CHECKPOINT :
+			insertEntity(V_INSERT_CHECKPOINT, getEntity(script));
+			break;
+		
+		case V_REMOVE_DISPLAY :
+			World.map.removeDisplayNode(Resources.getDisplayNode(script.nextToken()));
+			break;
+		
+		case V_REMOVE_COLLISION :
+			World.map.removeCollisionNode(Resources.getCollisionNode(script.nextToken()));
+			break;
+		
+		case V_PLAY_SOUND :
+			Sounds.play(script.nextToken());
+			break;
+		
+		case V_PLAY_MUSIC :
+			name = script.nextToken();
+			Sounds.playMusic(name, Float.parseFloat(script.nextToken()));
+			break;
+		
+		case V_STOP_MUSIC :
+			Sounds.stopMusic();
+			break;
+		
+		case V_PLAY_KINEMATIC :
+			playKinematic(script.nextToken());
+			break;
+		
+		case V_STOP_KINEMATIC :
+			stopKinematic();
+			break;
+		
+		case V_CLEAR_MAP :
+			clearMap();
+			break;
+		
+		case V_END_LEVEL :
+			World.map.setFinished();
+			break;
+		
+		case V_SET_PROPERTY :
+			name = script.nextToken();
+			setProperty(name, Float.parseFloat(script.nextToken()));
+			break;
+		
+		case V_RESET_PROPERTIES :
+			resetProperties();
+			break;
+		
+		case V_START_DLIGHT :
+			name = script.nextToken();
+			startDLight(name, Float.parseFloat(script.nextToken()));
+			break;
+		
+		case V_STOP_DLIGHT :
+			stopDLight(script.nextToken());
+			break;
+		
+		case V_SET_DLIGHT :
+			name = script.nextToken();
+			setDLight(name, Integer.parseInt(script.nextToken()));
+			break;
+		
+		case V_SET_TEXTURE_LOC :
+			LoadHelper.setTextureLocator(script.nextToken());
+			break;
+		
+		case V_SET_POOL :
+			name = script.nextToken();
+			EntityPool.setSize(name, Integer.parseInt(script.nextToken()));
+			break;
 		}
 	}
 	
 	
 	
+	static void freeAll() {
+		Resources.clear();
+		EntityPool.clear();
+		Sounds.clear();
+	}
+	
+	
+	static void insertSky(Node node) {
+		if (node!=null)
+			World.map.setSky(node);
+	}
+	
+	
+	static void insertDisplay(DisplayNode node) {
+		if (node!=null)
+			World.map.addDisplayNode(node);
+	}
+	
+	
+	static void insertCollision(CollisionNode node) {
+		if (node!=null)
+			World.map.addCollisionNode(node);
+	}
+	
+	
+	/**
+	 * Inserts the entity in the map, according to the insertion verb code.
+	 */
+	static void insertEntity(int verb, Entity entity) {
+		
+		if (entity==null)
+			return;
+		
+		if (verb==V_INSERT_CHARA)
+			World.map.addCharacter(entity);
+		else if (verb==V_INSERT_OBJECT)
+			World.map.addObject(entity);
+		else if (verb==V_INSERT_SCRIPT)
+			World.map.addScriptBox(entity);
+		else if (verb==V_INSERT_CHECKPOINT)
+			World.map.setCheckpoint((Scriptable)entity);
+	}
+	
+	
+	static void clearMap() {
+		World.map.characters.clear();
+		World.map.objects.clear();
+		World.map.scripts.clear();
+		World.map.shoots.clear();
+	}
+	
+	
+	static void startDLight(String name, float fps) {
+		((DLNode)World.map.getDisplayNode(name).getNode()).startAnimation(fps);
+	}
+	
+	
+	static void stopDLight(String name) {
+		((DLNode)World.map.getDisplayNode(name).getNode()).stopAnimation();
+	}
+	
+	
+	static void setDLight(String name, int index) {
+		((DLNode)World.map.getDisplayNode(name).getNode()).setAnimationTexture(index);
+	}
+	
+	
+	
 	
 	public static PlayerEntity getPlayer(StringTokenizer script) {
 		
@@ -675,8 +841,8 @@ public final class Script {
 	public static Factory getFactory(StringTokenizer script) {
 		
 		String id = script.nextToken();
-		Node node = getNodeCopy(script.nextToken());
-		Node hitNode = getNodeCopy(script.nextToken());
+		Node node = getNodeInstance(script.nextToken());
+		Node hitNode = getNodeInstance(script.nextToken());
 		Explosion expNode = (Explosion)getEntity(script);
 		Explosion genNode = (Explosion)getEntity(script);
         
@@ -811,8 +977,8 @@ public final class Script {
 	public static Explosible getExplosible(StringTokenizer script) {
 		
 		String id = script.nextToken();
-		Node node = getNodeCopy(script.nextToken());
-		Node hitNode = getNodeCopy(script.nextToken());
+		Node node = getNodeInstance(script.nextToken());
+		Node hitNode = getNodeInstance(script.nextToken());
 		Explosion expNode = getExplosion(script);
         
         float posX = Float.parseFloat(script.nextToken());
@@ -936,20 +1102,17 @@ public final class Script {
 			
 			if (type.equals(COLLISION_BSP)) {
 				JGL_3DVector pos = Script.getVector(script);
-				Data3D data = new Reader_Milkshape(script.nextToken()).getData();
+				String file = script.nextToken();
 				
-				Vector shapes = new Vector();
+				// Default view shape around the mesh if none is specified
+				Vector shapes = null;
 				if (script.hasMoreTokens()) {
+					shapes = new Vector();
 					int nbShapes = Integer.parseInt(script.nextToken());
 					for (int j=0; j<nbShapes; j++)
 						shapes.add(new Shape_aabb(Script.getVector(script), Script.getVector(script), Script.getVector(script)));
 				}
-				else {
-					Shape_aabb shape = Util4Phys.getAABB(data.mesh, 1f);
-					shape.setPosition(pos);
-					shapes.add(shape);
-				}
-				return new CollisionBSP(name, data.subMeshes, shapes, pos);
+				return CollisionCache.getCollisionBSP(name, pos, file, shapes);
 			}
 			
 			if (type.equals(COLLISION_HM)) {
@@ -959,8 +1122,7 @@ public final class Script {
 				int depth = Integer.parseInt(script.nextToken());
 				float gap = Float.parseFloat(script.nextToken());
 				
-				return new CollisionHeightMap(name, pos, width, depth, gap, 
-						new Reader_Milkshape(script.nextToken()).getData().mesh);
+				return CollisionCache.getHeightMap(name, pos, width, depth, gap, script.nextToken());
 			}
 			return null;
 		}
@@ -1086,11 +1248,7 @@ public final class Script {
 	public static void loadBsp(StringTokenizer script) {
 		try {
 			String id = script.nextToken();
-			Data3D data = new Reader_Milkshape(script.nextToken()).getData();
-			JGL_3DMesh[] brushes = new JGL_3DMesh[data.subMeshes.size()];
-			for (int i=0; i<brushes.length; i++)
-				brushes[i] = (JGL_3DMesh)data.subMeshes.get(i);
-			Resources.addBsp(new Bsp_tree(brushes), id);
+			Resources.addBsp(CollisionCache.getBsp(script.nextToken()), id);
 		}
 		catch(Exception ex) {
 			return;
@@ -1405,6 +1563,8 @@ public final class Script {
 			Node node = (Node)BinaryImporter.getInstance().load(new ByteArrayInputStream(BO.toByteArray()));
 			node.updateGeometricState( 0.0f, true );
 	        node.updateRenderState();
+	        nbCopies++;
+	        copiedBytes += getBufferBytes(node);
 	        return node;
 		}
 		catch(Exception ex) {
@@ -1414,6 +1574,103 @@ public final class Script {
 	}
 	
 	
+	/**
+	 * Returns an instance of the Node identified by the specified ID : a Node 
+	 * sharing the vertex and index buffers of the stored one, with its own 
+	 * transform and render states.<br>
+	 * The Nodes changing their geometry (animation controllers) or holding 
+	 * special nodes (billboards, particles...) are copied.
+	 * 
+	 * @param id : the Node ID
+	 * @return an instance of the node, or an empty Node if not found
+	 */
+	public static Node getNodeInstance(String id) {
+		
+		Node model = Resources.getNode(id);
+		if (!SHARED_INSTANCES || model==null || !isShareable(model))
+			return getNodeCopy(id);
+		
+		SharedNode node = new SharedNode(id, model);
+		node.updateGeometricState( 0.0f, true );
+		node.updateRenderState();
+		nbInstances++;
+		return node;
+	}
+	
+	
+	/**
+	 * Returns if the geometry of the specified spatial never changes, 
+	 * and is only made of plain Nodes and TriMeshes.
+	 */
+	private static boolean isShareable(Spatial spatial) {
+		
+		if (spatial.getControllerCount()>0)
+			return false;
+		if (spatial instanceof TriMesh)
+			return true;
+		if (spatial.getClass()!=Node.class)
+			return false;
+		
+		Node node = (Node)spatial;
+		for (int i=0; i<node.getQuantity(); i++)
+			if (!isShareable(node.getChild(i)))
+				return false;
+		return true;
+	}
+	
+	
+	/**
+	 * Returns the size in bytes of the vertex, normal, color, texture 
+	 * and index buffers of the specified spatial.
+	 */
+	private static long getBufferBytes(Spatial spatial) {
+		
+		long bytes = 0L;
+		
+		if (spatial instanceof TriMesh) {
+			TriMesh mesh = (TriMesh)spatial;
+			if (mesh.getVertexBuffer()!=null) bytes += mesh.getVertexBuffer().capacity() * 4L;
+			if (mesh.getNormalBuffer()!=null) bytes += mesh.getNormalBuffer().capacity() * 4L;
+			if (mesh.getColorBuffer()!=null) bytes += mesh.getColorBuffer().capacity() * 4L;
+			if (mesh.getIndexBuffer()!=null) bytes += mesh.getIndexBuffer().capacity() * 4L;
+			if (mesh.getTextureCoords()!=null)
+				for (int i=0; i<mesh.getTextureCoords().size(); i++) {
+					TexCoords tc = (TexCoords)mesh.getTextureCoords().get(i);
+					if (tc!=null && tc.coords!=null)
+						bytes += tc.coords.capacity() * 4L;
+				}
+		}
+		else if (spatial instanceof Node) {
+			Node node = (Node)spatial;
+			for (int i=0; i<node.getQuantity(); i++)
+				bytes += getBufferBytes(node.getChild(i));
+		}
+		return bytes;
+	}
+	
+	
+	/**
+	 * Returns the number of models instanced and copied since the last reset, 
+	 * and the size of the copied buffers.
+	 * 
+	 * @return the instancing report
+	 */
+	public static String getInstanceReport() {
+		return 	nbInstances + " shared instances, " + nbCopies + " copies, " + 
+				(copiedBytes / 1024L) + " KB of copied buffers";
+	}
+	
+	
+	/**
+	 * Resets the instancing statistics.
+	 */
+	public static void resetInstanceStats() {
+		nbInstances = 0;
+		nbCopies = 0;
+		copiedBytes = 0L;
+	}
+	
+	
 	/**
 	 * 
 	 * @param script
@@ -1582,7 +1839,15 @@ public final class Script {
 	 * @param id : the Kinematic ID
 	 */
 	public static void playKinematic(String id) {
-		Kinematic kinematic = Resources.getKinematic(id);
+		playKinematic(Resources.getKinematic(id));
+	}
+	
+	
+	/**
+	 * Plays the specified Kinematic.
+	 * @param kinematic : the Kinematic, or null
+	 */
+	public static void playKinematic(Kinematic kinematic) {
 		if (kinematic!=null) {
 			World.map.characters.remove(Player.entity);
 			kinematic.reset();
@@ -1605,17 +1870,13 @@ public final class Script {
 	
 	
 	
-	private static void setProperty(StringTokenizer script) {
-		
-		String prop = script.nextToken();
-		float arg = Float.parseFloat(script.nextToken());
-		
+	static void setProperty(String prop, float arg) {
 		if (prop.equals(GRAVITY))
 			Mover_gravity.GRAVITY = arg;
 	}
 	
 	
-	private static void resetProperties() {
+	static void resetProperties() {
 		Mover_gravity.GRAVITY = 300f;
 	}
 	
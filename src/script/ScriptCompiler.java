@@ -0,0 +1,367 @@
+//	Copyright 2009 Nicolas Devere
+//
+//	This file is part of FLESH SNATCHER.
+//
+//	FLESH SNATCHER is free software; you can redistribute it and/or modify
+//	it under the terms of the GNU General Public License as published by
+//	the Free Software Foundation; either version 2 of the License, or
+//	(at your option) any later version.
+//
+//	FLESH SNATCHER is distributed in the hope that it will be useful,
+//	but WITHOUT ANY WARRANTY; without even the implied warranty of
+//	MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+//	GNU General Public License for more details.
+//
+//	You should have received a copy of the GNU General Public License
+//	along with FLESH SNATCHER; if not, write to the Free Software
+//	Foundation, Inc., 51 Franklin St, Fifth Floor, Boston, MA  02110-1301  USA
+
+package script;
+
+import java.util.StringTokenizer;
+import java.util.Vector;
+
+import entity.Entity;
+import entity.EntityPool;
+import sound.Sounds;
+import world.CollisionNode;
+import world.Resources;
+import world.World;
+
+
+/**
+ * Compiles the script lines into commands.<br>
+ * The verb is looked up in the dispatch table of <code>Script</code>, 
+ * the numbers are parsed, and the IDs of the stored resources resolved 
+ * in handles. The lines building new objects (entity descriptions, loads) 
+ * and the lines that can't be parsed give a command interpreting the line, 
+ * so they behave exactly as with <code>Script.execute</code>.
+ * 
+ * @author Nicolas Devere
+ *
+ */
+public final class ScriptCompiler {
+	
+	
+	/**
+	 * Returns the commands of the specified script lines, without the empty lines.
+	 * 
+	 * @param lines : the script lines (Strings)
+	 * @return the commands
+	 */
+	public static Command[] compile(Vector lines) {
+		
+		Vector result = new Vector();
+		for (int i=0; i<lines.size(); i++) {
+			Command c = compile((String)lines.get(i));
+			if (c!=null)
+				result.add(c);
+		}
+		Command[] commands = new Command[result.size()];
+		result.toArray(commands);
+		return commands;
+	}
+	
+	
+	/**
+	 * Returns the command of the specified script line, or null if the line is empty.
+	 * 
+	 * @param line : the script line
+	 * @return the command, or null
+	 */
+	public static Command compile(String line) {
+		
+		StringTokenizer script = new StringTokenizer(line);
+		if (!script.hasMoreTokens())
+			return null;
+		
+		try {
+			Command c = compile(Script.getVerb(script.nextToken()), script);
+			if (c!=null)
+				return c;
+		}
+		catch(Exception ex) {}
+		return new Line(line);
+	}
+	
+	
+	/**
+	 * Returns the command of the specified verb, or null to interpret the line.
+	 */
+	private static Command compile(int verb, StringTokenizer script) {
+		
+		EntityRef ref;
+		String name;
+		
+		switch (verb) {
+		
+		case 0 :
+		case Script.V_FREE :
+			return NOTHING;
+		
+		case Script.V_RESET_ENTITY :
+		case Script.V_INSERT_CHARA :
+		case Script.V_INSERT_OBJECT :
+		case Script.V_INSERT_SCRIPT :
+		case Script.V_INSERT_CHECKPOINT :
+			ref = getEntityRef(script);
+			return ref==null ? null : new EntityCommand(verb, ref);
+		
+		case Script.V_SET_COLLISION_PVS :
+			int node = Resources.getHandle(Resources.COLLISION_NODES, script.nextToken());
+			Vector v = new Vector();
+			while (script.hasMoreTokens())
+				v.add(script.nextToken());
+			int[] pvs = new int[v.size()];
+			for (int i=0; i<pvs.length; i++)
+				pvs[i] = Resources.getHandle(Resources.COLLISION_NODES, (String)v.get(i));
+			return new PvsCommand(node, pvs);
+		
+		case Script.V_INSERT_SKY :
+			return new HandleCommand(verb, Resources.getHandle(Resources.NODES, script.nextToken()));
+		
+		case Script.V_INSERT_DISPLAY :
+		case Script.V_REMOVE_DISPLAY :
+			return new HandleCommand(verb, Resources.getHandle(Resources.DISPLAY_NODES, script.nextToken()));
+		
+		case Script.V_INSERT_COLLISION :
+		case Script.V_REMOVE_COLLISION :
+			return new HandleCommand(verb, Resources.getHandle(Resources.COLLISION_NODES, script.nextToken()));
+		
+		case Script.V_PLAY_KINEMATIC :
+			return new HandleCommand(verb, Resources.getHandle(Resources.KINEMATICS, script.nextToken()));
+		
+		case Script.V_FREE_ALL :
+		case Script.V_STOP_MUSIC :
+		case Script.V_STOP_KINEMATIC :
+		case Script.V_CLEAR_MAP :
+		case Script.V_END_LEVEL :
+		case Script.V_RESET_PROPERTIES :
+			return new ArgCommand(verb, null, 0f);
+		
+		case Script.V_PLAY_SOUND :
+		case Script.V_STOP_DLIGHT :
+			return new ArgCommand(verb, script.nextToken(), 0f);
+		
+		case Script.V_PLAY_MUSIC :
+		case Script.V_SET_PROPERTY :
+		case Script.V_START_DLIGHT :
+			name = script.nextToken();
+			return new ArgCommand(verb, name, Float.parseFloat(script.nextToken()));
+		
+		case Script.V_SET_DLIGHT :
+		case Script.V_SET_POOL :
+			name = script.nextToken();
+			return new ArgCommand(verb, name, Integer.parseInt(script.nextToken()));
+		}
+		return null;
+	}
+	
+	
+	/**
+	 * Returns the reference of a stored or cloned entity, or null for an entity description.
+	 */
+	private static EntityRef getEntityRef(StringTokenizer script) {
+		String subject = script.nextToken();
+		if (subject.equals(Script.STORED))
+			return new EntityRef(Resources.getHandle(Resources.ENTITIES, script.nextToken()), false);
+		if (subject.equals(Script.CLONED))
+			return new EntityRef(Resources.getHandle(Resources.ENTITIES, script.nextToken()), true);
+		return null;
+	}
+	
+	
+	
+	private static final Command NOTHING = new Command() {
+		public void execute() {}
+	};
+	
+	
+	/**
+	 * Interprets the line at each execution.
+	 */
+	private static final class Line implements Command {
+		
+		private final String line;
+		
+		Line(String _line) {
+			line = _line;
+		}
+		
+		public void execute() {
+			Script.execute(new StringTokenizer(line));
+		}
+	}
+	
+	
+	/**
+	 * Stored entity, or copy of a stored entity.
+	 */
+	private static final class EntityRef {
+		
+		private final int handle;
+		private final boolean cloned;
+		
+		EntityRef(int _handle, boolean _cloned) {
+			handle = _handle;
+			cloned = _cloned;
+		}
+		
+		Entity get() {
+			Entity entity = Resources.getEntity(handle);
+			if (cloned && entity!=null)
+				return (Entity)entity.clone();
+			return entity;
+		}
+	}
+	
+	
+	/**
+	 * Resets or inserts an entity in the map.
+	 */
+	private static final class EntityCommand implements Command {
+		
+		private final int verb;
+		private final EntityRef ref;
+		
+		EntityCommand(int _verb, EntityRef _ref) {
+			verb = _verb;
+			ref = _ref;
+		}
+		
+		public void execute() {
+			Entity entity = ref.get();
+			if (verb==Script.V_RESET_ENTITY) {
+				if (entity!=null)
+					entity.reset();
+			}
+			else
+				Script.insertEntity(verb, entity);
+		}
+	}
+	
+	
+	/**
+	 * Adds the potentially visible nodes of a collision node.
+	 */
+	private static final class PvsCommand implements Command {
+		
+		private final int node;
+		private final int[] pvs;
+		
+		PvsCommand(int _node, int[] _pvs) {
+			node = _node;
+			pvs = _pvs;
+		}
+		
+		public void execute() {
+			CollisionNode cNode = Resources.getCollisionNode(node);
+			if (cNode!=null)
+				for (int i=0; i<pvs.length; i++) {
+					CollisionNode node2 = Resources.getCollisionNode(pvs[i]);
+					if (node2!=null)
+						cNode.addPvs(node2);
+				}
+		}
+	}
+	
+	
+	/**
+	 * Inserts or removes a stored resource.
+	 */
+	private static final class HandleCommand implements Command {
+		
+		private final int verb;
+		private final int handle;
+		
+		HandleCommand(int _verb, int _handle) {
+			verb = _verb;
+			handle = _handle;
+		}
+		
+		public void execute() {
+			switch (verb) {
+			case Script.V_INSERT_SKY :
+				Script.insertSky(Resources.getNode(handle));
+				break;
+			case Script.V_INSERT_DISPLAY :
+				Script.insertDisplay(Resources.getDisplayNode(handle));
+				break;
+			case Script.V_REMOVE_DISPLAY :
+				World.map.removeDisplayNode(Resources.getDisplayNode(handle));
+				break;
+			case Script.V_INSERT_COLLISION :
+				Script.insertCollision(Resources.getCollisionNode(handle));
+				break;
+			case Script.V_REMOVE_COLLISION :
+				World.map.removeCollisionNode(Resources.getCollisionNode(handle));
+				break;
+			case Script.V_PLAY_KINEMATIC :
+				Script.playKinematic(Resources.getKinematic(handle));
+				break;
+			}
+		}
+	}
+	
+	
+	/**
+	 * Command with an optional name and number.
+	 */
+	private static final class ArgCommand implements Command {
+		
+		private final int verb;
+		private final String name;
+		private final float value;
+		
+		ArgCommand(int _verb, String _name, float _value) {
+			verb = _verb;
+			name = _name;
+			value = _value;
+		}
+		
+		public void execute() {
+			switch (verb) {
+			case Script.V_FREE_ALL :
+				Script.freeAll();
+				break;
+			case Script.V_PLAY_SOUND :
+				Sounds.play(name);
+				break;
+			case Script.V_PLAY_MUSIC :
+				Sounds.playMusic(name, value);
+				break;
+			case Script.V_STOP_MUSIC :
+				Sounds.stopMusic();
+				break;
+			case Script.V_STOP_KINEMATIC :
+				Script.stopKinematic();
+				break;
+			case Script.V_CLEAR_MAP :
+				Script.clearMap();
+				break;
+			case Script.V_END_LEVEL :
+				World.map.setFinished();
+				break;
+			case Script.V_SET_PROPERTY :
+				Script.setProperty(name, value);
+				break;
+			case Script.V_RESET_PROPERTIES :
+				Script.resetProperties();
+				break;
+			case Script.V_START_DLIGHT :
+				Script.startDLight(name, value);
+				break;
+			case Script.V_STOP_DLIGHT :
+				Script.stopDLight(name);
+				break;
+			case Script.V_SET_DLIGHT :
+				Script.setDLight(name, (int)value);
+				break;
+			case Script.V_SET_POOL :
+				EntityPool.setSize(name, (int)value);
+				break;
+			}
+		}
+	}
+	
+}
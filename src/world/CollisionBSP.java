@@ -21,8 +21,8 @@ package world;
 import java.util.Vector;
 import phys.Bsp_tree;
 import phys.Shape_aabb;
-import phys.Shape_sphere;
 import phys.Trace;
+import phys.TraceContext;
 import jglcore.JGL_Math;
 import jglcore.JGL_3DMesh;
 import jglcore.JGL_3DVector;
@@ -36,12 +36,10 @@ import jglcore.JGL_3DVector;
  */
 public final class CollisionBSP implements CollisionNode {
 	
-	private static Shape_sphere eyeSphere = new Shape_sphere(new JGL_3DVector(), 0.05f);
-	private static Trace testTrace = new Trace();
-	
 	private String name;
 	private Bsp_tree bsp_phys;
 	private Shape_aabb[] viewShapes;
+	private ViewShapeTree viewTree;
 	private CollisionNode pvs[];
 	
 	private boolean ingame;
@@ -64,6 +62,7 @@ public final class CollisionBSP implements CollisionNode {
 		viewShapes = new Shape_aabb[_viewShapes.size()];
 		for (i=0; i<_viewShapes.size(); i++)
 			viewShapes[i] = (Shape_aabb)_viewShapes.get(i);
+		viewTree = new ViewShapeTree(viewShapes);
 		
 		JGL_3DMesh m;
 		JGL_3DVector v;
@@ -86,6 +85,30 @@ public final class CollisionBSP implements CollisionNode {
 	}
 	
 	
+	/**
+	 * Constructs a BSP area from an already built BSP.
+	 * 
+	 * @param id : the area ID
+	 * @param _bsp : the BSP, in map coordinates
+	 * @param _viewShapes : the view shapes
+	 */
+	public CollisionBSP(String id, Bsp_tree _bsp, Vector _viewShapes) {
+		
+		name = id;
+		
+		viewShapes = new Shape_aabb[_viewShapes.size()];
+		for (int i=0; i<_viewShapes.size(); i++)
+			viewShapes[i] = (Shape_aabb)_viewShapes.get(i);
+		viewTree = new ViewShapeTree(viewShapes);
+		
+		bsp_phys = _bsp;
+		
+		pvs = new CollisionNode[0];
+		
+		ingame = false;
+	}
+	
+	
 	public String getName() {
 		return name;
 	}
@@ -129,10 +152,22 @@ public final class CollisionBSP implements CollisionNode {
 	 * @return if an impact occurs nearer than the trace's stored one
 	 */
 	public boolean collideRecursive(Trace trace) {
+		return collideRecursive(trace, TraceContext.get());
+	}
+	
+	
+	/**
+	 * Traces the shape across the BSP area.
+	 * 
+	 * @param trace : the trace result
+	 * @param ctx : the trace context
+	 * @return if an impact occurs nearer than the trace's stored one
+	 */
+	public boolean collideRecursive(Trace trace, TraceContext ctx) {
 		
-		boolean result = collideSimple(trace, true);
+		boolean result = collideSimple(trace, true, ctx);
 		for (int i=0; i<pvs.length; i++)
-			result |= pvs[i].collideSimple(trace, false);
+			result |= pvs[i].collideSimple(trace, false, ctx);
 		return result;
 	}
 	
@@ -144,6 +179,18 @@ public final class CollisionBSP implements CollisionNode {
 	 * @return if an impact occurs nearer than the trace's stored one
 	 */
 	public boolean collideSimple(Trace trace, boolean test) {
+		return collideSimple(trace, test, TraceContext.get());
+	}
+	
+	
+	/**
+	 * Traces the shape across the BSP area.
+	 * 
+	 * @param trace : the trace result
+	 * @param ctx : the trace context
+	 * @return if an impact occurs nearer than the trace's stored one
+	 */
+	public boolean collideSimple(Trace trace, boolean test, TraceContext ctx) {
 		
 		if (!ingame)
 			return false;
@@ -152,10 +199,10 @@ public final class CollisionBSP implements CollisionNode {
 			return false;
 		
 		if (!test) test = isIn(trace);
-		if (!test) test = isCrossing(trace);
+		if (!test) test = isCrossing(trace, ctx);
 		
 		if (test)
-			return bsp_phys.trace(trace);
+			return bsp_phys.trace(trace, ctx);
 		return false;
 	}
 	
@@ -169,42 +216,81 @@ public final class CollisionBSP implements CollisionNode {
 	 * @return if the segment intersects the map
 	 */
 	public boolean intersect(JGL_3DVector p1, JGL_3DVector p2) {
+		return intersect(p1, p2, TraceContext.get());
+	}
+	
+	
+	/**
+	 * Returns if the specified segment  
+	 * intersects the map (height-map + BSP's).
+	 * 
+	 * @param p1 : segment start point
+	 * @param p2 : segment end point
+	 * @param ctx : the trace context
+	 * @return if the segment intersects the map
+	 */
+	public boolean intersect(JGL_3DVector p1, JGL_3DVector p2, TraceContext ctx) {
 		
-		eyeSphere.setPosition(p1);
-		testTrace.reset(eyeSphere, p1, p2);
+		Trace testTrace = ctx.test;
+		ctx.point.setPosition(p1);
+		testTrace.reset(ctx.point, p1, p2);
 		
 		boolean test = isIn(testTrace);
-		if (!test) test = isCrossing(testTrace);
+		if (!test) test = isCrossing(testTrace, ctx);
 		
 		if (test) {
 			testTrace.clearImpact();
-			bsp_phys.trace(testTrace);
+			bsp_phys.trace(testTrace, ctx);
 			return testTrace.isImpact();
 		}
 		return false;
 	}
 	
 	
+	/**
+	 * Tests the segments from the origin point to each target point against the BSP area. 
+	 * The view shape test of the origin is done once for all the targets.
+	 * 
+	 * @param origin : the segments start point
+	 * @param targets : the segments end points
+	 * @param count : the number of targets to test
+	 * @param out : set to true for each segment intersecting the area, 
+	 * the segments already set to true are not tested
+	 * @param ctx : the trace context
+	 */
+	public void intersectMany(JGL_3DVector origin, JGL_3DVector[] targets, int count, boolean[] out, TraceContext ctx) {
+		
+		Trace testTrace = ctx.test;
+		ctx.point.setPosition(origin);
+		testTrace.reset(ctx.point, origin, origin);
+		boolean in = isIn(testTrace);
+		
+		for (int i=0; i<count; i++) {
+			if (out[i])
+				continue;
+			testTrace.reset(ctx.point, origin, targets[i]);
+			if (in || isCrossing(testTrace, ctx)) {
+				testTrace.clearImpact();
+				bsp_phys.trace(testTrace, ctx);
+				out[i] = testTrace.isImpact();
+			}
+		}
+	}
+	
+	
 	
 	public boolean isIn(Trace trace) {
-		
-		boolean test = false;
-		for (int i=0; i<viewShapes.length && !test; i++)
-			test |= viewShapes[i].isIn(trace.cshape);
-		return test;
+		return viewTree.isIn(trace.cshape);
 	}
 	
 	
 	public boolean isCrossing(Trace trace) {
-		
-		boolean test = false;
-		testTrace.reset(trace.cshape, trace.start, trace.end);
-		for (int i=0; i<viewShapes.length && !test; i++) {
-			viewShapes[i].trace(testTrace);
-			test |= testTrace.isImpact();
-			testTrace.clearImpact();
-		}
-		return test;
+		return isCrossing(trace, TraceContext.get());
+	}
+	
+	
+	public boolean isCrossing(Trace trace, TraceContext ctx) {
+		return viewTree.isCrossing(trace, ctx);
 	}
 	
 }
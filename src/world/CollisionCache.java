@@ -0,0 +1,352 @@
+//	Copyright 2009 Nicolas Devere
+//
+//	This file is part of FLESH SNATCHER.
+//
+//	FLESH SNATCHER is free software; you can redistribute it and/or modify
+//	it under the terms of the GNU General Public License as published by
+//	the Free Software Foundation; either version 2 of the License, or
+//	(at your option) any later version.
+//
+//	FLESH SNATCHER is distributed in the hope that it will be useful,
+//	but WITHOUT ANY WARRANTY; without even the implied warranty of
+//	MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+//	GNU General Public License for more details.
+//
+//	You should have received a copy of the GNU General Public License
+//	along with FLESH SNATCHER; if not, write to the Free Software
+//	Foundation, Inc., 51 Franklin St, Fifth Floor, Boston, MA  02110-1301  USA
+
+package world;
+
+import java.io.BufferedOutputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.DataOutputStream;
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.InputStream;
+import java.io.RandomAccessFile;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.security.MessageDigest;
+import java.util.Vector;
+
+import phys.Bsp_tree;
+import phys.Shape_aabb;
+import phys.Util4Phys;
+import jglcore.JGL_3DMesh;
+import jglcore.JGL_3DVector;
+import input.Data3D;
+import input.LoadHelper;
+import input.Reader_Milkshape;
+
+
+/**
+ * Binary cache of the compiled collision data : collision BSPs and height-maps.<br>
+ * The first load of a source mesh builds the collision data and writes it in a 
+ * versioned file, keyed by a hash of the source content and of the load parameters. 
+ * The next loads map the file in memory and read the arrays directly. 
+ * A file whose version or hash doesn't match is stale and is rebuilt.
+ * 
+ * @author Nicolas Devere
+ *
+ */
+public final class CollisionCache {
+	
+	
+	/** If the cache files are used */
+	public static boolean ENABLED = true;
+	
+	/** Directory of the cache files */
+	public static String DIRECTORY = "cache/collision/";
+	
+	/** Version of the files format, to increase when the compiled data change */
+	public static final int VERSION = 1;
+	
+	private static final int MAGIC = 0x46534343;
+	
+	// Kinds of data
+	private static final int TREE = 1;
+	private static final int BSP = 2;
+	private static final int HEIGHT_MAP = 3;
+	
+	private static final int DIGEST_LENGTH = 20;
+	
+	// Statistics
+	private static int hits = 0;
+	private static int misses = 0;
+	
+	
+	
+	/**
+	 * Returns the collision BSP of the brushes of the specified mesh file.
+	 * 
+	 * @param file : the mesh file
+	 * @return the collision BSP
+	 * @throws Exception if the mesh file can't be read
+	 */
+	public static Bsp_tree getBsp(String file) throws Exception {
+		
+		byte[] digest = getDigest(TREE, file, "");
+		File f = getFile(TREE, file, "");
+		
+		ByteBuffer in = map(f, TREE, digest);
+		if (in!=null) {
+			try {
+				Bsp_tree bsp = Bsp_tree.read(in);
+				hits++;
+				return bsp;
+			}
+			catch(RuntimeException ex) {}
+		}
+		misses++;
+		
+		Data3D data = new Reader_Milkshape(file).getData();
+		JGL_3DMesh[] brushes = new JGL_3DMesh[data.subMeshes.size()];
+		for (int i=0; i<brushes.length; i++)
+			brushes[i] = (JGL_3DMesh)data.subMeshes.get(i);
+		Bsp_tree bsp = new Bsp_tree(brushes);
+		
+		ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+		DataOutputStream out = new DataOutputStream(bytes);
+		bsp.write(out);
+		out.flush();
+		store(f, TREE, digest, bytes);
+		
+		return bsp;
+	}
+	
+	
+	/**
+	 * Returns the BSP area of the brushes of the specified mesh file. 
+	 * If no view shape is specified, the area has one view shape around the mesh.
+	 * 
+	 * @param id : the area ID
+	 * @param pos : the area position
+	 * @param file : the mesh file
+	 * @param shapes : the view shapes, or null
+	 * @return the BSP area
+	 * @throws Exception if the mesh file can't be read
+	 */
+	public static CollisionBSP getCollisionBSP(String id, JGL_3DVector pos, String file, Vector shapes) throws Exception {
+		
+		String params = pos.x + " " + pos.y + " " + pos.z;
+		byte[] digest = getDigest(BSP, file, params);
+		File f = getFile(BSP, file, params);
+		
+		ByteBuffer in = map(f, BSP, digest);
+		if (in!=null) {
+			try {
+				JGL_3DVector min = new JGL_3DVector(in.getFloat(), in.getFloat(), in.getFloat());
+				JGL_3DVector max = new JGL_3DVector(in.getFloat(), in.getFloat(), in.getFloat());
+				Bsp_tree bsp = Bsp_tree.read(in);
+				if (shapes==null) {
+					shapes = new Vector();
+					shapes.add(new Shape_aabb(new JGL_3DVector(pos.x, pos.y, pos.z), min, max));
+				}
+				hits++;
+				return new CollisionBSP(id, bsp, shapes);
+			}
+			catch(RuntimeException ex) {}
+		}
+		misses++;
+		
+		Data3D data = new Reader_Milkshape(file).getData();
+		Shape_aabb aabb = Util4Phys.getAABB(data.mesh, 1f);
+		aabb.setPosition(pos);
+		if (shapes==null) {
+			shapes = new Vector();
+			shapes.add(aabb);
+		}
+		CollisionBSP node = new CollisionBSP(id, data.subMeshes, shapes, pos);
+		
+		ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+		DataOutputStream out = new DataOutputStream(bytes);
+		out.writeFloat(aabb.getMinX()); out.writeFloat(aabb.getMinY()); out.writeFloat(aabb.getMinZ());
+		out.writeFloat(aabb.getMaxX()); out.writeFloat(aabb.getMaxY()); out.writeFloat(aabb.getMaxZ());
+		node.getBsp().write(out);
+		out.flush();
+		store(f, BSP, digest, bytes);
+		
+		return node;
+	}
+	
+	
+	/**
+	 * Returns the height-map of the specified mesh file.
+	 * 
+	 * @param id : the height-map ID
+	 * @param pos : the height-map position
+	 * @param width : the number of points along x
+	 * @param depth : the number of points along z
+	 * @param gap : the gap between the points
+	 * @param file : the mesh file
+	 * @return the height-map
+	 * @throws Exception if the mesh file can't be read
+	 */
+	public static CollisionHeightMap getHeightMap(String id, JGL_3DVector pos, int width, int depth, float gap, String file) throws Exception {
+		
+		String params = pos.x + " " + pos.y + " " + pos.z + " " + width + " " + depth + " " + gap;
+		byte[] digest = getDigest(HEIGHT_MAP, file, params);
+		File f = getFile(HEIGHT_MAP, file, params);
+		
+		ByteBuffer in = map(f, HEIGHT_MAP, digest);
+		if (in!=null) {
+			try {
+				CollisionHeightMap hm = CollisionHeightMap.read(id, in);
+				hits++;
+				return hm;
+			}
+			catch(RuntimeException ex) {}
+		}
+		misses++;
+		
+		CollisionHeightMap hm = new CollisionHeightMap(id, pos, width, depth, gap, 
+				new Reader_Milkshape(file).getData().mesh);
+		
+		ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+		DataOutputStream out = new DataOutputStream(bytes);
+		hm.write(out);
+		out.flush();
+		store(f, HEIGHT_MAP, digest, bytes);
+		
+		return hm;
+	}
+	
+	
+	/**
+	 * Returns the number of loads read from a cache file.
+	 * 
+	 * @return the number of cache hits
+	 */
+	public static int getHits() {
+		return hits;
+	}
+	
+	
+	/**
+	 * Returns the number of loads built from the source mesh.
+	 * 
+	 * @return the number of cache misses
+	 */
+	public static int getMisses() {
+		return misses;
+	}
+	
+	
+	
+	/**
+	 * Hash of the format version, the data kind, the parameters and the source content.
+	 */
+	private static byte[] getDigest(int kind, String file, String params) throws Exception {
+		
+		MessageDigest md = MessageDigest.getInstance("SHA-1");
+		md.update(new byte[] {(byte)(VERSION >> 24), (byte)(VERSION >> 16), (byte)(VERSION >> 8), (byte)VERSION, (byte)kind});
+		md.update(params.getBytes("UTF-8"));
+		
+		InputStream is = LoadHelper.getURL(file).openStream();
+		try {
+			byte[] buffer = new byte[8192];
+			int nb;
+			while ((nb = is.read(buffer))>0)
+				md.update(buffer, 0, nb);
+		}
+		finally {
+			is.close();
+		}
+		return md.digest();
+	}
+	
+	
+	/**
+	 * Cache file of the specified source and parameters.
+	 */
+	private static File getFile(int kind, String file, String params) throws Exception {
+		
+		byte[] key = MessageDigest.getInstance("SHA-1").digest((file + "|" + params).getBytes("UTF-8"));
+		StringBuffer name = new StringBuffer();
+		name.append(kind==TREE ? "tree_" : (kind==BSP ? "bsp_" : "hm_"));
+		for (int i=0; i<8; i++)
+			name.append(Integer.toHexString((key[i] & 0xff) | 0x100).substring(1));
+		name.append(".bin");
+		return new File(DIRECTORY, name.toString());
+	}
+	
+	
+	/**
+	 * Checks the header of the specified cache file, then maps the data after it, 
+	 * or returns null if the file doesn't exist or is stale.<br>
+	 * The header is read before mapping : a mapped file stays mapped until the 
+	 * buffer is garbage-collected, and can't be replaced on some systems, so a 
+	 * stale file is never mapped.
+	 */
+	private static ByteBuffer map(File f, int kind, byte[] digest) {
+		
+		if (!ENABLED || !f.isFile())
+			return null;
+		
+		try {
+			RandomAccessFile raf = new RandomAccessFile(f, "r");
+			try {
+				int length = 12 + DIGEST_LENGTH;
+				if (raf.length()<length)
+					return null;
+				
+				byte[] header = new byte[length];
+				raf.readFully(header);
+				ByteBuffer h = ByteBuffer.wrap(header);
+				if (h.getInt()!=MAGIC || h.getInt()!=VERSION || h.getInt()!=kind)
+					return null;
+				for (int i=0; i<DIGEST_LENGTH; i++)
+					if (h.get()!=digest[i])
+						return null;
+				
+				FileChannel channel = raf.getChannel();
+				return channel.map(FileChannel.MapMode.READ_ONLY, length, channel.size() - length);
+			}
+			finally {
+				raf.close();
+			}
+		}
+		catch(Exception ex) {
+			return null;
+		}
+	}
+	
+	
+	/**
+	 * Writes the header and the data in a temporary file, then renames it. 
+	 * A cache which can't be written is only skipped.
+	 */
+	private static void store(File f, int kind, byte[] digest, ByteArrayOutputStream data) {
+		
+		if (!ENABLED)
+			return;
+		
+		File tmp = new File(f.getPath() + ".tmp");
+		try {
+			File dir = f.getParentFile();
+			if (dir!=null && !dir.isDirectory() && !dir.mkdirs())
+				return;
+			
+			DataOutputStream out = new DataOutputStream(new BufferedOutputStream(new FileOutputStream(tmp)));
+			try {
+				out.writeInt(MAGIC);
+				out.writeInt(VERSION);
+				out.writeInt(kind);
+				out.write(digest, 0, DIGEST_LENGTH);
+				data.writeTo(out);
+			}
+			finally {
+				out.close();
+			}
+			
+			f.delete();
+			if (!tmp.renameTo(f))
+				tmp.delete();
+		}
+		catch(Exception ex) {
+			tmp.delete();
+		}
+	}
+	
+}
@@ -18,21 +18,29 @@
 
 package world;
 
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.nio.ByteBuffer;
 import java.util.Vector;
 
 import jglcore.JGL_3DBsp;
 import jglcore.JGL_3DMesh;
+import jglcore.JGL_3DPlane;
 import jglcore.JGL_3DTriangle;
 import jglcore.JGL_3DVector;
-import phys.Shape_sphere;
+import phys.Shape;
 import phys.Shape_aabb;
 import phys.Trace;
+import phys.TraceContext;
 import phys.Tracer;
 import phys.Util4Phys;
 
 
 /**
- * Land providing height-map collision management.
+ * Land providing height-map collision management.<br>
+ * The heights are stored in a single array, with a bitmask of the holes 
+ * (cells having an undefined corner). The BSP of a cell is only rebuilt 
+ * in the trace context when the cell is tested.
  * 
  * @author Nicolas Devere
  *
@@ -41,48 +49,6 @@ public final class CollisionHeightMap implements CollisionNode {
 	
 	
 	
-	/**
-	 * Represents a heightmap cell. It's a (x, z) square made by 2 triangles. 
-	 * It also stores a BSP storing the 2 triangles made for collision tracing.
-	 * 
-	 * @author Nicolas Devere
-	 *
-	 */
-	final class HeightMapCell {
-		
-		public boolean dummy;
-		public JGL_3DBsp bsp;
-		
-		/**
-		 * Constructs a cell with 2 triangles.
-		 * 
-		 * @param _t1 : first triangle
-		 * @param _t2 : second triangle
-		 */
-		public HeightMapCell(JGL_3DTriangle _t1, JGL_3DTriangle _t2) {
-			
-			dummy = false;
-			
-			if (_t1.point1.y==Float.NEGATIVE_INFINITY) dummy = true;
-			if (_t1.point2.y==Float.NEGATIVE_INFINITY) dummy = true;
-			if (_t1.point3.y==Float.NEGATIVE_INFINITY) dummy = true;
-			if (_t2.point1.y==Float.NEGATIVE_INFINITY) dummy = true;
-			if (_t2.point2.y==Float.NEGATIVE_INFINITY) dummy = true;
-			if (_t2.point3.y==Float.NEGATIVE_INFINITY) dummy = true;
-			
-			if (!dummy) {
-				bsp = new JGL_3DBsp();
-				bsp.addFace(_t1);
-				bsp.addFace(_t2);
-			}
-		}
-	}
-	
-	
-	
-	private static Shape_sphere pPoint = new Shape_sphere(new JGL_3DVector(), 0.05f);
-	private static Trace testTrace = new Trace();
-	
 	private String name;
 	private float xp, yp, zp;
 	private int wi;
@@ -90,9 +56,14 @@ public final class CollisionHeightMap implements CollisionNode {
 	private float ga;
 	private float ga_inv;
 	
-	private HeightMapCell[][] map;
+	// Corner heights : heights[i * (de + 1) + j], map position included
+	private float[] heights;
+	
+	// Holes : bit i * de + j is set if the cell (i, j) has an undefined corner
+	private long[] holes;
 	
 	private Shape_aabb aabb;
+	private ViewShapeTree aabbTree;
 	
 	private CollisionNode pvs[];
 	
@@ -126,11 +97,10 @@ public final class CollisionHeightMap implements CollisionNode {
 		ga_inv = 1f / ga;
 		
 		Vector p = mesh.getPoints();
-		float[][] heights = new float[width][depth];
+		heights = new float[width * depth];
 		
-		for (int i=0; i<width; i++)
-			for (int j=0; j<depth; j++)
-				heights[i][j] = Float.NEGATIVE_INFINITY;
+		for (int i=0; i<heights.length; i++)
+			heights[i] = Float.NEGATIVE_INFINITY;
 		
 		JGL_3DVector v;
 		int w, d;
@@ -139,38 +109,45 @@ public final class CollisionHeightMap implements CollisionNode {
 			w = (int)Math.abs(v.x / gap);
 			d = (int)Math.abs(v.z / gap);
 			if (w<width && d<depth)
-				heights[w][d] = v.y;
+				heights[(w * depth) + d] = v.y;
 		}
 		
-		
-		
-		map = new HeightMapCell[wi][de];
-		
-		JGL_3DTriangle t1, t2;
-		
-		for (int j=de-1; j>=0; j--) {
-			for (int i=0; i<wi; i++) {
-				t1 = new JGL_3DTriangle(new JGL_3DVector((i*ga)+xp, heights[i][j+1]+yp, (-(j+1)*ga)+zp), 
-										new JGL_3DVector((i*ga)+xp, heights[i][j]+yp, (-j*ga)+zp), 
-										new JGL_3DVector(((i+1)*ga)+xp, heights[i+1][j]+yp, (-j*ga)+zp));
-				
-				t2 = new JGL_3DTriangle(new JGL_3DVector(((i+1)*ga)+xp, heights[i+1][j]+yp, (-j*ga)+zp), 
-										new JGL_3DVector(((i+1)*ga)+xp, heights[i+1][j+1]+yp, (-(j+1)*ga)+zp), 
-										new JGL_3DVector((i*ga)+xp, heights[i][j+1]+yp, (-(j+1)*ga)+zp));
-				
-				map[i][j] = new HeightMapCell(t1, t2);
-				
-				if (!map[i][j].dummy) {
-					mesh.addFace(t1);
-					mesh.addFace(t2);
+		// Bounds of the mesh points and of the defined cells
+		JGL_3DVector min = new JGL_3DVector(Float.POSITIVE_INFINITY, Float.POSITIVE_INFINITY, Float.POSITIVE_INFINITY);
+		JGL_3DVector max = new JGL_3DVector(Float.NEGATIVE_INFINITY, Float.NEGATIVE_INFINITY, Float.NEGATIVE_INFINITY);
+		for (int i=0; i<p.size(); i++)
+			addBound((JGL_3DVector)p.get(i), min, max);
+		
+		for (int i=0; i<heights.length; i++)
+			heights[i] += yp;
+		
+		holes = new long[((wi * de) + 63) >> 6];
+		int nbCells = 0;
+		v = new JGL_3DVector();
+		
+		for (int i=0; i<wi; i++) {
+			for (int j=0; j<de; j++) {
+				if (height(i, j)==Float.NEGATIVE_INFINITY || height(i, j+1)==Float.NEGATIVE_INFINITY || 
+					height(i+1, j)==Float.NEGATIVE_INFINITY || height(i+1, j+1)==Float.NEGATIVE_INFINITY) {
+					holes[((i * de) + j) >> 6] |= 1L << (((i * de) + j) & 63);
+					continue;
 				}
+				nbCells++;
+				v.assign((i*ga)+xp, height(i, j+1), (-(j+1)*ga)+zp); addBound(v, min, max);
+				v.assign((i*ga)+xp, height(i, j), (-j*ga)+zp); addBound(v, min, max);
+				v.assign(((i+1)*ga)+xp, height(i+1, j), (-j*ga)+zp); addBound(v, min, max);
+				v.assign(((i+1)*ga)+xp, height(i+1, j+1), (-(j+1)*ga)+zp); addBound(v, min, max);
 			}
 		}
 		
-		if (mesh.getFaces().size()>0)
-			aabb = Util4Phys.getAABB(mesh, 2f);
+		if (nbCells>0 || mesh.getFaces().size()>0) {
+			min.x -= 2f; min.y -= 2f; min.z -= 2f;
+			max.x += 2f; max.y += 2f; max.z += 2f;
+			aabb = new Shape_aabb(new JGL_3DVector(), min, max);
+		}
 		else
 			aabb = new Shape_aabb(new JGL_3DVector(), new JGL_3DVector(), new JGL_3DVector());
+		aabbTree = new ViewShapeTree(new Shape_aabb[] {aabb});
 		
 		mesh.clear();
 		mesh = null;
@@ -181,6 +158,89 @@ public final class CollisionHeightMap implements CollisionNode {
 	}
 	
 	
+	/**
+	 * Constructs a height-map from its stored data.
+	 */
+	private CollisionHeightMap(String id, float x, float y, float z, int w, int d, float gap, 
+			float[] _heights, long[] _holes, JGL_3DVector min, JGL_3DVector max) {
+		
+		name = id;
+		xp = x;
+		yp = y;
+		zp = z;
+		wi = w;
+		de = d;
+		ga = gap;
+		ga_inv = 1f / ga;
+		heights = _heights;
+		holes = _holes;
+		
+		aabb = new Shape_aabb(new JGL_3DVector(), min, max);
+		aabbTree = new ViewShapeTree(new Shape_aabb[] {aabb});
+		
+		pvs = new CollisionNode[0];
+		
+		ingame = false;
+	}
+	
+	
+	/**
+	 * Writes the height-map data in binary form.
+	 * 
+	 * @param out : the output stream
+	 * @throws IOException
+	 */
+	public void write(DataOutputStream out) throws IOException {
+		
+		out.writeFloat(xp);
+		out.writeFloat(yp);
+		out.writeFloat(zp);
+		out.writeInt(wi);
+		out.writeInt(de);
+		out.writeFloat(ga);
+		
+		out.writeFloat(aabb.getMinX()); out.writeFloat(aabb.getMinY()); out.writeFloat(aabb.getMinZ());
+		out.writeFloat(aabb.getMaxX()); out.writeFloat(aabb.getMaxY()); out.writeFloat(aabb.getMaxZ());
+		
+		out.writeInt(heights.length);
+		for (int i=0; i<heights.length; i++)
+			out.writeFloat(heights[i]);
+		out.writeInt(holes.length);
+		for (int i=0; i<holes.length; i++)
+			out.writeLong(holes[i]);
+	}
+	
+	
+	/**
+	 * Reads a height-map written by <code>write(DataOutputStream)</code>.
+	 * 
+	 * @param id : the height-map ID
+	 * @param in : the buffer, positioned at the height-map start
+	 * @return the height-map
+	 */
+	public static CollisionHeightMap read(String id, ByteBuffer in) {
+		
+		float x = in.getFloat();
+		float y = in.getFloat();
+		float z = in.getFloat();
+		int w = in.getInt();
+		int d = in.getInt();
+		float gap = in.getFloat();
+		
+		JGL_3DVector min = new JGL_3DVector(in.getFloat(), in.getFloat(), in.getFloat());
+		JGL_3DVector max = new JGL_3DVector(in.getFloat(), in.getFloat(), in.getFloat());
+		
+		float[] h = new float[in.getInt()];
+		in.asFloatBuffer().get(h);
+		in.position(in.position() + (h.length * 4));
+		long[] b = new long[in.getInt()];
+		in.asLongBuffer().get(b);
+		in.position(in.position() + (b.length * 8));
+		
+		return new CollisionHeightMap(id, x, y, z, w, d, gap, h, b, min, max);
+	}
+	
+	
 	public String getName() {
 		return name;
 	}
@@ -212,10 +272,22 @@ public final class CollisionHeightMap implements CollisionNode {
 	 * @return if a collision occurs
 	 */
 	public boolean collideRecursive(Trace trace) {
+		return collideRecursive(trace, TraceContext.get());
+	}
+	
+	
+	/**
+	 * Searches and stores collision on the height-map.
+	 * 
+	 * @param trace : the trace to collide
+	 * @param ctx : the trace context
+	 * @return if a collision occurs
+	 */
+	public boolean collideRecursive(Trace trace, TraceContext ctx) {
 		
-		boolean result = collideSimple(trace, true);
+		boolean result = collideSimple(trace, true, ctx);
 		for (int i=0; i<pvs.length; i++)
-			result |= pvs[i].collideSimple(trace, false);
+			result |= pvs[i].collideSimple(trace, false, ctx);
 		return result;
 	}
 	
@@ -227,6 +299,18 @@ public final class CollisionHeightMap implements CollisionNode {
 	 * @return if a collision occurs
 	 */
 	public boolean collideSimple(Trace trace, boolean test) {
+		return collideSimple(trace, test, TraceContext.get());
+	}
+	
+	
+	/**
+	 * Searches and stores collision on the height-map.
+	 * 
+	 * @param trace : the trace to collide
+	 * @param ctx : the trace context
+	 * @return if a collision occurs
+	 */
+	public boolean collideSimple(Trace trace, boolean test, TraceContext ctx) {
 		
 		if (!ingame)
 			return false;
@@ -235,64 +319,26 @@ public final class CollisionHeightMap implements CollisionNode {
 			return false;
 		
 		if (!test) test = isIn(trace);
-		if (!test) test = isCrossing(trace);
+		if (!test) test = isCrossing(trace, ctx);
 		if (!test) return false;
 		
-		boolean result = false;
-		float xMin, xMax;
-		float zMin, zMax;
-		float xf, zf;
-		int xi, zi;
+		Trace testTrace = ctx.test;
 		float offset = trace.cshape.getOffset(Util4Phys.up.normal);
 		
-		testTrace.reset(pPoint, trace.start, trace.end);
-		
-		JGL_3DVector pos1 = testTrace.start;
-		JGL_3DVector pos2 = testTrace.end;
-		pos1.y -= offset;
-		pos2.y -= offset;
-		
-		if (pos1.x<=pos2.x) {
-			xMin = pos1.x - trace.cshape.getOffset(Util4Phys.right.normal);
-			xMax = pos2.x + trace.cshape.getOffset(Util4Phys.left.normal);
-		}
-		else {
-			xMin = pos2.x - trace.cshape.getOffset(Util4Phys.right.normal);
-			xMax = pos1.x + trace.cshape.getOffset(Util4Phys.left.normal);
-		}
-		
-		if (pos1.z>=pos2.z) {
-			zMin = pos1.z + trace.cshape.getOffset(Util4Phys.near.normal);
-			zMax = pos2.z - trace.cshape.getOffset(Util4Phys.far.normal);
-		}
-		else {
-			zMin = pos2.z + trace.cshape.getOffset(Util4Phys.near.normal);
-			zMax = pos1.z - trace.cshape.getOffset(Util4Phys.far.normal);
-		}
-		
-		int xi1 = (int)Math.floor((xMin - xp) * ga_inv); if (xi1<0) xi1 = 0;
-		int zi1 = -(int)Math.ceil((zMin - zp) * ga_inv); if (zi1<0) zi1 = 0;
+		testTrace.reset(ctx.point, trace.start, trace.end);
+		testTrace.start.y -= offset;
+		testTrace.end.y -= offset;
 		
-		int xi2 = (int)Math.floor((xMax - xp) * ga_inv); if (xi2>=wi) xi2 = wi - 1;
-		int zi2 = -(int)Math.ceil((zMax - zp) * ga_inv); if (zi2>=de) zi2 = de - 1;
-		
-		for (xi=xi1; xi<=xi2; xi++)
-			for (zi=zi1; zi<=zi2; zi++)
-				if (!map[xi][zi].dummy)
-					if (testTrace.trace(map[xi][zi].bsp, false)) {
-						xf = (testTrace.start.x + (testTrace.segment.x * testTrace.fractionReal));
-						zf = (testTrace.start.z + (testTrace.segment.z * testTrace.fractionReal));
-						if ( (xf>=xMin && xf<xMax && zf<=zMin && zf>zMax) )
-							result = true;
-					}
+		boolean result = walkCells(testTrace, trace.cshape, ctx.cellImpact, ctx);
 		
+		// The kept plane belongs to the context, the trace keeps a copy
 		if (result)
-			trace.setNearerImpact(testTrace.correction, testTrace.fractionImpact, testTrace.fractionReal);
+			trace.setNearerImpactCopy(testTrace.correction, testTrace.fractionImpact, testTrace.fractionReal);
 		else {
 			int xv = (int)Math.floor((testTrace.end.x - xp) * ga_inv); if (xv<0) return result; if (xv>=wi) return result;
 			int zv = -(int)Math.ceil((testTrace.end.z - zp) * ga_inv); if (zv<0) return result; if (zv>=de) return result;
-			if (!map[xv][zv].dummy)
-				if (!isAbove(map[xv][zv].bsp, testTrace.end)) {
+			if (!isHole(xv, zv))
+				if (!isAbove(getCell(xv, zv, ctx), testTrace.end)) {
 					trace.setImpact(Util4Phys.up, 0f, 0f);
 					result = true;
 				}
@@ -311,51 +357,270 @@ public final class CollisionHeightMap implements CollisionNode {
 	 * @return if the segment intersects the map
 	 */
 	public boolean intersect(JGL_3DVector p1, JGL_3DVector p2) {
+		return intersect(p1, p2, TraceContext.get());
+	}
+	
+	
+	/**
+	 * Returns if the specified segment  
+	 * intersects the height-map.
+	 * 
+	 * @param p1 : segment start point
+	 * @param p2 : segment end point
+	 * @param ctx : the trace context
+	 * @return if the segment intersects the map
+	 */
+	public boolean intersect(JGL_3DVector p1, JGL_3DVector p2, TraceContext ctx) {
 		
-		pPoint.setPosition(p1);
-		testTrace.reset(pPoint, p1, p2);
+		Trace testTrace = ctx.test;
+		ctx.point.setPosition(p1);
+		testTrace.reset(ctx.point, p1, p2);
 		boolean test = isIn(testTrace);
-		if (!test) test = isCrossing(testTrace);
+		if (!test) test = isCrossing(testTrace, ctx);
 		if (!test) return false;
 		
-		int xMin, xMax;
-		int zMin, zMax;
-		int xi, zi;
-		
-		if (p1.x<=p2.x) {
-			xMin = (int)Math.floor((p1.x - xp) * ga_inv);
-			xMax = (int)Math.floor((p2.x - xp) * ga_inv);
-		}
-		else {
-			xMin = (int)Math.floor((p2.x - xp) * ga_inv);
-			xMax = (int)Math.floor((p1.x - xp) * ga_inv);
-		}
-		
-		if (p1.z>=p2.z) {
-			zMin = -(int)Math.ceil((p1.z - zp) * ga_inv);
-			zMax = -(int)Math.ceil((p2.z - zp) * ga_inv);
+		return walkCells(testTrace, null, null, ctx);
+	}
+	
+	
+	/**
+	 * Tests the segments from the origin point to each target point against the height-map. 
+	 * The view shape test of the origin is done once for all the targets.
+	 * 
+	 * @param origin : the segments start point
+	 * @param targets : the segments end points
+	 * @param count : the number of targets to test
+	 * @param out : set to true for each segment intersecting the height-map, 
+	 * the segments already set to true are not tested
+	 * @param ctx : the trace context
+	 */
+	public void intersectMany(JGL_3DVector origin, JGL_3DVector[] targets, int count, boolean[] out, TraceContext ctx) {
+		
+		Trace testTrace = ctx.test;
+		ctx.point.setPosition(origin);
+		testTrace.reset(ctx.point, origin, origin);
+		boolean in = isIn(testTrace);
+		
+		for (int i=0; i<count; i++) {
+			if (out[i])
+				continue;
+			testTrace.reset(ctx.point, origin, targets[i]);
+			if (in || isCrossing(testTrace, ctx))
+				out[i] = walkCells(testTrace, null, null, ctx);
 		}
-		else {
-			zMin = -(int)Math.ceil((p2.z - zp) * ga_inv);
-			zMax = -(int)Math.ceil((p1.z - zp) * ga_inv);
+	}
+	
+	
+	/**
+	 * Walks the cells crossed by the segment of the test trace (Amanatides-Woo), 
+	 * in the order of the segment, and traces each one.<br>
+	 * Without shape, the impact must be in the traced cell and the walk stops 
+	 * at the first one. With a shape, the walk is widened by the shape offsets, 
+	 * an impact is kept if the shape overlaps the traced cell at the impact point, 
+	 * and the walk stops when it has passed the nearest kept impact, 
+	 * which is stored in the test trace.
+	 * 
+	 * @param testTrace : the point trace
+	 * @param shape : the shape giving the widening, or null
+	 * @param plane : receives the nearest impact plane, or null without shape
+	 * @param ctx : the trace context
+	 * @return if an impact was kept
+	 */
+	private boolean walkCells(Trace testTrace, Shape shape, JGL_3DPlane plane, TraceContext ctx) {
+		
+		JGL_3DVector p1 = testTrace.start;
+		JGL_3DVector p2 = testTrace.end;
+		
+		// Cell space : cell (i, j) is [i, i+1[ x [j, j+1[
+		float u1 = (p1.x - xp) * ga_inv;
+		float v1 = -(p1.z - zp) * ga_inv;
+		float u2 = (p2.x - xp) * ga_inv;
+		float v2 = -(p2.z - zp) * ga_inv;
+		float du = u2 - u1;
+		float dv = v2 - v1;
+		
+		int i = (int)Math.floor(u1);
+		int j = (int)Math.floor(v1);
+		int iEnd = (int)Math.floor(u2);
+		int jEnd = (int)Math.floor(v2);
+		int stepI = (du>=0f) ? 1 : -1;
+		int stepJ = (dv>=0f) ? 1 : -1;
+		
+		float tDeltaI = (du!=0f) ? Math.abs(1f / du) : Float.POSITIVE_INFINITY;
+		float tDeltaJ = (dv!=0f) ? Math.abs(1f / dv) : Float.POSITIVE_INFINITY;
+		float tMaxI = (du!=0f) ? ((stepI>0) ? (i + 1 - u1) : (u1 - i)) * tDeltaI : Float.POSITIVE_INFINITY;
+		float tMaxJ = (dv!=0f) ? ((stepJ>0) ? (j + 1 - v1) : (v1 - j)) * tDeltaJ : Float.POSITIVE_INFINITY;
+		
+		// Widening, limited to the cells covered by the whole sweep, 
+		// and the shape extents around the impact point
+		int ri = 0, rj = 0;
+		int iMin = 0, iMax = wi - 1, jMin = 0, jMax = de - 1;
+		float xMinExt = 0f, xMaxExt = 0f, zMinExt = 0f, zMaxExt = 0f;
+		if (shape!=null) {
+			xMinExt = shape.getOffset(Util4Phys.right.normal);
+			xMaxExt = shape.getOffset(Util4Phys.left.normal);
+			zMinExt = shape.getOffset(Util4Phys.far.normal);
+			zMaxExt = shape.getOffset(Util4Phys.near.normal);
+			ri = (int)Math.ceil(Math.max(xMinExt, xMaxExt) * ga_inv);
+			rj = (int)Math.ceil(Math.max(zMinExt, zMaxExt) * ga_inv);
+			iMin = Math.max(iMin, (int)Math.floor((Math.min(p1.x, p2.x) - xMinExt - xp) * ga_inv));
+			iMax = Math.min(iMax, (int)Math.floor((Math.max(p1.x, p2.x) + xMaxExt - xp) * ga_inv));
+			jMin = Math.max(jMin, -(int)Math.ceil((Math.max(p1.z, p2.z) + zMaxExt - zp) * ga_inv));
+			jMax = Math.min(jMax, -(int)Math.ceil((Math.min(p1.z, p2.z) - zMinExt - zp) * ga_inv));
 		}
 		
-		if (xMin<0) xMin = 0; if (xMax>=wi) xMax = wi - 1;
-		if (zMin<0) zMin = 0; if (zMax>=de) zMax = de - 1;
+		float best = 2f;
+		float bestImpact = 2f;
+		int steps = Math.abs(iEnd - i) + Math.abs(jEnd - j);
+		int k, l, lastStep = 0;
+		float t = 0f;
 		
-		for (xi=xMin; xi<=xMax; xi++)
-			for (zi=zMin; zi<=zMax; zi++) {
-				testTrace.clearImpact();
-				if (!map[xi][zi].dummy)
-					if (testTrace.trace(map[xi][zi].bsp, false)) {
-						if ((int)Math.floor( ((testTrace.start.x + (testTrace.segment.x * testTrace.fractionImpact)) - xp) * ga_inv )==xi && 
-							-(int)Math.ceil( ((testTrace.start.z + (testTrace.segment.z * testTrace.fractionImpact)) - zp) * ga_inv )==zi ) {
+		for (int n=0; n<=steps; n++) {
+			
+			// The cells not traced yet are only reached after the nearest kept impact
+			if (t>best)
+				break;
+			
+			// The whole widened first cell, then the new column or row of each step
+			int iFrom = i - ri, iTo = i + ri;
+			int jFrom = j - rj, jTo = j + rj;
+			if (n>0) {
+				if (lastStep==0)
+					iFrom = iTo = i + (stepI * ri);
+				else
+					jFrom = jTo = j + (stepJ * rj);
+			}
+			
+			if (iFrom<iMin) iFrom = iMin; if (iTo>iMax) iTo = iMax;
+			if (jFrom<jMin) jFrom = jMin; if (jTo>jMax) jTo = jMax;
+			
+			for (k=iFrom; k<=iTo; k++)
+				for (l=jFrom; l<=jTo; l++)
+					if (traceCell(k, l, testTrace, shape, xMinExt, xMaxExt, zMinExt, zMaxExt, ctx)) {
+						if (shape==null)
 							return true;
+						if (testTrace.fractionReal<best) {
+							best = testTrace.fractionReal;
+							bestImpact = testTrace.fractionImpact;
+							plane.assign(testTrace.correction);
 						}
 					}
+			
+			// Next cell
+			if (tMaxI<tMaxJ) {
+				t = tMaxI;
+				tMaxI += tDeltaI;
+				i += stepI;
+				lastStep = 0;
+			}
+			else {
+				t = tMaxJ;
+				tMaxJ += tDeltaJ;
+				j += stepJ;
+				lastStep = 1;
 			}
+		}
 		
-		return false;
+		testTrace.clearImpact();
+		if (best>1f)
+			return false;
+		testTrace.setImpact(plane, bestImpact, best);
+		return true;
+	}
+	
+	
+	/**
+	 * Traces the specified cell and returns if the impact is kept.
+	 */
+	private boolean traceCell(int i, int j, Trace testTrace, Shape shape, 
+			float xMinExt, float xMaxExt, float zMinExt, float zMaxExt, TraceContext ctx) {
+		
+		if (isHole(i, j))
+			return false;
+		
+		testTrace.clearImpact();
+		if (!testTrace.trace(getCell(i, j, ctx), false, ctx))
+			return false;
+		
+		// Segment test : the impact point must be in the cell
+		if (shape==null)
+			return (int)Math.floor( ((testTrace.start.x + (testTrace.segment.x * testTrace.fractionImpact)) - xp) * ga_inv )==i && 
+					-(int)Math.ceil( ((testTrace.start.z + (testTrace.segment.z * testTrace.fractionImpact)) - zp) * ga_inv )==j;
+		
+		// Shape test : the shape must overlap the cell at the impact point
+		float xf = testTrace.start.x + (testTrace.segment.x * testTrace.fractionReal);
+		float zf = testTrace.start.z + (testTrace.segment.z * testTrace.fractionReal);
+		float x1 = (i*ga)+xp;
+		float z1 = (-j*ga)+zp;
+		return	xf + xMaxExt>=x1 && xf - xMinExt<=x1 + ga && 
+				zf - zMinExt<=z1 && zf + zMaxExt>=z1 - ga;
+	}
+	
+	
+	/**
+	 * Returns the height of the specified corner, map position included.
+	 */
+	private float height(int i, int j) {
+		return heights[(i * (de + 1)) + j];
+	}
+	
+	
+	/**
+	 * Returns if the specified cell has an undefined corner.
+	 */
+	private boolean isHole(int i, int j) {
+		int c = (i * de) + j;
+		return (holes[c >> 6] & (1L << (c & 63))) != 0L;
+	}
+	
+	
+	/**
+	 * Rebuilds the BSP of the specified cell in the trace context, 
+	 * with the same 2 triangles as the displayed height-map, and returns it.
+	 */
+	private JGL_3DBsp getCell(int i, int j, TraceContext ctx) {
+		
+		float x1 = (i*ga)+xp;
+		float x2 = ((i+1)*ga)+xp;
+		float z1 = (-j*ga)+zp;
+		float z2 = (-(j+1)*ga)+zp;
+		
+		JGL_3DTriangle t1 = ctx.cellFace1;
+		t1.point1.assign(x1, height(i, j+1), z2);
+		t1.point2.assign(x1, height(i, j), z1);
+		t1.point3.assign(x2, height(i+1, j), z1);
+		
+		JGL_3DTriangle t2 = ctx.cellFace2;
+		t2.point1.assign(x2, height(i+1, j), z1);
+		t2.point2.assign(x2, height(i+1, j+1), z2);
+		t2.point3.assign(x1, height(i, j+1), z2);
+		
+		JGL_3DBsp cell = ctx.cell;
+		cell.clear();
+		cell.addFace(t1);
+		cell.addFace(t2);
+		return cell;
+	}
+	
+	
+	private static void addBound(JGL_3DVector v, JGL_3DVector min, JGL_3DVector max) {
+		if (v.x<min.x) min.x = v.x;
+		if (v.y<min.y) min.y = v.y;
+		if (v.z<min.z) min.z = v.z;
+		
+		if (v.x>max.x) max.x = v.x;
+		if (v.y>max.y) max.y = v.y;
+		if (v.z>max.z) max.z = v.z;
+	}
+	
+	
+	/**
+	 * Returns the size in bytes of the heights and holes arrays.
+	 * 
+	 * @return the collision data size in bytes
+	 */
+	public long getMemoryUsage() {
+		return ((long)heights.length * 4) + ((long)holes.length * 8);
 	}
 	
 	
@@ -373,13 +638,15 @@ public final class CollisionHeightMap implements CollisionNode {
 	
 	
 	public boolean isIn(Trace trace) {
-		return aabb.isIn(trace.cshape);
+		return aabbTree.isIn(trace.cshape);
 	}
 	
 	public boolean isCrossing(Trace trace) {
-		testTrace.reset(trace.cshape, trace.start, trace.end);
-		aabb.trace(testTrace);
-		return testTrace.isImpact();
+		return isCrossing(trace, TraceContext.get());
+	}
+	
+	public boolean isCrossing(Trace trace, TraceContext ctx) {
+		return aabbTree.isCrossing(trace, ctx);
 	}
 	
 	
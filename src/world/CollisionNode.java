@@ -20,6 +20,7 @@ package world;
 
 import jglcore.JGL_3DVector;
 import phys.Trace;
+import phys.TraceContext;
 
 
 /**
@@ -37,11 +38,21 @@ public interface CollisionNode {
 	
 	public boolean collideRecursive(Trace trace);
 	
+	public boolean collideRecursive(Trace trace, TraceContext ctx);
+	
 	public boolean collideSimple(Trace trace, boolean test);
 	
+	public boolean collideSimple(Trace trace, boolean test, TraceContext ctx);
+	
 	public boolean intersect(JGL_3DVector p1, JGL_3DVector p2);
 	
+	public boolean intersect(JGL_3DVector p1, JGL_3DVector p2, TraceContext ctx);
+	
+	public void intersectMany(JGL_3DVector origin, JGL_3DVector[] targets, int count, boolean[] out, TraceContext ctx);
+	
 	public boolean isIn(Trace trace);
 	
 	public boolean isCrossing(Trace trace);
+	
+	public boolean isCrossing(Trace trace, TraceContext ctx);
 }
@@ -0,0 +1,443 @@
+//	Copyright 2009 Nicolas Devere
+//
+//	This file is part of FLESH SNATCHER.
+//
+//	FLESH SNATCHER is free software; you can redistribute it and/or modify
+//	it under the terms of the GNU General Public License as published by
+//	the Free Software Foundation; either version 2 of the License, or
+//	(at your option) any later version.
+//
+//	FLESH SNATCHER is distributed in the hope that it will be useful,
+//	but WITHOUT ANY WARRANTY; without even the implied warranty of
+//	MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+//	GNU General Public License for more details.
+//
+//	You should have received a copy of the GNU General Public License
+//	along with FLESH SNATCHER; if not, write to the Free Software
+//	Foundation, Inc., 51 Franklin St, Fifth Floor, Boston, MA  02110-1301  USA
+
+package world;
+
+import java.util.Hashtable;
+import java.util.Vector;
+
+import entity.Entity;
+import phys.Shape;
+import phys.Util4Phys;
+import jglcore.JGL_3DVector;
+
+
+/**
+ * Uniform hashed grid storing the map entities by their collision shape bounds.<br>
+ * It gives the entities which may be hit by a shape sweep, in their insertion order.
+ * The entities whose bounds are unknown or too large are always given.
+ *
+ * @author Nicolas Devere
+ *
+ */
+public final class EntityGrid {
+
+
+	/** Size of a grid cell */
+	public static float CELL_SIZE = 16f;
+
+	/** Max number of cells covered by an entity before it is always given */
+	public static int MAX_CELLS = 64;
+
+	/** Margin added to the sweep bounds */
+	public static float MARGIN = 1f;
+
+	private static int BUCKETS = 1024;
+
+
+	/**
+	 * Grid data of an entity.
+	 */
+	static final class Entry {
+
+		Entity entity;
+		int kind;
+		int serial;
+		int stamp;
+		boolean bounded;
+		int x0, y0, z0, x1, y1, z1;
+
+		// Sleep state : idle frames, and situation when falling asleep
+		int idle;
+		boolean sleeping;
+		float px, py, pz, ax, ay, az;
+
+		Entry(Entity e, int k, int s) {
+			entity = e;
+			kind = k;
+			serial = s;
+			stamp = 0;
+			bounded = false;
+			idle = 0;
+			sleeping = false;
+		}
+	}
+
+
+	private Entry[][] buckets;
+	private int[] counts;
+	private Vector unbounded;
+	private Hashtable entries;
+
+	private int serial;
+	private int stamp;
+
+	private Entry[] result;
+	private float[] bounds;
+
+
+
+	/**
+	 * Constructs an empty grid.
+	 */
+	public EntityGrid() {
+		buckets = new Entry[BUCKETS][];
+		counts = new int[BUCKETS];
+		for (int i=0; i<BUCKETS; i++)
+			buckets[i] = new Entry[4];
+		unbounded = new Vector();
+		entries = new Hashtable();
+		serial = 0;
+		stamp = 0;
+		result = new Entry[16];
+		bounds = new float[6];
+	}
+
+
+	/**
+	 * Removes all the entities.
+	 */
+	public void clear() {
+		for (int i=0; i<BUCKETS; i++) {
+			for (int j=0; j<counts[i]; j++)
+				buckets[i][j] = null;
+			counts[i] = 0;
+		}
+		unbounded.clear();
+		entries.clear();
+		serial = 0;
+	}
+
+
+	/**
+	 * Returns the number of stored entities.
+	 *
+	 * @return the number of stored entities
+	 */
+	public int size() {
+		return entries.size();
+	}
+
+
+	/**
+	 * Clears the grid and stores the entities of the specified stores,
+	 * each store being of the corresponding kind. The holes are skipped.
+	 *
+	 * @param lists : the entities stores
+	 * @param kinds : the kind of each store
+	 */
+	public void rebuild(EntityList[] lists, int[] kinds) {
+		clear();
+		for (int i=0; i<lists.length; i++)
+			for (int j=0; j<lists[i].size(); j++)
+				if (lists[i].get(j)!=null)
+					add(lists[i].get(j), kinds[i]);
+	}
+
+
+	/**
+	 * Stores the specified entity, after the already stored ones.
+	 *
+	 * @param e : the entity
+	 * @param kind : the entity kind
+	 */
+	public void add(Entity e, int kind) {
+		if (entries.containsKey(e))
+			return;
+		Entry entry = new Entry(e, kind, serial++);
+		entries.put(e, entry);
+		insert(entry);
+	}
+
+
+	/**
+	 * Removes the specified entity.
+	 *
+	 * @param e : the entity
+	 */
+	public void remove(Entity e) {
+		Entry entry = (Entry)entries.remove(e);
+		if (entry!=null)
+			extract(entry);
+	}
+
+
+	/**
+	 * Moves the specified entity to the cells of its current bounds.
+	 *
+	 * @param e : the entity
+	 */
+	public void update(Entity e) {
+
+		Entry entry = (Entry)entries.get(e);
+		if (entry==null)
+			return;
+
+		if (computeBounds(e.getCShape(), e.getCShape().getPosition(), e.getCShape().getPosition(), 0f)) {
+			if (entry.bounded &&
+					entry.x0==cell(bounds[0]) && entry.y0==cell(bounds[1]) && entry.z0==cell(bounds[2]) &&
+					entry.x1==cell(bounds[3]) && entry.y1==cell(bounds[4]) && entry.z1==cell(bounds[5]))
+				return;
+		}
+
+		extract(entry);
+		insert(entry);
+	}
+
+
+	/**
+	 * Returns the grid data of the specified entity, or null if it isn't stored.
+	 *
+	 * @param e : the entity
+	 * @return the grid data
+	 */
+	Entry getEntry(Entity e) {
+		return (Entry)entries.get(e);
+	}
+
+
+	/**
+	 * Wakes the sleeping entities which may be hit by the specified shape moving
+	 * from the start point to the end point.
+	 *
+	 * @param shape : the moving shape
+	 * @param start : the start point
+	 * @param end : the end point
+	 * @return the number of woken entities
+	 */
+	int wake(Shape shape, JGL_3DVector start, JGL_3DVector end) {
+		int nb = query(shape, start, end);
+		int woken = 0;
+		for (int i=0; i<nb; i++)
+			if (result[i].sleeping) {
+				result[i].sleeping = false;
+				result[i].idle = 0;
+				woken++;
+			}
+		return woken;
+	}
+
+
+	/**
+	 * Moves all the entities to the cells of their current bounds.
+	 */
+	public void updateAll() {
+		Vector v = new Vector(entries.keySet());
+		for (int i=0; i<v.size(); i++)
+			update((Entity)v.get(i));
+	}
+
+
+	/**
+	 * Returns the entities which may be hit by the specified shape moving
+	 * from the start point to the end point. The result array is sorted
+	 * by insertion order and is valid until the next query.
+	 *
+	 * @param shape : the moving shape
+	 * @param start : the start point
+	 * @param end : the end point
+	 * @return the number of entries stored in the array returned by <code>getResult()</code>
+	 */
+	int query(Shape shape, JGL_3DVector start, JGL_3DVector end) {
+
+		int i, j, x, y, z;
+		int nb = 0;
+		Entry entry;
+		stamp++;
+
+		for (i=0; i<unbounded.size(); i++) {
+			entry = (Entry)unbounded.get(i);
+			entry.stamp = stamp;
+			nb = store(entry, nb);
+		}
+
+		int x0 = 0, y0 = 0, z0 = 0, x1 = 0, y1 = 0, z1 = 0;
+		boolean all = !computeBounds(shape, start, end, MARGIN);
+		if (!all) {
+			x0 = cell(bounds[0]); y0 = cell(bounds[1]); z0 = cell(bounds[2]);
+			x1 = cell(bounds[3]); y1 = cell(bounds[4]); z1 = cell(bounds[5]);
+			all = (long)(x1 - x0 + 1) * (y1 - y0 + 1) * (z1 - z0 + 1) > BUCKETS;
+		}
+
+		// Unknown or too large sweep bounds : all the entities
+		if (all) {
+			for (i=0; i<BUCKETS; i++)
+				for (j=0; j<counts[i]; j++) {
+					entry = buckets[i][j];
+					if (entry.stamp!=stamp) {
+						entry.stamp = stamp;
+						nb = store(entry, nb);
+					}
+				}
+		}
+		else {
+			for (x=x0; x<=x1; x++)
+				for (y=y0; y<=y1; y++)
+					for (z=z0; z<=z1; z++) {
+						int b = bucket(x, y, z);
+						Entry[] bk = buckets[b];
+						for (j=0; j<counts[b]; j++) {
+							entry = bk[j];
+							if (entry.stamp!=stamp &&
+									x>=entry.x0 && x<=entry.x1 &&
+									y>=entry.y0 && y<=entry.y1 &&
+									z>=entry.z0 && z<=entry.z1) {
+								entry.stamp = stamp;
+								nb = store(entry, nb);
+							}
+						}
+					}
+		}
+
+		// Insertion order
+		for (i=1; i<nb; i++) {
+			entry = result[i];
+			for (j=i-1; j>=0 && result[j].serial>entry.serial; j--)
+				result[j+1] = result[j];
+			result[j+1] = entry;
+		}
+
+		return nb;
+	}
+
+
+	/**
+	 * Returns the result array of the last query.
+	 *
+	 * @return the result array
+	 */
+	Entry[] getResult() {
+		return result;
+	}
+
+
+
+	private int store(Entry entry, int nb) {
+		if (nb==result.length) {
+			Entry[] r = new Entry[result.length * 2];
+			System.arraycopy(result, 0, r, 0, nb);
+			result = r;
+		}
+		result[nb] = entry;
+		return nb + 1;
+	}
+
+
+	private void insert(Entry entry) {
+
+		Shape s = entry.entity.getCShape();
+		entry.bounded = s!=null && computeBounds(s, s.getPosition(), s.getPosition(), 0f);
+
+		if (entry.bounded) {
+			entry.x0 = cell(bounds[0]); entry.y0 = cell(bounds[1]); entry.z0 = cell(bounds[2]);
+			entry.x1 = cell(bounds[3]); entry.y1 = cell(bounds[4]); entry.z1 = cell(bounds[5]);
+			long nbCells = (long)(entry.x1 - entry.x0 + 1) * (entry.y1 - entry.y0 + 1) * (entry.z1 - entry.z0 + 1);
+			if (nbCells>MAX_CELLS)
+				entry.bounded = false;
+		}
+
+		if (!entry.bounded) {
+			unbounded.add(entry);
+			return;
+		}
+
+		for (int x=entry.x0; x<=entry.x1; x++)
+			for (int y=entry.y0; y<=entry.y1; y++)
+				for (int z=entry.z0; z<=entry.z1; z++) {
+					int b = bucket(x, y, z);
+					if (!contains(b, entry)) {
+						if (counts[b]==buckets[b].length) {
+							Entry[] bk = new Entry[counts[b] * 2];
+							System.arraycopy(buckets[b], 0, bk, 0, counts[b]);
+							buckets[b] = bk;
+						}
+						buckets[b][counts[b]++] = entry;
+					}
+				}
+	}
+
+
+	private void extract(Entry entry) {
+
+		if (!entry.bounded) {
+			unbounded.remove(entry);
+			return;
+		}
+
+		for (int x=entry.x0; x<=entry.x1; x++)
+			for (int y=entry.y0; y<=entry.y1; y++)
+				for (int z=entry.z0; z<=entry.z1; z++) {
+					int b = bucket(x, y, z);
+					Entry[] bk = buckets[b];
+					for (int j=0; j<counts[b]; j++)
+						if (bk[j]==entry) {
+							bk[j] = bk[--counts[b]];
+							bk[counts[b]] = null;
+							break;
+						}
+				}
+	}
+
+
+	private boolean contains(int b, Entry entry) {
+		for (int j=0; j<counts[b]; j++)
+			if (buckets[b][j]==entry)
+				return true;
+		return false;
+	}
+
+
+	/**
+	 * Stores in the bounds array the box covered by the shape moving
+	 * from p1 to p2, increased by the specified margin.
+	 * Returns false if the shape has no known bounds.
+	 */
+	private boolean computeBounds(Shape shape, JGL_3DVector p1, JGL_3DVector p2, float margin) {
+
+		float xMin = shape.getOffset(Util4Phys.right.normal);
+		float xMax = shape.getOffset(Util4Phys.left.normal);
+		float yMin = shape.getOffset(Util4Phys.up.normal);
+		float yMax = shape.getOffset(Util4Phys.down.normal);
+		float zMin = shape.getOffset(Util4Phys.near.normal);
+		float zMax = shape.getOffset(Util4Phys.far.normal);
+
+		if (xMin<0f || xMax<0f || yMin<0f || yMax<0f || zMin<0f || zMax<0f)
+			return false;
+
+		bounds[0] = Math.min(p1.x, p2.x) - xMin - margin;
+		bounds[1] = Math.min(p1.y, p2.y) - yMin - margin;
+		bounds[2] = Math.min(p1.z, p2.z) - zMin - margin;
+		bounds[3] = Math.max(p1.x, p2.x) + xMax + margin;
+		bounds[4] = Math.max(p1.y, p2.y) + yMax + margin;
+		bounds[5] = Math.max(p1.z, p2.z) + zMax + margin;
+
+		return true;
+	}
+
+
+	private static int cell(float coord) {
+		return (int)Math.floor(coord / CELL_SIZE);
+	}
+
+
+	private static int bucket(int x, int y, int z) {
+		int h = (x * 73856093) ^ (y * 19349663) ^ (z * 83492791);
+		return h & (BUCKETS - 1);
+	}
+
+}
@@ -0,0 +1,356 @@
+//	Copyright 2009 Nicolas Devere
+//
+//	This file is part of FLESH SNATCHER.
+//
+//	FLESH SNATCHER is free software; you can redistribute it and/or modify
+//	it under the terms of the GNU General Public License as published by
+//	the Free Software Foundation; either version 2 of the License, or
+//	(at your option) any later version.
+//
+//	FLESH SNATCHER is distributed in the hope that it will be useful,
+//	but WITHOUT ANY WARRANTY; without even the implied warranty of
+//	MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+//	GNU General Public License for more details.
+//
+//	You should have received a copy of the GNU General Public License
+//	along with FLESH SNATCHER; if not, write to the Free Software
+//	Foundation, Inc., 51 Franklin St, Fifth Floor, Boston, MA  02110-1301  USA
+
+package world;
+
+import java.util.AbstractList;
+import java.util.List;
+
+import entity.Entity;
+
+
+/**
+ * Dense store of map entities, with constant time insertion, removal and membership test.<br>
+ * The entities are stored in an array, and an open addressing hash table gives 
+ * the slot of each member, by identity. A removal moves the last entity in the 
+ * freed slot, unless the store is locked : the map locks its stores during its 
+ * update, so that the slots keep their index while they are iterated. The removed 
+ * entities then leave a hole, and the holes are compacted, in the slots order, 
+ * when the store is unlocked.<br>
+ * The entities are read by slot : <code>get(i)</code> for i in [0, <code>size()</code>[ 
+ * gives the entity of a slot, or null for a hole. <code>asList()</code> gives a list 
+ * view without the holes, for the code using the former map vectors.
+ * 
+ * @author Nicolas Devere
+ *
+ */
+public final class EntityList {
+	
+	private static final int INITIAL_CAPACITY = 16;
+	
+	private Entity[] items;
+	private int size;
+	private int holes;
+	private boolean locked;
+	
+	// Hash table of slot + 1, 0 for an empty entry
+	private int[] table;
+	
+	private List view;
+	
+	
+	
+	/**
+	 * Constructs an empty store.
+	 */
+	public EntityList() {
+		items = new Entity[INITIAL_CAPACITY];
+		size = 0;
+		holes = 0;
+		locked = false;
+		table = new int[INITIAL_CAPACITY * 2];
+		view = new View();
+	}
+	
+	
+	private static int hash(Entity e) {
+		int h = System.identityHashCode(e);
+		return h ^ (h >>> 16);
+	}
+	
+	
+	/**
+	 * Returns the hash table index of the specified entity, or -1 if it isn't stored.
+	 */
+	private int find(Entity e) {
+		int mask = table.length - 1;
+		for (int i=hash(e) & mask; table[i]!=0; i=(i + 1) & mask)
+			if (items[table[i] - 1]==e)
+				return i;
+		return -1;
+	}
+	
+	
+	private void insert(int slot) {
+		int mask = table.length - 1;
+		int i = hash(items[slot]) & mask;
+		while (table[i]!=0)
+			i = (i + 1) & mask;
+		table[i] = slot + 1;
+	}
+	
+	
+	/**
+	 * Empties the hash table entry, and moves back the next entries of the cluster 
+	 * which can't be found anymore.
+	 */
+	private void delete(int i) {
+		int mask = table.length - 1;
+		int j = i;
+		while (true) {
+			j = (j + 1) & mask;
+			if (table[j]==0)
+				break;
+			int h = hash(items[table[j] - 1]) & mask;
+			if (i<=j ? (h<=i || h>j) : (h<=i && h>j)) {
+				table[i] = table[j];
+				i = j;
+			}
+		}
+		table[i] = 0;
+	}
+	
+	
+	/**
+	 * Rebuilds the hash table from the slots, with the specified capacity.
+	 */
+	private void rehash(int capacity) {
+		if (capacity!=table.length)
+			table = new int[capacity];
+		else
+			for (int i=0; i<table.length; i++)
+				table[i] = 0;
+		for (int i=0; i<size; i++)
+			if (items[i]!=null)
+				insert(i);
+	}
+	
+	
+	/**
+	 * Returns the number of slots, holes included.
+	 * 
+	 * @return the number of slots
+	 */
+	public int size() {
+		return size;
+	}
+	
+	
+	/**
+	 * Returns the number of stored entities.
+	 * 
+	 * @return the number of entities
+	 */
+	public int count() {
+		return size - holes;
+	}
+	
+	
+	/**
+	 * Returns the entity of the specified slot, or null if the slot is a hole.
+	 * 
+	 * @param i : the slot index
+	 * @return the entity, or null
+	 */
+	public Entity get(int i) {
+		return items[i];
+	}
+	
+	
+	/**
+	 * Returns if the specified entity is stored.
+	 * 
+	 * @param e : the entity
+	 * @return if the entity is stored
+	 */
+	public boolean contains(Entity e) {
+		return e!=null && find(e)>=0;
+	}
+	
+	
+	/**
+	 * Stores the specified entity in a new slot, after the others.
+	 * 
+	 * @param e : the entity
+	 * @return false if the entity was already stored
+	 */
+	public boolean add(Entity e) {
+		
+		if (e==null || find(e)>=0)
+			return false;
+		
+		if (size==items.length) {
+			Entity[] a = new Entity[items.length * 2];
+			System.arraycopy(items, 0, a, 0, size);
+			items = a;
+		}
+		items[size++] = e;
+		
+		// Keeps the hash table at most half full
+		if ((size - holes) * 2 > table.length)
+			rehash(table.length * 2);
+		else
+			insert(size - 1);
+		return true;
+	}
+	
+	
+	/**
+	 * Removes the specified entity. Its slot takes the last entity, or becomes 
+	 * a hole if the store is locked.
+	 * 
+	 * @param e : the entity
+	 * @return false if the entity wasn't stored
+	 */
+	public boolean remove(Entity e) {
+		
+		int k = (e!=null) ? find(e) : -1;
+		if (k<0)
+			return false;
+		
+		int slot = table[k] - 1;
+		delete(k);
+		
+		if (locked) {
+			items[slot] = null;
+			holes++;
+		}
+		else {
+			size--;
+			if (slot!=size) {
+				Entity last = items[size];
+				table[find(last)] = slot + 1;
+				items[slot] = last;
+			}
+			items[size] = null;
+		}
+		return true;
+	}
+	
+	
+	/**
+	 * Removes all the entities. If the store is locked, all the slots become holes.
+	 */
+	public void clear() {
+		for (int i=0; i<table.length; i++)
+			table[i] = 0;
+		for (int i=0; i<size; i++)
+			items[i] = null;
+		if (locked)
+			holes = size;
+		else
+			size = holes = 0;
+	}
+	
+	
+	/**
+	 * Locks the slots : until <code>unlock()</code>, the removals leave holes 
+	 * and the entities keep their slot.
+	 */
+	public void lock() {
+		locked = true;
+	}
+	
+	
+	/**
+	 * Unlocks the slots, and compacts the holes. The entities keep their order.
+	 */
+	public void unlock() {
+		
+		locked = false;
+		if (holes==0)
+			return;
+		
+		int n = 0;
+		for (int i=0; i<size; i++)
+			if (items[i]!=null)
+				items[n++] = items[i];
+		for (int i=n; i<size; i++)
+			items[i] = null;
+		size = n;
+		holes = 0;
+		rehash(table.length);
+	}
+	
+	
+	/**
+	 * Returns if the slots are locked.
+	 * 
+	 * @return if the store is locked
+	 */
+	public boolean isLocked() {
+		return locked;
+	}
+	
+	
+	/**
+	 * Returns a list view of the entities, without the holes. 
+	 * Its accesses by index are slower while the store has holes.
+	 * 
+	 * @return the list view
+	 */
+	public List asList() {
+		return view;
+	}
+	
+	
+	
+	/**
+	 * List view of the store, skipping the holes.
+	 */
+	private final class View extends AbstractList {
+		
+		public int size() {
+			return count();
+		}
+		
+		public Object get(int index) {
+			if (index>=0 && index<size - holes) {
+				if (holes==0)
+					return items[index];
+				for (int i=0, n=index; i<size; i++)
+					if (items[i]!=null && n--==0)
+						return items[i];
+			}
+			throw new IndexOutOfBoundsException("Index: " + index + ", Size: " + count());
+		}
+		
+		public boolean add(Object o) {
+			return EntityList.this.add((Entity)o);
+		}
+		
+		public Object remove(int index) {
+			Object o = get(index);
+			EntityList.this.remove((Entity)o);
+			return o;
+		}
+		
+		public boolean remove(Object o) {
+			return (o instanceof Entity) && EntityList.this.remove((Entity)o);
+		}
+		
+		public boolean contains(Object o) {
+			return (o instanceof Entity) && EntityList.this.contains((Entity)o);
+		}
+		
+		public int indexOf(Object o) {
+			if (!contains(o))
+				return -1;
+			int n = 0;
+			for (int i=0; i<size && items[i]!=o; i++)
+				if (items[i]!=null)
+					n++;
+			return n;
+		}
+		
+		public void clear() {
+			EntityList.this.clear();
+		}
+	}
+	
+}
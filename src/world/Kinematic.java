@@ -18,11 +18,11 @@
 
 package world;
 
-import java.util.StringTokenizer;
 import java.util.ArrayList;
 import java.util.Vector;
 
-import script.Script;
+import script.Command;
+import script.ScriptCompiler;
 
 import com.jme.scene.Controller;
 import com.jme.scene.Node;
@@ -53,7 +53,7 @@ public class Kinematic {
 	//private Vector scripts;
 	
 	private Vector nodes;
-	private Vector scripts;
+	private Command[] scripts;
 	
 	private boolean finished;
 	
@@ -77,7 +77,7 @@ public class Kinematic {
 		this.kfs = kfs;
 		this.speed = speed;
 		this.endDate = endDate;
-		this.scripts = scripts;
+		this.scripts = ScriptCompiler.compile(scripts);
 		
 		kf = new JGL_Keyframe();
 		
@@ -140,8 +140,8 @@ public class Kinematic {
 	 * Executes the final scripts.
 	 */
 	public void finalScripts() {
-		for (int i=0; i<scripts.size(); i++)
-			Script.execute(new StringTokenizer((String)scripts.get(i)));
+		for (int i=0; i<scripts.length; i++)
+			scripts[i].execute();
 	}
 	
 }
@@ -18,15 +18,21 @@
 
 package world;
 
+import java.util.Hashtable;
+import java.util.List;
 import java.util.Vector;
 import com.jme.scene.Node;
 import com.jme.system.DisplaySystem;
 
 import entity.Entity;
 import entity.Scriptable;
-import entity.Shoot;
-import phys.Tracable;
+import entity.Sleepable;
+import entity.Thinker;
+import phys.GroundContact;
+import phys.GroundTracable;
 import phys.Trace;
+import phys.TraceContext;
+import phys.Util4Phys;
 import jglcore.JGL_3DVector;
 import jglcore.JGL_3DPlane;
 import jglcore.JGL_Time;
@@ -38,27 +44,69 @@ import jglcore.JGL_Time;
  * @author Nicolas Devere
  *
  */
-public class Map implements Tracable {
+public class Map implements GroundTracable {
 	
 	public static float MIN_HEIGHT = -350f;
 	
+	/** Idle frames before a sleepable entity stops being processed, 0 to disable the sleep */
+	public static int SLEEP_FRAMES = 30;
+	
+	/** If the think steps of the characters are all run before their collisions, on several threads */
+	public static boolean PARALLEL_UPDATE = false;
+	
+	/** Min number of thinking characters run on several threads */
+	public static int PARALLEL_MIN_THINKERS = 16;
+	
+	/** Number of threads of the think steps, 0 for the number of processors */
+	public static int PARALLEL_THREADS = 0;
+	
 	public Node sky;
 	
 	public Vector displayNodes;
 	public Vector collNodes;
-	public Vector characters;
-	public Vector shoots;
-	public Vector objects;
-	public Vector scripts;
+	
+	/** List views of the entity stores, for the code using the former vectors */
+	public List characters;
+	public List shoots;
+	public List objects;
+	public List scripts;
+	
+	// Entity stores, locked during the update
+	private EntityList charStore;
+	private EntityList shootStore;
+	private EntityList objStore;
+	private EntityList scriptStore;
 	
 	private Scriptable checkpoint;
 	
 	private static int SHOOT = 0;
 	private static int CHAR = 1;
 	private static int OBJ = 2;
+	private static int SCRIPT = 3;
 	private int entType;
 	private Entity ent;
 	
+	private EntityGrid grid;
+	
+	private int collisionVersion;
+	
+	private int frame;
+	
+	// Sleeping entities, and entities processed or skipped during the last update
+	private int sleepers;
+	private int awake;
+	private int asleep;
+	private JGL_3DVector lastPos;
+	
+	// Characters which thought before the collisions, and their slots, in the slots order
+	private Thinker[] thinkers;
+	private int[] thinkerSlots;
+	private int nbThinkers;
+	
+	// Fixed step interpolation : entity to its previous, then current, position and orientation
+	private Hashtable transforms;
+	private boolean interpolated;
+	
 	private boolean finished;
 	
 	
@@ -69,10 +117,32 @@ public class Map implements Tracable {
 		
 		displayNodes = new Vector();
 		collNodes = new Vector();
-		characters = new Vector();
-		shoots = new Vector();
-		objects = new Vector();
-		scripts = new Vector();
+		charStore = new EntityList();
+		shootStore = new EntityList();
+		objStore = new EntityList();
+		scriptStore = new EntityList();
+		characters = charStore.asList();
+		shoots = shootStore.asList();
+		objects = objStore.asList();
+		scripts = scriptStore.asList();
+		
+		grid = new EntityGrid();
+		
+		collisionVersion = 0;
+		
+		frame = 0;
+		
+		sleepers = 0;
+		awake = 0;
+		asleep = 0;
+		lastPos = new JGL_3DVector();
+		
+		thinkers = new Thinker[0];
+		thinkerSlots = new int[0];
+		nbThinkers = 0;
+		
+		transforms = new Hashtable();
+		interpolated = false;
 		
 		finished = false;
 	}
@@ -95,6 +165,7 @@ public class Map implements Tracable {
 		if (!collNodes.contains(node)) {
 			node.setInGame(true);
 			collNodes.add(node);
+			collisionVersion++;
 		}
 	}
 	
@@ -102,27 +173,67 @@ public class Map implements Tracable {
 		if (collNodes.contains(node)) {
 			node.setInGame(false);
 			collNodes.remove(node);
+			collisionVersion++;
 		}
 	}
 	
 	public void addCharacter(Entity character) {
-		if (!characters.contains(character))
-			characters.add(character);
+		if (charStore.add(character))
+			grid.add(character, CHAR);
 	}
 	
 	public void addShoot(Entity shoot) {
-		if (!shoots.contains(shoot))
-			shoots.add(shoot);
+		shootStore.add(shoot);
 	}
 	
 	public void addObject(Entity object) {
-		if (!objects.contains(object))
-			objects.add(object);
+		if (objStore.add(object))
+			grid.add(object, OBJ);
 	}
 	
 	public void addScriptBox(Entity scriptbox) {
-		if (!scripts.contains(scriptbox))
-			scripts.add(scriptbox);
+		if (scriptStore.add(scriptbox))
+			grid.add(scriptbox, SCRIPT);
+	}
+	
+	
+	/**
+	 * Returns the characters store. Its holes are null.
+	 * 
+	 * @return the characters
+	 */
+	public EntityList getCharacters() {
+		return charStore;
+	}
+	
+	
+	/**
+	 * Returns the shoots store. Its holes are null.
+	 * 
+	 * @return the shoots
+	 */
+	public EntityList getShoots() {
+		return shootStore;
+	}
+	
+	
+	/**
+	 * Returns the objects store. Its holes are null.
+	 * 
+	 * @return the objects
+	 */
+	public EntityList getObjects() {
+		return objStore;
+	}
+	
+	
+	/**
+	 * Returns the scriptboxes store. Its holes are null.
+	 * 
+	 * @return the scriptboxes
+	 */
+	public EntityList getScripts() {
+		return scriptStore;
 	}
 	
 	public void setCheckpoint(Scriptable scriptable) {
@@ -153,10 +264,33 @@ public class Map implements Tracable {
 		int i;
 		boolean collision = false;
 		
+		frame++;
+		awake = 0;
+		asleep = 0;
+		
+		if (JGL_Time.isFixedStep()) {
+			storeTransforms(shootStore);
+			storeTransforms(charStore);
+			storeTransforms(objStore);
+		}
+		
+		// Entities may have been moved or removed since the last update
+		refreshGrid();
+		grid.updateAll();
+		
+		// The slots keep their index until the end of the update, the removed 
+		// entities leave holes
+		shootStore.lock();
+		charStore.lock();
+		objStore.lock();
+		scriptStore.lock();
+		
 		// Update shoots
 		entType = SHOOT;
-		for (i=0; i<shoots.size(); i++) {
-			c = (Shoot)shoots.get(i);
+		for (i=0; i<shootStore.size(); i++) {
+			c = shootStore.get(i);
+			if (c==null)
+				continue;
 			c.update();
 			ent = c;
 			collision = c.getCollider().process(c.getCShape(), c.getMover(), this);
@@ -164,54 +298,319 @@ public class Map implements Tracable {
 			if (collision)
 				c.setDead();
 			if (c.isDead()) {
-				shoots.remove(i);
-				i--;
+				shootStore.remove(c);
+				transforms.remove(c);
 			}
 		}
 		
 		// Update characters
 		entType = CHAR;
-		for (i=0; i<characters.size(); i++) {
-			c = (Entity)characters.get(i);
-			c.update();
+		int thought = 0;
+		boolean done;
+		if (PARALLEL_UPDATE)
+			think();
+		for (i=0; i<charStore.size(); i++) {
+			c = charStore.get(i);
+			done = thought<nbThinkers && thinkerSlots[thought]==i;
+			if (done)
+				thought++;
+			if (c==null)
+				continue;
+			if (!done)
+				c.update();
 			ent = c;
-			c.getCollider().process(c.getCShape(), c.getMover(), this);
-			c.synchronizeNode();
+			process(c);
 			if (c.getPosition().y<MIN_HEIGHT)
 				c.setDead();
 			if (c.isDead()) {
-				characters.remove(i);
-				i--;
+				charStore.remove(c);
+				removeFromGrid(c);
 			}
 		}
+		for (i=0; i<nbThinkers; i++)
+			thinkers[i] = null;
+		nbThinkers = 0;
 		
 		// Update objects
 		entType = OBJ;
-		for (i=0; i<objects.size(); i++) {
-			c = (Entity)objects.get(i);
+		for (i=0; i<objStore.size(); i++) {
+			c = objStore.get(i);
+			if (c==null)
+				continue;
 			c.update();
 			ent = c;
-			c.getCollider().process(c.getCShape(), c.getMover(), this);
-			c.synchronizeNode();
+			process(c);
 			if (c.isDead()) {
-				objects.remove(i);
-				i--;
+				objStore.remove(c);
+				removeFromGrid(c);
 			}
 		}
 		
 		// Update scriptboxes
-		for (i=0; i<scripts.size(); i++) {
-			c = (Entity)scripts.get(i);
+		for (i=0; i<scriptStore.size(); i++) {
+			c = scriptStore.get(i);
 			//c.update();
 			//ent = c;
 			//c.getCollider().process(c.getCShape(), c.getMover(), this);
 			//c.synchronizeNode();
-			if (c.isDead()) {
-				scripts.remove(i);
-				i--;
+			if (c!=null && c.isDead()) {
+				scriptStore.remove(c);
+				removeFromGrid(c);
 			}
 		}
 		
+		// Deferred compaction of the holes
+		shootStore.unlock();
+		charStore.unlock();
+		objStore.unlock();
+		scriptStore.unlock();
+	}
+	
+	
+	/**
+	 * Runs the think steps of the characters able to think, from the positions 
+	 * of the last update. Their collisions, which move them, are then processed 
+	 * in the list order, so the result doesn't depend on the threads.
+	 */
+	private void think() {
+		
+		if (thinkers.length<charStore.size()) {
+			thinkers = new Thinker[charStore.size()];
+			thinkerSlots = new int[charStore.size()];
+		}
+		nbThinkers = 0;
+		for (int i=0; i<charStore.size(); i++) {
+			Entity c = charStore.get(i);
+			if (c instanceof Thinker && ((Thinker)c).canThink()) {
+				thinkers[nbThinkers] = (Thinker)c;
+				thinkerSlots[nbThinkers++] = i;
+			}
+		}
+		ThinkTask.run(thinkers, nbThinkers, PARALLEL_THREADS, nbThinkers>=PARALLEL_MIN_THINKERS);
+	}
+	
+	
+	/**
+	 * Processes the collisions of the specified entity and synchronizes its node, 
+	 * unless it is sleeping. A sleepable entity falls asleep after <code>SLEEP_FRAMES</code> 
+	 * frames without move, and wakes up when it moves again or when it is moved.
+	 */
+	private void process(Entity c) {
+		
+		EntityGrid.Entry entry = grid.getEntry(c);
+		JGL_3DVector pos = c.getPosition();
+		JGL_3DVector ang = c.getOrientation();
+		
+		if (entry!=null && entry.sleeping) {
+			if (!isMoving(c) && pos.x==entry.px && pos.y==entry.py && pos.z==entry.pz && 
+					(ang==null || (ang.x==entry.ax && ang.y==entry.ay && ang.z==entry.az))) {
+				asleep++;
+				return;
+			}
+			entry.sleeping = false;
+			entry.idle = 0;
+			sleepers--;
+		}
+		awake++;
+		
+		lastPos.assign(pos);
+		c.getCollider().process(c.getCShape(), c.getMover(), this);
+		c.synchronizeNode();
+		grid.update(c);
+		
+		// Wakes the sleeping neighbours on the way
+		boolean moved = pos.x!=lastPos.x || pos.y!=lastPos.y || pos.z!=lastPos.z;
+		if (moved && sleepers>0)
+			sleepers -= grid.wake(c.getCShape(), lastPos, pos);
+		
+		if (SLEEP_FRAMES<=0 || entry==null || !(c instanceof Sleepable))
+			return;
+		
+		if (moved || isMoving(c))
+			entry.idle = 0;
+		else if (++entry.idle>=SLEEP_FRAMES) {
+			entry.sleeping = true;
+			entry.px = pos.x; entry.py = pos.y; entry.pz = pos.z;
+			if (ang!=null) {
+				entry.ax = ang.x; entry.ay = ang.y; entry.az = ang.z;
+			}
+			sleepers++;
+		}
+	}
+	
+	
+	private static boolean isMoving(Entity c) {
+		return c.getMover()!=null && c.getMover().getMove().norm2() >= Util4Phys.MIN_MOVE * Util4Phys.MIN_MOVE;
+	}
+	
+	
+	private void removeFromGrid(Entity c) {
+		EntityGrid.Entry entry = grid.getEntry(c);
+		if (entry!=null && entry.sleeping)
+			sleepers--;
+		grid.remove(c);
+		transforms.remove(c);
+	}
+	
+	
+	/**
+	 * Stores the positions and orientations of the specified entities before the update step.
+	 */
+	private void storeTransforms(EntityList list) {
+		
+		Entity c;
+		float[] t;
+		JGL_3DVector v;
+		
+		for (int i=0; i<list.size(); i++) {
+			c = list.get(i);
+			if (c==null)
+				continue;
+			t = (float[])transforms.get(c);
+			if (t==null) {
+				t = new float[12];
+				transforms.put(c, t);
+			}
+			v = c.getPosition();
+			t[0] = v.x; t[1] = v.y; t[2] = v.z;
+			v = c.getOrientation();
+			if (v!=null) {
+				t[3] = v.x; t[4] = v.y; t[5] = v.z;
+			}
+		}
+	}
+	
+	
+	/**
+	 * Moves the entities between their situations before and after the last update step, 
+	 * for the rendering. <code>restore()</code> must be called after the rendering.
+	 * 
+	 * @param alpha : the interpolation factor, from 0 (before) to 1 (after)
+	 * @param except : an entity whose orientation isn't interpolated, or null
+	 */
+	public void interpolate(float alpha, Entity except) {
+		
+		if (interpolated)
+			restore();
+		if (alpha>=1f || transforms.isEmpty())
+			return;
+		
+		interpolate(shootStore, alpha, except);
+		interpolate(charStore, alpha, except);
+		interpolate(objStore, alpha, except);
+		interpolated = true;
+	}
+	
+	
+	private void interpolate(EntityList list, float alpha, Entity except) {
+		
+		Entity c;
+		float[] t;
+		JGL_3DVector v;
+		
+		for (int i=0; i<list.size(); i++) {
+			c = list.get(i);
+			t = (c!=null) ? (float[])transforms.get(c) : null;
+			if (t==null)
+				continue;
+			
+			v = c.getPosition();
+			t[6] = v.x; t[7] = v.y; t[8] = v.z;
+			v.x = t[0] + ((t[6] - t[0]) * alpha);
+			v.y = t[1] + ((t[7] - t[1]) * alpha);
+			v.z = t[2] + ((t[8] - t[2]) * alpha);
+			
+			v = c.getOrientation();
+			if (v!=null) {
+				t[9] = v.x; t[10] = v.y; t[11] = v.z;
+				if (c!=except) {
+					v.x = interpolateAngle(t[3], t[9], alpha);
+					v.y = interpolateAngle(t[4], t[10], alpha);
+					v.z = interpolateAngle(t[5], t[11], alpha);
+				}
+			}
+		}
+	}
+	
+	
+	/**
+	 * Interpolates an angle in degrees by the shortest way, in [-360, 360].
+	 */
+	private static float interpolateAngle(float a1, float a2, float alpha) {
+		float d = a2 - a1;
+		while (d>180f) d -= 360f;
+		while (d<-180f) d += 360f;
+		float a = a1 + (d * alpha);
+		while (a>360f) a -= 360f;
+		while (a<-360f) a += 360f;
+		return a;
+	}
+	
+	
+	/**
+	 * Puts back the entities in their situations after the last update step.
+	 */
+	public void restore() {
+		
+		if (!interpolated)
+			return;
+		
+		restore(shootStore);
+		restore(charStore);
+		restore(objStore);
+		interpolated = false;
+	}
+	
+	
+	private void restore(EntityList list) {
+		
+		Entity c;
+		float[] t;
+		
+		for (int i=0; i<list.size(); i++) {
+			c = list.get(i);
+			t = (c!=null) ? (float[])transforms.get(c) : null;
+			if (t==null)
+				continue;
+			c.getPosition().assign(t[6], t[7], t[8]);
+			if (c.getOrientation()!=null)
+				c.getOrientation().assign(t[9], t[10], t[11]);
+		}
+	}
+	
+	
+	/**
+	 * Wakes the specified entity if it is sleeping : it is processed again from the next update.
+	 * 
+	 * @param c : the entity
+	 */
+	public void wake(Entity c) {
+		EntityGrid.Entry entry = grid.getEntry(c);
+		if (entry!=null && entry.sleeping) {
+			entry.sleeping = false;
+			entry.idle = 0;
+			sleepers--;
+		}
+	}
+	
+	
+	/**
+	 * Returns the number of characters and objects processed during the last update.
+	 * 
+	 * @return the number of awake entities
+	 */
+	public int getAwakeCount() {
+		return awake;
+	}
+	
+	
+	/**
+	 * Returns the number of characters and objects skipped as sleeping during the last update.
+	 * 
+	 * @return the number of sleeping entities
+	 */
+	public int getSleepingCount() {
+		return asleep;
 	}
 	
 	
@@ -229,19 +628,55 @@ public class Map implements Tracable {
 	public boolean trace(Trace trace) {
 		// TODO Auto-generated method stub
 		
-		int i;
-		Entity e;
-		Entity target = null;
-		
 		if (!ent.isCollidable() && !ent.isActive())
 			return false;
 		
 		// Impact on collision Nodes
 		boolean is_impact = traceScenery(trace);
 		
+		return traceEntities(trace) || is_impact;
+	}
+	
+	
+	public boolean trace(Trace trace, GroundContact contact) {
+		
+		if (!ent.isCollidable() && !ent.isActive())
+			return false;
+		
+		// Impact on collision Nodes, given by the contact if it's still valid
+		boolean is_impact;
+		if (contact.isValid(trace.start, collisionVersion) && contact.restore(trace))
+			is_impact = true;
+		else {
+			CollisionNode node = traceSceneryNode(trace, TraceContext.get());
+			contact.store(trace, node, collisionVersion);
+			is_impact = node!=null;
+		}
+		
+		return traceEntities(trace) || is_impact;
+	}
+	
+	
+	/**
+	 * Searches the impacts against the entities, after the collision nodes.
+	 */
+	private boolean traceEntities(Trace trace) {
+		
+		int i;
+		Entity e;
+		Entity target = null;
+		boolean is_impact = false;
+		
+		// Entities near the sweep, in the lists order
+		refreshGrid();
+		int nb = grid.query(trace.cshape, trace.start, trace.end);
+		EntityGrid.Entry[] near = grid.getResult();
+		
 		// Impact on characters
-		for (i=0; i<characters.size(); i++) {
-			e = (Entity)characters.get(i);
+		for (i=0; i<nb; i++) {
+			if (near[i].kind!=CHAR)
+				continue;
+			e = near[i].entity;
 			if (e != ent  && e.isCollidable() && e.isActive() && ( 	(entType==SHOOT && e.getTeam() != ent.getTeam()) || 
 																	(entType!=SHOOT) ) )
 				if (e.getCShape().trace(trace)) {
@@ -251,8 +686,10 @@ public class Map implements Tracable {
 		}
 		
 		// Impact on objects
-		for (i=0; i<objects.size(); i++) {
-			e = (Entity)objects.get(i);
+		for (i=0; i<nb; i++) {
+			if (near[i].kind!=OBJ)
+				continue;
+			e = near[i].entity;
 			if (e != ent && e.isCollidable() && e.isActive())
 				if (e.getCShape().trace(trace)) {
 					target = e;
@@ -261,16 +698,20 @@ public class Map implements Tracable {
 		}
 		
 		if (target!=null)
-			if (target.getTeam()!=ent.getTeam())
+			if (target.getTeam()!=ent.getTeam()) {
+				wake(target);
 				target.touchReact(ent, trace);
+			}
 		
 		// Impact on scriptboxes
 		float fi = trace.fractionImpact;
 		float fr = trace.fractionReal;
 		JGL_3DPlane n = trace.correction;
 		boolean scriptImpact = false;
-		for (i=0; i<scripts.size(); i++) {
-			e = (Entity)scripts.get(i);
+		for (i=0; i<nb; i++) {
+			if (near[i].kind!=SCRIPT)
+				continue;
+			e = near[i].entity;
 			if (e.getCShape().trace(trace)) {
 				target = e;
 				scriptImpact = true;
@@ -279,6 +720,7 @@ public class Map implements Tracable {
 		
 		if (scriptImpact) {
 			trace.setImpact(n, fi, fr);
+			wake(target);
 			target.touchReact(ent, trace);
 		}
 		
@@ -287,22 +729,100 @@ public class Map implements Tracable {
 	
 	
 	
+	/**
+	 * Rebuilds the entity grid if the entities lists have been modified 
+	 * without the map methods.
+	 */
+	private void refreshGrid() {
+		if (grid.size() != charStore.count() + objStore.count() + scriptStore.count()) {
+			grid.rebuild(new EntityList[] {charStore, objStore, scriptStore}, new int[] {CHAR, OBJ, SCRIPT});
+			sleepers = 0;
+		}
+	}
+	
+	
 	public boolean intersect(JGL_3DVector p1, JGL_3DVector p2) {
+		return intersect(p1, p2, TraceContext.get());
+	}
+	
+	
+	public boolean intersect(JGL_3DVector p1, JGL_3DVector p2, TraceContext ctx) {
 		
 		for (int i=0; i<collNodes.size(); i++)
-			if (((CollisionNode)collNodes.get(i)).intersect(p1, p2))
+			if (((CollisionNode)collNodes.get(i)).intersect(p1, p2, ctx))
 				return true;
 		
 		return false;
 	}
 	
 	
+	/**
+	 * Tests the segments from the origin point to each target point against the collision nodes.
+	 * 
+	 * @param origin : the segments start point
+	 * @param targets : the segments end points
+	 * @param out : receives, for each target, if its segment intersects the map
+	 */
+	public void intersectMany(JGL_3DVector origin, JGL_3DVector[] targets, boolean[] out) {
+		intersectMany(origin, targets, targets.length, out, TraceContext.get());
+	}
+	
+	
+	/**
+	 * Tests the segments from the origin point to the first targets points against the collision nodes.
+	 * Each node does its view shape test of the origin once, and the segments already 
+	 * intersecting a node are not traced against the next ones.
+	 * 
+	 * @param origin : the segments start point
+	 * @param targets : the segments end points
+	 * @param count : the number of targets to test
+	 * @param out : receives, for each target, if its segment intersects the map
+	 * @param ctx : the trace context
+	 */
+	public void intersectMany(JGL_3DVector origin, JGL_3DVector[] targets, int count, boolean[] out, TraceContext ctx) {
+		
+		for (int i=0; i<count; i++)
+			out[i] = false;
+		
+		for (int i=0; i<collNodes.size(); i++)
+			((CollisionNode)collNodes.get(i)).intersectMany(origin, targets, count, out, ctx);
+	}
+	
+	
+	/**
+	 * Returns the number of updates of the map.
+	 * 
+	 * @return the current frame number
+	 */
+	public int getFrame() {
+		return frame;
+	}
+	
+	
 	public boolean traceScenery(Trace trace) {
+		return traceScenery(trace, TraceContext.get());
+	}
+	
+	
+	public boolean traceScenery(Trace trace, TraceContext ctx) {
+		return traceSceneryNode(trace, ctx)!=null;
+	}
+	
+	
+	/**
+	 * Searches the impact against the collision nodes, and returns the node 
+	 * which gave it : the node containing the trace, or the last impacted one.
+	 * 
+	 * @param trace : the trace
+	 * @param ctx : the trace context
+	 * @return the impacted collision node, or null if no impact occurs
+	 */
+	private CollisionNode traceSceneryNode(Trace trace, TraceContext ctx) {
 		
 		int i;
 		CollisionNode cn;
 		CollisionNode cNode = null;
-		boolean is_impact = false;
+		CollisionNode impacted = null;
 		
 		// Impact on collision Nodes
 		for (i=0; i<collNodes.size() && cNode==null; i++) {
@@ -311,11 +831,14 @@ public class Map implements Tracable {
 				cNode = cn;
 		}
 		if (cNode!=null)
-			is_impact = cNode.collideRecursive(trace);
-		else
-			for (i=0; i<collNodes.size(); i++)
-				is_impact |= ((CollisionNode)collNodes.get(i)).collideSimple(trace, false);
-		return is_impact;
+			return cNode.collideRecursive(trace, ctx) ? cNode : null;
+		
+		for (i=0; i<collNodes.size(); i++) {
+			cn = (CollisionNode)collNodes.get(i);
+			if (cn.collideSimple(trace, false, ctx))
+				impacted = cn;
+		}
+		return impacted;
 	}
 	
 	
@@ -330,24 +853,32 @@ public class Map implements Tracable {
 		for (int i=0; i<displayNodes.size(); i++)
 			((DisplayNode)displayNodes.get(i)).render(eye);
 		
-		for (int i=0; i<objects.size(); i++)
-			((Entity)objects.get(i)).render();
-		
-		for (int i=0; i<characters.size(); i++)
-			((Entity)characters.get(i)).render();
-		
-		for (int i=0; i<shoots.size(); i++)
-			((Entity)shoots.get(i)).render();
+		render(objStore);
+		render(charStore);
+		render(shootStore);
+	}
+	
+	
+	private static void render(EntityList list) {
+		Entity c;
+		for (int i=0; i<list.size(); i++)
+			if ((c = list.get(i))!=null)
+				c.render();
 	}
 	
 	
 	public void clear() {
 		displayNodes.clear();
 		collNodes.clear();
-		characters.clear();
-		shoots.clear();
-		objects.clear();
-		scripts.clear();
+		collisionVersion++;
+		charStore.clear();
+		shootStore.clear();
+		objStore.clear();
+		scriptStore.clear();
+		grid.clear();
+		sleepers = 0;
+		transforms.clear();
+		interpolated = false;
 		Runtime.getRuntime().gc();
 	}
 	
@@ -96,6 +96,7 @@ public final class MapLoader extends Observable {
 			    	Script.execute(st);
 			    
 			    if (charToken.equals("loadpathgraph")) {
+			    	long time = System.nanoTime();
 			    	String id = st.nextToken();
 			    	int nbPoints = Integer.parseInt(st.nextToken());
 					JGL_3DVector points[] = new JGL_3DVector[nbPoints];
@@ -113,10 +114,14 @@ public final class MapLoader extends Observable {
 							links[i][j] = !st.nextToken().equals("0");
 					}
 					
-					Resources.addPathGraph(new PathGraph(id, points, links));
+					PathGraph graph = new PathGraph(id, points, links);
+					graph.computeNextHops();
+					Resources.addPathGraph(graph);
+					Resources.addLoadTime(Resources.PATH_GRAPHS, System.nanoTime() - time);
 			    }
 			    
 			    if (charToken.equals("loadscriptbox")) {
+			    	long time = System.nanoTime();
 			    	String id = st.nextToken();
 			    	JGL_3DVector pos = new JGL_3DVector(Float.parseFloat(st.nextToken()), 
 														Float.parseFloat(st.nextToken()), 
@@ -133,9 +138,11 @@ public final class MapLoader extends Observable {
 			    	}
 			    	
 			    	Resources.addEntity(new ScriptBox(id, cshape, scripts, checkpoint));
+			    	Resources.addLoadTime(Resources.ENTITIES, System.nanoTime() - time);
 			    }
 			    
 			    if (charToken.equals("loadkinematic")) {
+			    	long time = System.nanoTime();
 			    	String id = st.nextToken();
 			    	float speed = Float.parseFloat(st.nextToken());
 			    	float endDate = Float.parseFloat(st.nextToken());
@@ -160,7 +167,7 @@ public final class MapLoader extends Observable {
 			    	for (int i=0; i<nbNds; i++) {
 			    		StringTokenizer st2 = new StringTokenizer(br.readLine());
 			    		lines++; this.setChanged(); this.notifyObservers();
-			    		Node node = Script.getNodeCopy(st2.nextToken());
+			    		Node node = Script.getNodeInstance(st2.nextToken());
 			    		node.setLocalTranslation(	Float.parseFloat(st2.nextToken()), 
 			    									Float.parseFloat(st2.nextToken()), 
 			    									Float.parseFloat(st2.nextToken()));
@@ -176,6 +183,7 @@ public final class MapLoader extends Observable {
 			    	}
 			    	
 			    	Resources.addKinematic(new Kinematic(id, nds, kfs, speed, endDate, scripts));
+			    	Resources.addLoadTime(Resources.KINEMATICS, System.nanoTime() - time);
 			    }
 			}
 			
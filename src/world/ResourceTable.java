@@ -0,0 +1,204 @@
+//	Copyright 2009 Nicolas Devere
+//
+//	This file is part of FLESH SNATCHER.
+//
+//	FLESH SNATCHER is free software; you can redistribute it and/or modify
+//	it under the terms of the GNU General Public License as published by
+//	the Free Software Foundation; either version 2 of the License, or
+//	(at your option) any later version.
+//
+//	FLESH SNATCHER is distributed in the hope that it will be useful,
+//	but WITHOUT ANY WARRANTY; without even the implied warranty of
+//	MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+//	GNU General Public License for more details.
+//
+//	You should have received a copy of the GNU General Public License
+//	along with FLESH SNATCHER; if not, write to the Free Software
+//	Foundation, Inc., 51 Franklin St, Fifth Floor, Boston, MA  02110-1301  USA
+
+package world;
+
+
+/**
+ * Resources of one category, stored by ID.<br>
+ * The IDs are interned in integer handles : a handle is given to an ID 
+ * on its first use, and stays the same even if the resource is stored later, 
+ * or removed by <code>clear()</code> and stored again. The lookups by ID use an open addressing 
+ * hash table, the lookups by handle are an array access. 
+ * If several resources are stored with the same ID, the first one is kept.
+ * 
+ * @author Nicolas Devere
+ *
+ */
+final class ResourceTable {
+	
+	private static final int INITIAL_CAPACITY = 16;
+	
+	private String name;
+	
+	// Handles : ids and values by handle
+	private String[] ids;
+	private Object[] values;
+	private int nbHandles;
+	
+	// Hash table of handle + 1, 0 for an empty slot
+	private int[] slots;
+	
+	private int count;
+	private long loadTime;
+	
+	
+	
+	/**
+	 * Constructs an empty table.
+	 * 
+	 * @param _name : the category name
+	 */
+	ResourceTable(String _name) {
+		name = _name;
+		ids = new String[INITIAL_CAPACITY];
+		values = new Object[INITIAL_CAPACITY];
+		nbHandles = 0;
+		slots = new int[INITIAL_CAPACITY * 2];
+		count = 0;
+		loadTime = 0L;
+	}
+	
+	
+	/**
+	 * Removes all the resources. The handles are kept.
+	 */
+	void clear() {
+		for (int i=0; i<nbHandles; i++)
+			values[i] = null;
+		count = 0;
+		loadTime = 0L;
+	}
+	
+	
+	private static int hash(String id) {
+		int h = id.hashCode();
+		return h ^ (h >>> 16);
+	}
+	
+	
+	/**
+	 * Returns the handle of the specified ID, or -1 if it isn't interned.
+	 * 
+	 * @param id : the ID
+	 * @return the handle, or -1
+	 */
+	int find(String id) {
+		if (id==null)
+			return -1;
+		int mask = slots.length - 1;
+		for (int i=hash(id) & mask; slots[i]!=0; i=(i + 1) & mask)
+			if (ids[slots[i] - 1].equals(id))
+				return slots[i] - 1;
+		return -1;
+	}
+	
+	
+	/**
+	 * Returns the handle of the specified ID, interning it if needed.
+	 * 
+	 * @param id : the ID
+	 * @return the handle, or -1 for a null ID
+	 */
+	int intern(String id) {
+		
+		int h = find(id);
+		if (h>=0 || id==null)
+			return h;
+		
+		if (nbHandles==ids.length) {
+			String[] newIds = new String[ids.length * 2];
+			Object[] newValues = new Object[ids.length * 2];
+			System.arraycopy(ids, 0, newIds, 0, nbHandles);
+			System.arraycopy(values, 0, newValues, 0, nbHandles);
+			ids = newIds;
+			values = newValues;
+		}
+		h = nbHandles++;
+		ids[h] = id;
+		
+		// Keeps the hash table at most half full
+		if (nbHandles * 2 > slots.length) {
+			slots = new int[slots.length * 2];
+			for (int k=0; k<nbHandles; k++)
+				insert(k);
+		}
+		else
+			insert(h);
+		return h;
+	}
+	
+	
+	private void insert(int h) {
+		int mask = slots.length - 1;
+		int i = hash(ids[h]) & mask;
+		while (slots[i]!=0)
+			i = (i + 1) & mask;
+		slots[i] = h + 1;
+	}
+	
+	
+	/**
+	 * Stores a resource, if no resource has the same ID.
+	 * 
+	 * @param id : the ID
+	 * @param value : the resource
+	 */
+	void put(String id, Object value) {
+		int h = intern(id);
+		if (h>=0 && values[h]==null) {
+			values[h] = value;
+			count++;
+		}
+	}
+	
+	
+	/**
+	 * Returns the resource of the specified handle, or null.
+	 * 
+	 * @param handle : the handle
+	 * @return the resource, or null
+	 */
+	Object get(int handle) {
+		if (handle<0 || handle>=nbHandles)
+			return null;
+		return values[handle];
+	}
+	
+	
+	/**
+	 * Returns the resource of the specified ID, or null.
+	 * 
+	 * @param id : the ID
+	 * @return the resource, or null
+	 */
+	Object get(String id) {
+		return get(find(id));
+	}
+	
+	
+	String getName() {
+		return name;
+	}
+	
+	
+	int getCount() {
+		return count;
+	}
+	
+	
+	long getLoadTime() {
+		return loadTime;
+	}
+	
+	
+	void addLoadTime(long nanos) {
+		loadTime += nanos;
+	}
+	
+}
@@ -26,30 +26,35 @@ import ai.PathGraph;
 
 
 /**
- * Class storing the game Nodes.
+ * Class storing the game Nodes.<br>
+ * Each category is a hash table of the resources by ID. The IDs can be 
+ * resolved once in integer handles, and the resources then read by handle 
+ * without any lookup. The handles stay valid after <code>clear()</code>, 
+ * and must be resolved while loading, on the game thread.
  * 
  * @author Nicolas Devere
  *
  */
 public final class Resources {
 	
-	private static Texture[] textures = new Texture[0];
-	private static String[] texIds = new String[0];
+	/** Resource categories */
+	public static final int TEXTURES 		= 0;
+	public static final int BSPS 			= 1;
+	public static final int PATH_GRAPHS 	= 2;
+	public static final int NODES 			= 3;
+	public static final int ENTITIES 		= 4;
+	public static final int DISPLAY_NODES 	= 5;
+	public static final int COLLISION_NODES = 6;
+	public static final int KINEMATICS 		= 7;
 	
-	private static Bsp_tree[] bsps = new Bsp_tree[0];
-	private static String[] bspIds = new String[0];
-	
-	private static PathGraph[] paths = new PathGraph[0];
-	
-	private static Node[] nodes = new Node[0];
-	
-	private static Entity[] entities = new Entity[0];
-	
-	private static DisplayNode[] displayNodes = new DisplayNode[0];
-	
-	private static CollisionNode[] collisionNodes = new CollisionNode[0];
-	
-	private static Kinematic[] kinematics = new Kinematic[0];
+	private static ResourceTable[] tables = {	new ResourceTable("textures"), 
+												new ResourceTable("bsps"), 
+												new ResourceTable("path graphs"), 
+												new ResourceTable("nodes"), 
+												new ResourceTable("entities"), 
+												new ResourceTable("display nodes"), 
+												new ResourceTable("collision nodes"), 
+												new ResourceTable("kinematics") };
 	
 	
 	
@@ -60,23 +65,8 @@ public final class Resources {
 	 * @param id : the ID
 	 */
 	public static void addTexture(Texture texture, String id) {
-		
-		if (texture==null)
-			return;
-		
-		Texture[] newStructs = new Texture[textures.length+1];
-		String[] newIds = new String[textures.length+1];
-		
-		for (int i=0; i<textures.length; i++) {
-			newStructs[i] = textures[i];
-			newIds[i] = texIds[i];
-		}
-		
-		newStructs[textures.length] = texture;
-		newIds[textures.length] = id;
-		
-		textures = newStructs;
-		texIds = newIds;
+		if (texture!=null)
+			tables[TEXTURES].put(id, texture);
 	}
 	
 	
@@ -87,10 +77,7 @@ public final class Resources {
 	 * @return the Texture, or null
 	 */
 	public static Texture getTexture(String id) {
-		for (int i=0; i<texIds.length; i++)
-			if (texIds[i].equals(id))
-				return textures[i];
-		return null;
+		return (Texture)tables[TEXTURES].get(id);
 	}
 	
 	
@@ -101,23 +88,8 @@ public final class Resources {
 	 * @param id : the ID
 	 */
 	public static void addBsp(Bsp_tree bsp, String id) {
-		
-		if (bsp==null)
-			return;
-		
-		Bsp_tree[] newStructs = new Bsp_tree[bsps.length+1];
-		String[] newIds = new String[bsps.length+1];
-		
-		for (int i=0; i<bsps.length; i++) {
-			newStructs[i] = bsps[i];
-			newIds[i] = bspIds[i];
-		}
-		
-		newStructs[bsps.length] = bsp;
-		newIds[bsps.length] = id;
-		
-		bsps = newStructs;
-		bspIds = newIds;
+		if (bsp!=null)
+			tables[BSPS].put(id, bsp);
 	}
 	
 	
@@ -128,10 +100,7 @@ public final class Resources {
 	 * @return the BSP, or null
 	 */
 	public static Bsp_tree getBsp(String id) {
-		for (int i=0; i<bspIds.length; i++)
-			if (bspIds[i].equals(id))
-				return bsps[i];
-		return null;
+		return (Bsp_tree)tables[BSPS].get(id);
 	}
 	
 	
@@ -139,20 +108,10 @@ public final class Resources {
 	 * Adds a PathGraph given its ID.
 	 * 
 	 * @param path : the PathGraph
-	 * @param id : the ID
 	 */
 	public static void addPathGraph(PathGraph path) {
-		
-		if (path==null)
-			return;
-		
-		PathGraph[] newStructs = new PathGraph[paths.length+1];
-		
-		for (int i=0; i<paths.length; i++)
-			newStructs[i] = paths[i];
-		
-		newStructs[paths.length] = path;
-		paths = newStructs;
+		if (path!=null)
+			tables[PATH_GRAPHS].put(path.getID(), path);
 	}
 	
 	
@@ -163,31 +122,18 @@ public final class Resources {
 	 * @return the PathGraph, or null
 	 */
 	public static PathGraph getPathGraph(String id) {
-		for (int i=0; i<paths.length; i++)
-			if (paths[i].getID().equals(id))
-				return paths[i];
-		return null;
+		return (PathGraph)tables[PATH_GRAPHS].get(id);
 	}
 	
 	
 	/**
-	 * Adds a Node given its ID.
+	 * Adds a Node given its name.
 	 * 
 	 * @param model : the Node
-	 * @param id : the ID
 	 */
 	public static void addNode(Node model) {
-		
-		if (model==null)
-			return;
-		
-		Node[] newStructs = new Node[nodes.length+1];
-		
-		for (int i=0; i<nodes.length; i++)
-			newStructs[i] = nodes[i];
-		
-		newStructs[nodes.length] = model;
-		nodes = newStructs;
+		if (model!=null)
+			tables[NODES].put(model.getName(), model);
 	}
 	
 	
@@ -198,10 +144,7 @@ public final class Resources {
 	 * @return the Node, or null
 	 */
 	public static Node getNode(String id) {
-		for (int i=0; i<nodes.length; i++)
-			if (nodes[i].getName().equals(id))
-				return nodes[i];
-		return null;
+		return (Node)tables[NODES].get(id);
 	}
 	
 	
@@ -209,20 +152,10 @@ public final class Resources {
 	 * Adds an Entity given its ID.
 	 * 
 	 * @param model : the Entity
-	 * @param id : the ID
 	 */
 	public static void addEntity(Entity model) {
-		
-		if (model==null)
-			return;
-		
-		Entity[] newStructs = new Entity[entities.length+1];
-		
-		for (int i=0; i<entities.length; i++)
-			newStructs[i] = entities[i];
-		
-		newStructs[entities.length] = model;
-		entities = newStructs;
+		if (model!=null)
+			tables[ENTITIES].put(model.getID(), model);
 	}
 	
 	
@@ -233,10 +166,7 @@ public final class Resources {
 	 * @return the Entity, or null
 	 */
 	public static Entity getEntity(String id) {
-		for (int i=0; i<entities.length; i++)
-			if (entities[i].getID().equals(id))
-				return entities[i];
-		return null;
+		return (Entity)tables[ENTITIES].get(id);
 	}
 	
 	
@@ -246,17 +176,8 @@ public final class Resources {
 	 * @param model : the DisplayNode
 	 */
 	public static void addDisplayNode(DisplayNode model) {
-		
-		if (model==null)
-			return;
-		
-		DisplayNode[] newStructs = new DisplayNode[displayNodes.length+1];
-		
-		for (int i=0; i<displayNodes.length; i++)
-			newStructs[i] = displayNodes[i];
-		
-		newStructs[displayNodes.length] = model;
-		displayNodes = newStructs;
+		if (model!=null)
+			tables[DISPLAY_NODES].put(model.getName(), model);
 	}
 	
 	
@@ -267,10 +188,7 @@ public final class Resources {
 	 * @return the DisplayNode, or null
 	 */
 	public static DisplayNode getDisplayNode(String id) {
-		for (int i=0; i<displayNodes.length; i++)
-			if (displayNodes[i].getName().equals(id))
-				return displayNodes[i];
-		return null;
+		return (DisplayNode)tables[DISPLAY_NODES].get(id);
 	}
 	
 	
@@ -280,17 +198,8 @@ public final class Resources {
 	 * @param model : the CollisionNode
 	 */
 	public static void addCollisionNode(CollisionNode model) {
-		
-		if (model==null)
-			return;
-		
-		CollisionNode[] newStructs = new CollisionNode[collisionNodes.length+1];
-		
-		for (int i=0; i<collisionNodes.length; i++)
-			newStructs[i] = collisionNodes[i];
-		
-		newStructs[collisionNodes.length] = model;
-		collisionNodes = newStructs;
+		if (model!=null)
+			tables[COLLISION_NODES].put(model.getName(), model);
 	}
 	
 	
@@ -301,10 +210,7 @@ public final class Resources {
 	 * @return the CollisionNode, or null
 	 */
 	public static CollisionNode getCollisionNode(String id) {
-		for (int i=0; i<collisionNodes.length; i++)
-			if (collisionNodes[i].getName().equals(id))
-				return collisionNodes[i];
-		return null;
+		return (CollisionNode)tables[COLLISION_NODES].get(id);
 	}
 	
 	
@@ -313,20 +219,10 @@ public final class Resources {
 	 * Adds an Kinematic given its ID.
 	 * 
 	 * @param model : the Kinematic
-	 * @param id : the ID
 	 */
 	public static void addKinematic(Kinematic model) {
-		
-		if (model==null)
-			return;
-		
-		Kinematic[] newStructs = new Kinematic[kinematics.length+1];
-		
-		for (int i=0; i<kinematics.length; i++)
-			newStructs[i] = kinematics[i];
-		
-		newStructs[kinematics.length] = model;
-		kinematics = newStructs;
+		if (model!=null)
+			tables[KINEMATICS].put(model.getID(), model);
 	}
 	
 	
@@ -337,10 +233,106 @@ public final class Resources {
 	 * @return the Kinematic, or null
 	 */
 	public static Kinematic getKinematic(String id) {
-		for (int i=0; i<kinematics.length; i++)
-			if (kinematics[i].getID().equals(id))
-				return kinematics[i];
-		return null;
+		return (Kinematic)tables[KINEMATICS].get(id);
+	}
+	
+	
+	
+	/**
+	 * Returns the handle of the specified ID in the specified category. 
+	 * The handle is valid before the resource is stored, and after <code>clear()</code>.
+	 * 
+	 * @param category : the category, <code>NODES</code>, <code>ENTITIES</code>...
+	 * @param id : the resource ID
+	 * @return the handle, or -1 for a null ID
+	 */
+	public static int getHandle(int category, String id) {
+		return tables[category].intern(id);
+	}
+	
+	
+	/**
+	 * Returns the resource of the specified handle (or null if it does'nt exist).
+	 * 
+	 * @param category : the category of the handle
+	 * @param handle : the handle
+	 * @return the resource, or null
+	 */
+	public static Object get(int category, int handle) {
+		return tables[category].get(handle);
+	}
+	
+	
+	public static Node getNode(int handle) {
+		return (Node)tables[NODES].get(handle);
+	}
+	
+	
+	public static Entity getEntity(int handle) {
+		return (Entity)tables[ENTITIES].get(handle);
+	}
+	
+	
+	public static CollisionNode getCollisionNode(int handle) {
+		return (CollisionNode)tables[COLLISION_NODES].get(handle);
+	}
+	
+	
+	public static DisplayNode getDisplayNode(int handle) {
+		return (DisplayNode)tables[DISPLAY_NODES].get(handle);
+	}
+	
+	
+	public static Kinematic getKinematic(int handle) {
+		return (Kinematic)tables[KINEMATICS].get(handle);
+	}
+	
+	
+	
+	/**
+	 * Returns the number of resources stored in the specified category.
+	 * 
+	 * @param category : the category
+	 * @return the number of resources
+	 */
+	public static int getCount(int category) {
+		return tables[category].getCount();
+	}
+	
+	
+	/**
+	 * Adds some loading time to the specified category.
+	 * 
+	 * @param category : the category
+	 * @param nanos : the time in nanoseconds
+	 */
+	public static void addLoadTime(int category, long nanos) {
+		tables[category].addLoadTime(nanos);
+	}
+	
+	
+	/**
+	 * Returns the loading time of the specified category, in nanoseconds.
+	 * 
+	 * @param category : the category
+	 * @return the loading time
+	 */
+	public static long getLoadTime(int category) {
+		return tables[category].getLoadTime();
+	}
+	
+	
+	/**
+	 * Returns the count and loading time of each category, one per line.
+	 * 
+	 * @return the resources report
+	 */
+	public static String getReport() {
+		StringBuffer sb = new StringBuffer();
+		for (int i=0; i<tables.length; i++)
+			sb.append(tables[i].getName()).append(" : ").append(tables[i].getCount())
+				.append(", ").append(tables[i].getLoadTime() / 1000000L).append(" ms\n");
+		return sb.toString();
 	}
 	
 	
@@ -349,23 +341,8 @@ public final class Resources {
 	 * clears the lists.
 	 */
 	public static void clear() {
-		textures = new Texture[0];
-		texIds = new String[0];
-		
-		bsps = new Bsp_tree[0];
-		bspIds = new String[0];
-		
-		paths = new PathGraph[0];
-		
-		nodes = new Node[0];
-		
-		entities = new Entity[0];
-		
-		displayNodes = new DisplayNode[0];
-		
-		collisionNodes = new CollisionNode[0];
-		
-		kinematics = new Kinematic[0];
+		for (int i=0; i<tables.length; i++)
+			tables[i].clear();
 	}
 	
 }
@@ -0,0 +1,99 @@
+//	Copyright 2009 Nicolas Devere
+//
+//	This file is part of FLESH SNATCHER.
+//
+//	FLESH SNATCHER is free software; you can redistribute it and/or modify
+//	it under the terms of the GNU General Public License as published by
+//	the Free Software Foundation; either version 2 of the License, or
+//	(at your option) any later version.
+//
+//	FLESH SNATCHER is distributed in the hope that it will be useful,
+//	but WITHOUT ANY WARRANTY; without even the implied warranty of
+//	MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+//	GNU General Public License for more details.
+//
+//	You should have received a copy of the GNU General Public License
+//	along with FLESH SNATCHER; if not, write to the Free Software
+//	Foundation, Inc., 51 Franklin St, Fifth Floor, Boston, MA  02110-1301  USA
+
+package world;
+
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.RecursiveAction;
+
+import entity.Thinker;
+
+
+/**
+ * Think steps of a range of entities, split and run on a fork/join pool. 
+ * Each think step only writes its own entity and the working objects of 
+ * its thread, so the result doesn't depend on the threads.
+ * 
+ * @author Nicolas Devere
+ *
+ */
+final class ThinkTask extends RecursiveAction {
+	
+	private static final long serialVersionUID = 1L;
+	
+	/** Max number of entities processed by a task without splitting */
+	static int GRAIN = 4;
+	
+	private static ForkJoinPool s_pool;
+	
+	private Thinker[] thinkers;
+	private int from, to;
+	
+	
+	ThinkTask(Thinker[] _thinkers, int _from, int _to) {
+		thinkers = _thinkers;
+		from = _from;
+		to = _to;
+	}
+	
+	
+	/**
+	 * Runs the think steps of the first entities of the array, on the shared pool 
+	 * or on the current thread.
+	 * 
+	 * @param thinkers : the entities
+	 * @param count : the number of entities
+	 * @param threads : the pool parallelism, 0 for the number of processors
+	 * @param parallel : if the task is run on the pool
+	 */
+	static void run(Thinker[] thinkers, int count, int threads, boolean parallel) {
+		if (parallel)
+			getSharedPool(threads).invoke(new ThinkTask(thinkers, 0, count));
+		else
+			process(thinkers, 0, count);
+	}
+	
+	
+	private static synchronized ForkJoinPool getSharedPool(int threads) {
+		if (threads<=0)
+			threads = Runtime.getRuntime().availableProcessors();
+		if (s_pool==null || s_pool.getParallelism()!=threads) {
+			if (s_pool!=null)
+				s_pool.shutdown();
+			s_pool = new ForkJoinPool(threads);
+		}
+		return s_pool;
+	}
+	
+	
+	protected void compute() {
+		if (to - from <= GRAIN) {
+			process(thinkers, from, to);
+			return;
+		}
+		int mid = (from + to) >>> 1;
+		invokeAll(new ThinkTask(thinkers, from, mid), new ThinkTask(thinkers, mid, to));
+	}
+	
+	
+	private static void process(Thinker[] thinkers, int from, int to) {
+		for (int i=from; i<to; i++)
+			thinkers[i].think();
+	}
+	
+}
@@ -0,0 +1,286 @@
+//	Copyright 2009 Nicolas Devere
+//
+//	This file is part of FLESH SNATCHER.
+//
+//	FLESH SNATCHER is free software; you can redistribute it and/or modify
+//	it under the terms of the GNU General Public License as published by
+//	the Free Software Foundation; either version 2 of the License, or
+//	(at your option) any later version.
+//
+//	FLESH SNATCHER is distributed in the hope that it will be useful,
+//	but WITHOUT ANY WARRANTY; without even the implied warranty of
+//	MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+//	GNU General Public License for more details.
+//
+//	You should have received a copy of the GNU General Public License
+//	along with FLESH SNATCHER; if not, write to the Free Software
+//	Foundation, Inc., 51 Franklin St, Fifth Floor, Boston, MA  02110-1301  USA
+
+package world;
+
+import phys.Shape;
+import phys.Shape_aabb;
+import phys.Trace;
+import phys.TraceContext;
+import phys.Util4Phys;
+import jglcore.JGL_3DVector;
+
+
+/**
+ * Bounding volume hierarchy over the view shapes of a collision node.<br>
+ * The overlap queries walk the merged boxes with a cheap point or segment test,
+ * and only call the exact view shape tests in the reached leaves.
+ * The boxes are computed once, the view shapes must not move afterwards.
+ *
+ * @author Nicolas Devere
+ *
+ */
+public final class ViewShapeTree {
+
+
+	/** Margin added to the boxes for the segment test */
+	public static float MARGIN = 1f;
+
+	private Shape_aabb[] shapes;
+
+	// Nodes boxes
+	private float[] x0, y0, z0, x1, y1, z1;
+
+	// Children, or shape index -i-1 in the left array for a leaf
+	private int[] left;
+	private int[] right;
+	private int nbNodes;
+
+
+
+	/**
+	 * Builds the hierarchy over the specified view shapes.
+	 *
+	 * @param _shapes : the view shapes
+	 */
+	public ViewShapeTree(Shape_aabb[] _shapes) {
+
+		shapes = _shapes;
+
+		int size = Math.max(1, shapes.length * 2 - 1);
+		x0 = new float[size]; y0 = new float[size]; z0 = new float[size];
+		x1 = new float[size]; y1 = new float[size]; z1 = new float[size];
+		left = new int[size];
+		right = new int[size];
+		nbNodes = 0;
+
+		if (shapes.length>0) {
+			int[] indices = new int[shapes.length];
+			for (int i=0; i<indices.length; i++)
+				indices[i] = i;
+			build(indices, 0, indices.length);
+		}
+	}
+
+
+	/**
+	 * Builds the node of the specified view shapes and returns its index.
+	 */
+	private int build(int[] indices, int from, int to) {
+
+		int node = nbNodes++;
+		int i;
+
+		x0[node] = y0[node] = z0[node] = Float.MAX_VALUE;
+		x1[node] = y1[node] = z1[node] = -Float.MAX_VALUE;
+		for (i=from; i<to; i++) {
+			Shape_aabb s = shapes[indices[i]];
+			JGL_3DVector p = s.getPosition();
+			x0[node] = Math.min(x0[node], p.x + s.getMinX());
+			y0[node] = Math.min(y0[node], p.y + s.getMinY());
+			z0[node] = Math.min(z0[node], p.z + s.getMinZ());
+			x1[node] = Math.max(x1[node], p.x + s.getMaxX());
+			y1[node] = Math.max(y1[node], p.y + s.getMaxY());
+			z1[node] = Math.max(z1[node], p.z + s.getMaxZ());
+		}
+
+		if (to - from == 1) {
+			left[node] = -indices[from] - 1;
+			return node;
+		}
+
+		// Splits at the median of the larger axis
+		float dx = x1[node] - x0[node];
+		float dy = y1[node] - y0[node];
+		float dz = z1[node] - z0[node];
+		int axis = (dx>=dy && dx>=dz) ? 0 : (dy>=dz ? 1 : 2);
+
+		for (i=from+1; i<to; i++) {
+			int idx = indices[i];
+			float c = center(idx, axis);
+			int j = i - 1;
+			while (j>=from && center(indices[j], axis)>c) {
+				indices[j+1] = indices[j];
+				j--;
+			}
+			indices[j+1] = idx;
+		}
+
+		int mid = (from + to) / 2;
+		left[node] = build(indices, from, mid);
+		right[node] = build(indices, mid, to);
+		return node;
+	}
+
+
+	private float center(int i, int axis) {
+		Shape_aabb s = shapes[i];
+		JGL_3DVector p = s.getPosition();
+		if (axis==0) return p.x + (s.getMinX() + s.getMaxX()) * 0.5f;
+		if (axis==1) return p.y + (s.getMinY() + s.getMaxY()) * 0.5f;
+		return p.z + (s.getMinZ() + s.getMaxZ()) * 0.5f;
+	}
+
+
+	/**
+	 * Returns the larger offset of the shape along the axis, or a negative value
+	 * if the shape has no known bounds.
+	 */
+	private static float getExtent(Shape shape) {
+
+		float e = shape.getOffset(Util4Phys.right.normal);
+		float o = shape.getOffset(Util4Phys.left.normal);
+		if (o<0f || e<0f) return -1f;
+		e = Math.max(e, o);
+		o = shape.getOffset(Util4Phys.up.normal);
+		if (o<0f) return -1f;
+		e = Math.max(e, o);
+		o = shape.getOffset(Util4Phys.down.normal);
+		if (o<0f) return -1f;
+		e = Math.max(e, o);
+		o = shape.getOffset(Util4Phys.near.normal);
+		if (o<0f) return -1f;
+		e = Math.max(e, o);
+		o = shape.getOffset(Util4Phys.far.normal);
+		if (o<0f) return -1f;
+		return Math.max(e, o);
+	}
+
+
+
+	/**
+	 * Returns if the specified shape is intersecting one of the view shapes.
+	 *
+	 * @param shape : the shape to test
+	 * @return if the specified shape is intersecting one of the view shapes
+	 */
+	public boolean isIn(Shape shape) {
+
+		if (nbNodes==0)
+			return false;
+
+		float e = getExtent(shape);
+		if (e<0f) {
+			for (int i=0; i<shapes.length; i++)
+				if (shapes[i].isIn(shape))
+					return true;
+			return false;
+		}
+		return isIn(0, shape, shape.getPosition(), e);
+	}
+
+
+	private boolean isIn(int node, Shape shape, JGL_3DVector p, float e) {
+
+		if (p.x < x0[node] - e || p.x > x1[node] + e ||
+			p.y < y0[node] - e || p.y > y1[node] + e ||
+			p.z < z0[node] - e || p.z > z1[node] + e)
+			return false;
+
+		if (left[node]<0)
+			return shapes[-left[node] - 1].isIn(shape);
+
+		return isIn(left[node], shape, p, e) || isIn(right[node], shape, p, e);
+	}
+
+
+	/**
+	 * Returns if the specified trace shape is crossing one of the view shapes.
+	 *
+	 * @param trace : the trace to test
+	 * @param ctx : the trace context
+	 * @return if the specified trace shape is crossing one of the view shapes
+	 */
+	public boolean isCrossing(Trace trace, TraceContext ctx) {
+
+		if (nbNodes==0)
+			return false;
+
+		Trace testTrace = ctx.test;
+		testTrace.reset(trace.cshape, trace.start, trace.end);
+
+		float e = getExtent(trace.cshape);
+		if (e<0f) {
+			for (int i=0; i<shapes.length; i++)
+				if (isCrossing(i, testTrace, ctx))
+					return true;
+			return false;
+		}
+		return isCrossing(0, testTrace, ctx, e + MARGIN);
+	}
+
+
+	private boolean isCrossing(int node, Trace testTrace, TraceContext ctx, float e) {
+
+		if (!isSegmentIn(node, testTrace.start, testTrace.end, e))
+			return false;
+
+		if (left[node]<0)
+			return isCrossing(-left[node] - 1, testTrace, ctx);
+
+		return isCrossing(left[node], testTrace, ctx, e) || isCrossing(right[node], testTrace, ctx, e);
+	}
+
+
+	/**
+	 * Exact test against a view shape.
+	 */
+	private boolean isCrossing(int i, Trace testTrace, TraceContext ctx) {
+		shapes[i].trace(testTrace, ctx);
+		boolean test = testTrace.isImpact();
+		testTrace.clearImpact();
+		return test;
+	}
+
+
+	/**
+	 * Slab test : returns if the segment crosses the node box increased by e.
+	 */
+	private boolean isSegmentIn(int node, JGL_3DVector p1, JGL_3DVector p2, float e) {
+
+		float tMin = 0f;
+		float tMax = 1f;
+
+		for (int axis=0; axis<3; axis++) {
+
+			float s, d, lo, hi;
+			if (axis==0) { s = p1.x; d = p2.x - p1.x; lo = x0[node] - e; hi = x1[node] + e; }
+			else if (axis==1) { s = p1.y; d = p2.y - p1.y; lo = y0[node] - e; hi = y1[node] + e; }
+			else { s = p1.z; d = p2.z - p1.z; lo = z0[node] - e; hi = z1[node] + e; }
+
+			if (d==0f) {
+				if (s<lo || s>hi)
+					return false;
+				continue;
+			}
+
+			float inv = 1f / d;
+			float t1 = (lo - s) * inv;
+			float t2 = (hi - s) * inv;
+			if (t1>t2) {
+				float t = t1; t1 = t2; t2 = t;
+			}
+			if (t1>tMin) tMin = t1;
+			if (t2<tMax) tMax = t2;
+			if (tMin>tMax)
+				return false;
+		}
+		return true;
+	}
+
+}
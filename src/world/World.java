@@ -75,6 +75,12 @@ public final class World {
 	 */
 	public static short mode = INGAME;
 	
+	/**
+	 * If the game runs without display : the HUD, the messages 
+	 * and the decals are not built.
+	 */
+	public static boolean headless = false;
+	
 	/**
 	 * Current map object.
 	 */